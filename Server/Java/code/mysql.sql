@@ -5,7 +5,7 @@ CREATE TABLE `class_infos` (
   `title` varchar(256) DEFAULT NULL COMMENT '课堂标题',
   `anchor` varchar(256) DEFAULT NULL COMMENT '课堂主播',
   `extends` mediumtext COMMENT '扩展字段',
-  `status` bigint DEFAULT NULL COMMENT '1-开始上课,2-结束上课,0-暂停或没有上课',
+  `status` bigint DEFAULT NULL COMMENT '1-开始上课,2-结束上课,0-暂停或没有上课,3-删除中',
   `mode` bigint DEFAULT NULL COMMENT '0-公开,1-大班,2-小班',
   `a_li_yun_id` varchar(256) DEFAULT NULL COMMENT 'IM群ID',
   `pk_id` varchar(256) DEFAULT NULL,
@@ -20,8 +20,13 @@ CREATE TABLE `class_infos` (
   `stopped_at` datetime DEFAULT NULL COMMENT '课堂的结束时间',
   `boards` mediumtext COMMENT '白板信息, JSON字符串',
   `rong_cloud_id` varchar(256) DEFAULT NULL,
+  `version` bigint NOT NULL DEFAULT 0 COMMENT '版本号，每次状态迁移加1',
+  `im_creator_id` varchar(256) DEFAULT NULL COMMENT 'IM消息组创建者，为空时为老师',
+  `vod_search_at` datetime DEFAULT NULL COMMENT '后台扫描下次可搜索录制视频的时间',
   PRIMARY KEY (`id`),
-  KEY `idx_create_at` (`created_at`)
+  KEY `idx_create_at` (`created_at`),
+  KEY `idx_meeting_id` (`meeting_id`),
+  KEY `idx_status_updated_at` (`status`, `updated_at`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb3
 
 
@@ -32,7 +37,8 @@ CREATE TABLE `doc_infos` (
   `doc_infos` mediumtext DEFAULT NULL COMMENT '文档信息, JSON字符串',
   `created_at` datetime DEFAULT NULL COMMENT '创建时间',
   `updated_at` datetime DEFAULT NULL COMMENT '更新时间',
-  PRIMARY KEY (doc_id, class_id)
+  PRIMARY KEY (doc_id, class_id),
+  KEY idx_class_id(`class_id`)
 ) ENGINE=InnoDB;
 
 CREATE TABLE `class_member` (
@@ -0,0 +1,8 @@
+-- 已有部署升级：新建库执行mysql.sql即可，已存在的表需执行以下语句
+ALTER TABLE `class_infos` ADD COLUMN `version` bigint NOT NULL DEFAULT 0 COMMENT '版本号，每次状态迁移加1';
+ALTER TABLE `class_infos` MODIFY COLUMN `status` bigint DEFAULT NULL COMMENT '1-开始上课,2-结束上课,0-暂停或没有上课,3-删除中';
+ALTER TABLE `class_infos` ADD KEY `idx_meeting_id` (`meeting_id`);
+ALTER TABLE `class_infos` ADD KEY `idx_status_updated_at` (`status`, `updated_at`);
+ALTER TABLE `doc_infos` ADD KEY idx_class_id(`class_id`);
+ALTER TABLE `class_infos` ADD COLUMN `im_creator_id` varchar(256) DEFAULT NULL COMMENT 'IM消息组创建者，为空时为老师';
+ALTER TABLE `class_infos` ADD COLUMN `vod_search_at` datetime DEFAULT NULL COMMENT '后台扫描下次可搜索录制视频的时间';
@@ -0,0 +1,165 @@
+package com.aliyuncs.aui.cache;
+
+import com.aliyuncs.aui.dto.ClassMemberDto;
+import com.aliyuncs.aui.dto.res.RoomInfoDto;
+import com.aliyuncs.aui.entity.ClassInfoEntity;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 课堂详情聚合信息的本地缓存，以课堂Id为key，每类信息有独立的过期时间。
+ * 课堂信息发生修改时需调用invalidate，多实例部署时其他实例依赖过期时间兜底。
+ *
+ * @author chunlei.zcl
+ */
+@Component
+@Slf4j
+public class ClassInfoCache {
+
+    @Value("${biz.class_info.cache.max_size:10000}")
+    private long maxSize;
+
+    @Value("${biz.class_info.cache.entity_ttl_seconds:5}")
+    private long entityTtlSeconds;
+
+    @Value("${biz.class_info.cache.vod_info_ttl_seconds:60}")
+    private long vodInfoTtlSeconds;
+
+    @Value("${biz.class_info.cache.metrics_ttl_seconds:5}")
+    private long metricsTtlSeconds;
+
+    @Value("${biz.class_info.cache.user_status_ttl_seconds:10}")
+    private long userStatusTtlSeconds;
+
+    @Value("${biz.class_info.cache.assistant_ttl_seconds:10}")
+    private long assistantTtlSeconds;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private Region<ClassInfoEntity> entities;
+
+    private Region<RoomInfoDto.VodInfo> vodInfos;
+
+    private Region<RoomInfoDto.Metrics> metrics;
+
+    private Region<RoomInfoDto.UserStatus> userStatuses;
+
+    private Region<ClassMemberDto> assistants;
+
+    @PostConstruct
+    public void init() {
+
+        entities = new Region<>("entity", entityTtlSeconds, false);
+        vodInfos = new Region<>("vod_info", vodInfoTtlSeconds, false);
+        metrics = new Region<>("metrics", metricsTtlSeconds, false);
+        userStatuses = new Region<>("user_status", userStatusTtlSeconds, false);
+        // 大部分课堂没有助教，空结果也需要缓存
+        assistants = new Region<>("assistant", assistantTtlSeconds, true);
+    }
+
+    public Region<ClassInfoEntity> entities() {
+        return entities;
+    }
+
+    public Region<RoomInfoDto.VodInfo> vodInfos() {
+        return vodInfos;
+    }
+
+    public Region<RoomInfoDto.Metrics> metrics() {
+        return metrics;
+    }
+
+    public Region<RoomInfoDto.UserStatus> userStatuses() {
+        return userStatuses;
+    }
+
+    public Region<ClassMemberDto> assistants() {
+        return assistants;
+    }
+
+    /**
+     * 课堂信息被修改时调用，清除该课堂的全部缓存
+     */
+    public void invalidate(String classId) {
+
+        entities.invalidate(classId);
+        vodInfos.invalidate(classId);
+        metrics.invalidate(classId);
+        userStatuses.invalidate(classId);
+        assistants.invalidate(classId);
+    }
+
+    /**
+     * 某一类信息的缓存
+     */
+    public class Region<T> {
+
+        private final String name;
+
+        private final boolean cacheNull;
+
+        private final Cache<String, Optional<T>> cache;
+
+        Region(String name, long ttlSeconds, boolean cacheNull) {
+
+            this.name = name;
+            this.cacheNull = cacheNull;
+            this.cache = CacheBuilder.newBuilder()
+                    .maximumSize(maxSize)
+                    .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                    .recordStats()
+                    .build();
+            GuavaCacheMetrics.monitor(meterRegistry, cache, "class_info." + name);
+        }
+
+        /**
+         * 优先读缓存，未命中时调用loader加载。同一个key并发加载时只会调用一次loader
+         */
+        public T get(String classId, Supplier<T> loader) {
+
+            try {
+                Optional<T> value = cache.get(classId, () -> Optional.ofNullable(loader.get()));
+                if (!value.isPresent() && !cacheNull) {
+                    cache.invalidate(classId);
+                }
+                return value.orElse(null);
+            } catch (ExecutionException e) {
+                log.error(String.format("ClassInfoCache load error. region: %s, classId: %s", name, classId), e.getCause());
+                return null;
+            }
+        }
+
+        /**
+         * 批量加载后写入缓存
+         */
+        public void put(String classId, T value) {
+
+            if (value != null || cacheNull) {
+                cache.put(classId, Optional.ofNullable(value));
+            }
+        }
+
+        public boolean contains(String classId) {
+
+            return cache.getIfPresent(classId) != null;
+        }
+
+        public void invalidate(String classId) {
+
+            cache.invalidate(classId);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.aliyuncs.aui.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * IM Token本地缓存，key为(provider, userId, deviceId)。断网重连时大量客户端同时获取Token，
+ * 直接返回缓存中未过期的Token，避免重复调用三方接口。
+ * 剩余有效期小于refresh_ahead_seconds时，本次仍返回缓存中的Token，同时在后台重新获取；已过期的Token同步重新获取。
+ * 监控指标：im_token.request（result=hit/miss/refresh_ahead）、im_token.remote（远程调用次数，result=success/failed）。
+ *
+ * @author chunlei.zcl
+ */
+@Component
+@Slf4j
+public class ImTokenCache {
+
+    @Value("${biz.im_token.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${biz.im_token.cache.max_size:100000}")
+    private long maxSize;
+
+    @Value("${biz.im_token.cache.refresh_ahead_seconds:600}")
+    private long refreshAheadSeconds;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource(name = "imTokenRefreshExecutor")
+    private ExecutorService imTokenRefreshExecutor;
+
+    private Cache<String, Token<?>> tokens;
+
+    /**
+     * 正在后台刷新的key，同一个key同时只刷新一次
+     */
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+
+        tokens = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        GuavaCacheMetrics.monitor(meterRegistry, tokens, "im_token");
+    }
+
+    /**
+     * 获取Token，缓存中没有或已过期时调用loader。loader失败时返回null，失败结果不缓存
+     *
+     * @param provider IM服务，如aliyun_old_im、rong_cloud
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String provider, String userId, String deviceId, Supplier<Token<T>> loader) {
+
+        if (!enabled) {
+            return unwrap(load(provider, loader));
+        }
+
+        String key = String.format("%s:%s:%s", provider, userId, deviceId);
+        long now = System.currentTimeMillis();
+        Token<T> token = (Token<T>) tokens.getIfPresent(key);
+        if (token != null && token.expiresAt <= now) {
+            tokens.asMap().remove(key, token);
+            token = null;
+        }
+        if (token != null) {
+            if (token.expiresAt - now < TimeUnit.SECONDS.toMillis(refreshAheadSeconds)) {
+                refreshAhead(provider, key, loader);
+            } else {
+                count(provider, "hit");
+            }
+            return token.value;
+        }
+
+        count(provider, "miss");
+        try {
+            // 同一个key并发加载时只调用一次loader
+            return ((Token<T>) tokens.get(key, () -> {
+                Token<T> loaded = load(provider, loader);
+                if (loaded == null) {
+                    throw new TokenLoadException();
+                }
+                return loaded;
+            })).value;
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (!(e.getCause() instanceof TokenLoadException)) {
+                log.error(String.format("ImTokenCache load error. key: %s", key), e.getCause());
+            }
+            return null;
+        }
+    }
+
+    public void invalidate(String provider, String userId, String deviceId) {
+
+        tokens.invalidate(String.format("%s:%s:%s", provider, userId, deviceId));
+    }
+
+    private <T> void refreshAhead(String provider, String key, Supplier<Token<T>> loader) {
+
+        count(provider, "refresh_ahead");
+        if (!refreshing.add(key)) {
+            return;
+        }
+        try {
+            imTokenRefreshExecutor.execute(() -> {
+                try {
+                    Token<T> loaded = load(provider, loader);
+                    if (loaded != null) {
+                        tokens.put(key, loaded);
+                    }
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(key);
+            log.warn("ImTokenCache refresh skipped, executor is full. key:{}", key);
+        }
+    }
+
+    private <T> Token<T> load(String provider, Supplier<Token<T>> loader) {
+
+        Token<T> loaded = null;
+        try {
+            loaded = loader.get();
+        } catch (Exception e) {
+            log.error(String.format("ImTokenCache loader error. provider: %s", provider), e);
+        }
+        Counter.builder("im_token.remote").tag("provider", provider).tag("result", loaded != null ? "success" : "failed")
+                .register(meterRegistry).increment();
+        return loaded;
+    }
+
+    private void count(String provider, String result) {
+
+        Counter.builder("im_token.request").tag("provider", provider).tag("result", result).register(meterRegistry).increment();
+    }
+
+    private static <T> T unwrap(Token<T> token) {
+
+        return token == null ? null : token.value;
+    }
+
+    /**
+     * Token及其过期时间
+     */
+    public static final class Token<T> {
+
+        private final T value;
+
+        private final long expiresAt;
+
+        private Token(T value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        /**
+         * @param expiresAt 过期时间，毫秒时间戳
+         */
+        public static <T> Token<T> of(T value, long expiresAt) {
+            return value == null ? null : new Token<>(value, expiresAt);
+        }
+    }
+
+    private static class TokenLoadException extends Exception {
+
+        TokenLoadException() {
+            super(null, null, false, false);
+        }
+    }
+}
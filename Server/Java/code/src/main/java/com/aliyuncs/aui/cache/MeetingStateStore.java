@@ -0,0 +1,682 @@
+package com.aliyuncs.aui.cache;
+
+import com.alibaba.fastjson.JSONException;
+import com.alibaba.fastjson.JSONObject;
+import com.aliyuncs.aui.dao.RoomInfoDao;
+import com.aliyuncs.aui.dto.MeetingMemberInfo;
+import com.aliyuncs.aui.entity.ClassInfoEntity;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 课堂连麦状态的内存存储，替代对class_infos.meeting_info整体读-改-写：
+ * 每个课堂一把锁，按增量操作（上下麦、开关摄像头/麦克风/屏幕共享、全员静音等）修改内存状态，
+ * 读请求直接读内存，修改由独立的刷新线程合并后写回meeting_info（write-behind）。
+ * 多实例部署时：
+ * 1. 写回时按meeting_info中的version做条件更新，其他实例已写入更新的版本时不会被覆盖，
+ *    而是以DB中的状态为基础重放本实例未写回的修改，下个刷新周期再写回；
+ * 2. 没有未写回修改的课堂，距上次与DB同步超过sync_interval_ms后，读写前先重新加载DB中的版本；
+ *    有长轮询等待的课堂由刷新线程按同样的间隔重新加载，DB中的版本更新时唤醒等待的请求，
+ *    因此其他实例的修改最多延迟 sync_interval_ms + flush_interval_ms 可见。
+ * 同一课堂的连麦操作路由到同一实例时冲突最少。
+ *
+ * @author chunlei.zcl
+ */
+@Component
+@Slf4j
+public class MeetingStateStore {
+
+    @Value("${biz.meeting_state.idle_seconds:7200}")
+    private long idleSeconds;
+
+    @Value("${biz.meeting_state.flush_interval_ms:500}")
+    private long flushIntervalMs;
+
+    /**
+     * 与DB重新同步的间隔，0表示每次访问都同步
+     */
+    @Value("${biz.meeting_state.sync_interval_ms:1000}")
+    private long syncIntervalMs;
+
+    /**
+     * 单个课堂同时等待的长轮询请求数上限
+     */
+    @Value("${biz.meeting_state.max_watchers_per_room:5000}")
+    private int maxWatchersPerRoom;
+
+    @Resource
+    private RoomInfoDao roomInfoDao;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private final ConcurrentMap<String, RoomState> rooms = new ConcurrentHashMap<>();
+
+    private Timer flushTimer;
+
+    private Counter flushFailedCounter;
+
+    private Counter flushConflictCounter;
+
+    private Counter syncChangedCounter;
+
+    /**
+     * 写回使用独立线程，不与其他定时任务（点播扫描、课堂清理等）共用调度线程，避免被慢任务拖延
+     */
+    private ScheduledExecutorService flushScheduler;
+
+    @PostConstruct
+    public void init() {
+
+        flushTimer = Timer.builder("meeting_state.flush").register(meterRegistry);
+        flushFailedCounter = Counter.builder("meeting_state.flush.failed").register(meterRegistry);
+        flushConflictCounter = Counter.builder("meeting_state.flush.conflict").register(meterRegistry);
+        syncChangedCounter = Counter.builder("meeting_state.sync.changed").register(meterRegistry);
+        Gauge.builder("meeting_state.rooms", rooms, Map::size).register(meterRegistry);
+        Gauge.builder("meeting_state.dirty", rooms, map -> map.values().stream().filter(RoomState::isDirty).count()).register(meterRegistry);
+
+        if (flushIntervalMs > 0) {
+            flushScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "meeting-state-flush");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flushScheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    flush();
+                } catch (Exception e) {
+                    log.error("MeetingStateStore flush error", e);
+                }
+            }, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 获取连麦状态的快照，课堂不存在时返回null
+     */
+    public MeetingMemberInfo.Members get(String classId) {
+
+        RoomState roomState = getOrLoad(classId);
+        if (roomState == null) {
+            return null;
+        }
+        synchronized (roomState) {
+            roomState.touch();
+            return roomState.snapshot();
+        }
+    }
+
+    /**
+     * 已加载到内存时返回最新的连麦状态JSON，否则返回null
+     */
+    public String getJsonIfLoaded(String classId) {
+
+        RoomState roomState = rooms.get(classId);
+        if (roomState == null) {
+            return null;
+        }
+        synchronized (roomState) {
+            return JSONObject.toJSONString(roomState.snapshot());
+        }
+    }
+
+    /**
+     * 整体更新，兼容原有的updateMeetingInfo接口：members不为空时替换全部连麦成员，其余参数为空时不修改
+     */
+    public MeetingMemberInfo.Members replace(String classId, List<MeetingMemberInfo> members, Boolean allMute, Boolean interactionAllowed) {
+
+        return apply(classId, roomState -> {
+            if (members != null) {
+                roomState.members.clear();
+                for (MeetingMemberInfo member : members) {
+                    if (member != null && member.getUserId() != null) {
+                        roomState.members.put(member.getUserId(), copyOf(member));
+                    }
+                }
+            }
+            if (allMute != null) {
+                roomState.allMute = allMute;
+            }
+            if (interactionAllowed != null) {
+                roomState.interactionAllowed = interactionAllowed;
+            }
+            return members != null || allMute != null || interactionAllowed != null;
+        });
+    }
+
+    /**
+     * 上麦，已在麦上时合并非空字段
+     */
+    public MeetingMemberInfo.Members addMember(String classId, MeetingMemberInfo member) {
+
+        return apply(classId, roomState -> {
+            MeetingMemberInfo existing = roomState.members.get(member.getUserId());
+            if (existing == null) {
+                roomState.members.put(member.getUserId(), copyOf(member));
+            } else {
+                merge(existing, member);
+            }
+            return true;
+        });
+    }
+
+    /**
+     * 下麦
+     */
+    public MeetingMemberInfo.Members removeMember(String classId, String userId) {
+
+        return apply(classId, roomState -> roomState.members.remove(userId) != null);
+    }
+
+    /**
+     * 修改麦上成员的状态（摄像头、麦克风、屏幕共享等），只修改非空字段，成员不在麦上时不修改
+     */
+    public MeetingMemberInfo.Members updateMember(String classId, MeetingMemberInfo member) {
+
+        return apply(classId, roomState -> {
+            MeetingMemberInfo existing = roomState.members.get(member.getUserId());
+            if (existing == null) {
+                return false;
+            }
+            merge(existing, member);
+            return true;
+        });
+    }
+
+    public MeetingMemberInfo.Members setAllMute(String classId, boolean allMute) {
+
+        return apply(classId, roomState -> {
+            roomState.allMute = allMute;
+            return true;
+        });
+    }
+
+    public MeetingMemberInfo.Members setInteractionAllowed(String classId, boolean interactionAllowed) {
+
+        return apply(classId, roomState -> {
+            roomState.interactionAllowed = interactionAllowed;
+            return true;
+        });
+    }
+
+    /**
+     * 将有修改的课堂写回DB，同一课堂多次修改只写一次；没有修改但有长轮询等待的课堂重新同步DB中的版本
+     */
+    public void flush() {
+
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, RoomState> entry : rooms.entrySet()) {
+            RoomState roomState = entry.getValue();
+            synchronized (roomState) {
+                if (!roomState.isDirty() && roomState.watchers.isEmpty()) {
+                    if (now - roomState.lastAccessAt > TimeUnit.SECONDS.toMillis(idleSeconds)) {
+                        roomState.evicted = true;
+                        rooms.remove(entry.getKey(), roomState);
+                    }
+                    continue;
+                }
+            }
+            try {
+                if (!write(entry.getKey(), roomState)) {
+                    // 其他实例的修改不会唤醒本实例等待中的长轮询，由刷新线程重新同步
+                    syncIfStale(entry.getKey(), roomState);
+                }
+            } catch (Exception e) {
+                flushFailedCounter.increment();
+                log.error(String.format("MeetingStateStore flush error. classId: %s", entry.getKey()), e);
+            }
+        }
+    }
+
+    /**
+     * 写回有修改的课堂，没有未写回的修改时返回false
+     */
+    private boolean write(String classId, RoomState roomState) {
+
+        String json;
+        long version;
+        long expectedVersion;
+        int pendingCount;
+        synchronized (roomState) {
+            if (!roomState.isDirty()) {
+                return false;
+            }
+            json = JSONObject.toJSONString(roomState.snapshot());
+            version = roomState.version;
+            expectedVersion = roomState.persistedVersion;
+            pendingCount = roomState.pending.size();
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (persist(classId, json, expectedVersion)) {
+                synchronized (roomState) {
+                    roomState.persistedVersion = Math.max(roomState.persistedVersion, version);
+                    roomState.pending.subList(0, Math.min(pendingCount, roomState.pending.size())).clear();
+                    roomState.syncedAt = System.currentTimeMillis();
+                }
+            } else {
+                // 其他实例已写入更新的版本，以DB中的状态为基础重放未写回的修改，下个周期再写回
+                flushConflictCounter.increment();
+                rebase(classId, roomState);
+            }
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        return true;
+    }
+
+    @PreDestroy
+    public void destroy() {
+
+        if (flushScheduler != null) {
+            flushScheduler.shutdown();
+            try {
+                flushScheduler.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+    }
+
+    /**
+     * 课堂被删除时移除内存状态，未写回的修改丢弃
+     */
+    public void remove(String classId) {
+
+        RoomState roomState = rooms.remove(classId);
+        if (roomState != null) {
+            synchronized (roomState) {
+                roomState.evicted = true;
+            }
+        }
+    }
+
+    /**
+     * 以DB中的状态为基础，重放本实例尚未写回的修改。课堂已不存在时移除内存状态
+     */
+    private void rebase(String classId, RoomState roomState) {
+
+        MeetingMemberInfo.Members persisted = load(classId);
+        if (persisted == null) {
+            remove(classId);
+            return;
+        }
+        MeetingMemberInfo.Members current;
+        List<Consumer<MeetingMemberInfo.Members>> watchers;
+        synchronized (roomState) {
+            if (roomState.evicted) {
+                return;
+            }
+            long localVersion = roomState.version;
+            roomState.reset(persisted);
+            for (Mutation mutation : roomState.pending) {
+                mutation.apply(roomState);
+            }
+            // 版本号严格递增，保证长轮询能感知到变化；有未写回的修改时保持dirty
+            roomState.version = Math.max(localVersion, roomState.persistedVersion) + (roomState.pending.isEmpty() ? 0 : 1);
+            roomState.syncedAt = System.currentTimeMillis();
+            current = roomState.snapshot();
+            watchers = roomState.drainWatchers();
+        }
+        notifyWatchers(classId, current, watchers);
+    }
+
+    /**
+     * 没有未写回的修改且距上次同步超过sync_interval_ms时，重新加载DB中的版本，DB中的版本更新时以DB为准
+     */
+    private void syncIfStale(String classId, RoomState roomState) {
+
+        long now = System.currentTimeMillis();
+        synchronized (roomState) {
+            if (roomState.evicted || roomState.isDirty() || now - roomState.syncedAt < syncIntervalMs) {
+                return;
+            }
+            // 同一课堂并发访问时只有一个请求去加载
+            roomState.syncedAt = now;
+        }
+
+        MeetingMemberInfo.Members persisted = load(classId);
+        if (persisted == null) {
+            remove(classId);
+            return;
+        }
+        long persistedVersion = persisted.getVersion() == null ? 0 : persisted.getVersion();
+        MeetingMemberInfo.Members current;
+        List<Consumer<MeetingMemberInfo.Members>> watchers;
+        synchronized (roomState) {
+            if (roomState.evicted || roomState.isDirty() || persistedVersion <= roomState.version) {
+                return;
+            }
+            roomState.reset(persisted);
+            current = roomState.snapshot();
+            watchers = roomState.drainWatchers();
+        }
+        syncChangedCounter.increment();
+        notifyWatchers(classId, current, watchers);
+    }
+
+    private void notifyWatchers(String classId, MeetingMemberInfo.Members current, List<Consumer<MeetingMemberInfo.Members>> watchers) {
+
+        for (Consumer<MeetingMemberInfo.Members> watcher : watchers) {
+            try {
+                watcher.accept(current);
+            } catch (Exception e) {
+                log.error(String.format("MeetingStateStore watcher error. classId: %s", classId), e);
+            }
+        }
+    }
+
+    /**
+     * 长轮询：当前版本与knownVersion不同时立即以最新状态回调watcher，否则在下次修改时回调。
+     * 返回Watch.NOT_FOUND表示课堂不存在，Watch.REJECTED表示该课堂等待的请求数已达上限
+     */
+    public Watch watch(String classId, long knownVersion, Consumer<MeetingMemberInfo.Members> watcher) {
+
+        while (true) {
+            RoomState roomState = getOrLoad(classId);
+            if (roomState == null) {
+                return Watch.NOT_FOUND;
+            }
+            MeetingMemberInfo.Members current;
+            synchronized (roomState) {
+                if (roomState.evicted) {
+                    continue;
+                }
+                roomState.touch();
+                if (roomState.version == knownVersion) {
+                    if (roomState.watchers.size() >= maxWatchersPerRoom) {
+                        return Watch.REJECTED;
+                    }
+                    roomState.watchers.add(watcher);
+                    return Watch.WAITING;
+                }
+                current = roomState.snapshot();
+            }
+            watcher.accept(current);
+            return Watch.CHANGED;
+        }
+    }
+
+    /**
+     * 长轮询超时或连接断开时移除watcher
+     */
+    public void unwatch(String classId, Consumer<MeetingMemberInfo.Members> watcher) {
+
+        RoomState roomState = rooms.get(classId);
+        if (roomState != null) {
+            synchronized (roomState) {
+                roomState.watchers.remove(watcher);
+            }
+        }
+    }
+
+    private MeetingMemberInfo.Members apply(String classId, Mutation mutation) {
+
+        while (true) {
+            RoomState roomState = getOrLoad(classId);
+            if (roomState == null) {
+                return null;
+            }
+            MeetingMemberInfo.Members current;
+            List<Consumer<MeetingMemberInfo.Members>> watchers;
+            synchronized (roomState) {
+                // 已被清理的状态不能再修改，重新加载
+                if (roomState.evicted) {
+                    continue;
+                }
+                roomState.touch();
+                if (!mutation.apply(roomState)) {
+                    return roomState.snapshot();
+                }
+                roomState.version++;
+                // 保留到写回成功，写回冲突时在DB的状态上重放
+                roomState.pending.add(mutation);
+                current = roomState.snapshot();
+                watchers = roomState.drainWatchers();
+            }
+            // 在锁外通知等待中的长轮询
+            notifyWatchers(classId, current, watchers);
+            return current;
+        }
+    }
+
+    private RoomState getOrLoad(String classId) {
+
+        RoomState roomState = rooms.get(classId);
+        if (roomState != null) {
+            syncIfStale(classId, roomState);
+            return roomState;
+        }
+
+        // 课堂不存在时不创建状态
+        MeetingMemberInfo.Members persisted = load(classId);
+        if (persisted == null) {
+            return null;
+        }
+        RoomState loaded = new RoomState(persisted);
+        RoomState existing = rooms.putIfAbsent(classId, loaded);
+        return existing == null ? loaded : existing;
+    }
+
+    /**
+     * 从DB加载连麦状态，课堂不存在时返回null
+     */
+    protected MeetingMemberInfo.Members load(String classId) {
+
+        ClassInfoEntity classInfoEntity = roomInfoDao.selectOne(Wrappers.<ClassInfoEntity>lambdaQuery()
+                .select(ClassInfoEntity::getId, ClassInfoEntity::getMeetingInfo)
+                .eq(ClassInfoEntity::getId, classId));
+        if (classInfoEntity == null) {
+            return null;
+        }
+        MeetingMemberInfo.Members members;
+        try {
+            members = JSONObject.parseObject(classInfoEntity.getMeetingInfo(), MeetingMemberInfo.Members.class);
+        } catch (JSONException e) {
+            // 旧数据中非JSON的meeting_info按空状态处理，下次写回时覆盖
+            log.warn("MeetingStateStore invalid meeting_info. classId:{}, meetingInfo:{}", classId, classInfoEntity.getMeetingInfo());
+            members = null;
+        }
+        return members == null ? new MeetingMemberInfo.Members() : members;
+    }
+
+    /**
+     * DB中的版本仍为expectedVersion时写入，返回是否写入成功。
+     * 旧数据中的meeting_info可能为空串或非JSON，按版本0处理，避免JSON_EXTRACT报错导致该课堂一直无法写回
+     */
+    protected boolean persist(String classId, String meetingInfo, long expectedVersion) {
+
+        ClassInfoEntity classInfoEntity = new ClassInfoEntity();
+        classInfoEntity.setMeetingInfo(meetingInfo);
+        classInfoEntity.setUpdatedAt(new Date());
+        return roomInfoDao.update(classInfoEntity, Wrappers.<ClassInfoEntity>lambdaUpdate()
+                .eq(ClassInfoEntity::getId, classId)
+                .apply("IF(JSON_VALID(meeting_info), IFNULL(JSON_EXTRACT(meeting_info, '$.version'), 0), 0) = {0}", expectedVersion)) > 0;
+    }
+
+    private static MeetingMemberInfo copyOf(MeetingMemberInfo member) {
+
+        MeetingMemberInfo copy = new MeetingMemberInfo();
+        copy.setUserId(member.getUserId());
+        merge(copy, member);
+        return copy;
+    }
+
+    /**
+     * 将source中的非空字段合并到target
+     */
+    private static void merge(MeetingMemberInfo target, MeetingMemberInfo source) {
+
+        if (source.getUserNick() != null) {
+            target.setUserNick(source.getUserNick());
+        }
+        if (source.getUserAvatar() != null) {
+            target.setUserAvatar(source.getUserAvatar());
+        }
+        if (source.getCameraOpened() != null) {
+            target.setCameraOpened(source.getCameraOpened());
+        }
+        if (source.getMicOpened() != null) {
+            target.setMicOpened(source.getMicOpened());
+        }
+        if (source.getRtcPullUrl() != null) {
+            target.setRtcPullUrl(source.getRtcPullUrl());
+        }
+        if (source.getAudioPublishing() != null) {
+            target.setAudioPublishing(source.getAudioPublishing());
+        }
+        if (source.getVideoPublishing() != null) {
+            target.setVideoPublishing(source.getVideoPublishing());
+        }
+        if (source.getScreenPublishing() != null) {
+            target.setScreenPublishing(source.getScreenPublishing());
+        }
+        if (source.getScreenShare() != null) {
+            target.setScreenShare(source.getScreenShare());
+        }
+        if (source.getMutilMedia() != null) {
+            target.setMutilMedia(source.getMutilMedia());
+        }
+        if (source.getControlledCameraOpened() != null) {
+            target.setControlledCameraOpened(source.getControlledCameraOpened());
+        }
+        if (source.getControlledMicOpened() != null) {
+            target.setControlledMicOpened(source.getControlledMicOpened());
+        }
+    }
+
+    /**
+     * 长轮询的注册结果
+     */
+    public enum Watch {
+
+        /**
+         * 版本已变化，watcher已被回调
+         */
+        CHANGED,
+
+        /**
+         * 版本未变化，等待下次修改
+         */
+        WAITING,
+
+        NOT_FOUND,
+
+        REJECTED
+    }
+
+    private interface Mutation {
+
+        /**
+         * 在课堂锁内执行，返回状态是否发生变化
+         */
+        boolean apply(RoomState roomState);
+    }
+
+    /**
+     * 单个课堂的连麦状态，所有访问都需持有该对象的锁
+     */
+    private static final class RoomState {
+
+        private final LinkedHashMap<String, MeetingMemberInfo> members = new LinkedHashMap<>();
+
+        private Boolean allMute;
+
+        private Boolean interactionAllowed;
+
+        private long version;
+
+        private long persistedVersion;
+
+        private long lastAccessAt = System.currentTimeMillis();
+
+        /**
+         * 上次与DB同步（加载、写回或重新加载）的时间
+         */
+        private long syncedAt = System.currentTimeMillis();
+
+        /**
+         * 尚未写回DB的修改
+         */
+        private final List<Mutation> pending = new ArrayList<>();
+
+        private boolean evicted;
+
+        private final Set<Consumer<MeetingMemberInfo.Members>> watchers = new LinkedHashSet<>();
+
+        RoomState(MeetingMemberInfo.Members persisted) {
+            reset(persisted);
+        }
+
+        /**
+         * 以DB中的状态替换内存状态，不修改pending
+         */
+        void reset(MeetingMemberInfo.Members persisted) {
+
+            members.clear();
+            if (persisted.getMembers() != null) {
+                for (MeetingMemberInfo member : persisted.getMembers()) {
+                    if (member != null && member.getUserId() != null) {
+                        members.put(member.getUserId(), member);
+                    }
+                }
+            }
+            allMute = persisted.getAllMute();
+            interactionAllowed = persisted.getInteractionAllowed();
+            // 版本号随状态一起持久化，重新加载后继续递增
+            version = persisted.getVersion() == null ? 0 : persisted.getVersion();
+            persistedVersion = version;
+        }
+
+        List<Consumer<MeetingMemberInfo.Members>> drainWatchers() {
+
+            if (watchers.isEmpty()) {
+                return Collections.emptyList();
+            }
+            List<Consumer<MeetingMemberInfo.Members>> drained = new ArrayList<>(watchers);
+            watchers.clear();
+            return drained;
+        }
+
+        boolean isDirty() {
+            return version > persistedVersion;
+        }
+
+        void touch() {
+            lastAccessAt = System.currentTimeMillis();
+        }
+
+        MeetingMemberInfo.Members snapshot() {
+
+            MeetingMemberInfo.Members snapshot = new MeetingMemberInfo.Members();
+            List<MeetingMemberInfo> copies = new ArrayList<>(members.size());
+            for (MeetingMemberInfo member : members.values()) {
+                copies.add(copyOf(member));
+            }
+            snapshot.setMembers(copies);
+            snapshot.setAllMute(allMute);
+            snapshot.setInteractionAllowed(interactionAllowed);
+            snapshot.setVersion(version);
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.aliyuncs.aui.common.concurrent;
+
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * 熔断器，按最近windowSize次调用的失败率判断：
+ * CLOSED时调用次数不少于minimumCalls且失败率达到failureRateThreshold%后进入OPEN；
+ * OPEN持续openMillis后进入HALF_OPEN，只放行halfOpenCalls次探测调用，全部成功则回到CLOSED，任一失败重新OPEN。
+ * 调用方先tryAcquire，获取成功后必须调用onResult上报结果。
+ *
+ * @author chunlei.zcl
+ */
+public class CircuitBreaker {
+
+    public enum State {
+
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int minimumCalls;
+
+    private final int failureRateThreshold;
+
+    private final long openMillis;
+
+    private final int halfOpenCalls;
+
+    private final LongSupplier clock;
+
+    private final Consumer<State> onTransition;
+
+    /**
+     * 最近windowSize次调用的结果，true为失败
+     */
+    private final boolean[] window;
+
+    private int index;
+
+    private int calls;
+
+    private int failures;
+
+    private State state = State.CLOSED;
+
+    private long openedAt;
+
+    private int halfOpenPermits;
+
+    private int halfOpenSuccesses;
+
+    public CircuitBreaker(int windowSize, int minimumCalls, int failureRateThreshold, long openMillis, int halfOpenCalls,
+                          LongSupplier clock, Consumer<State> onTransition) {
+
+        this.window = new boolean[windowSize];
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openMillis = openMillis;
+        this.halfOpenCalls = halfOpenCalls;
+        this.clock = clock;
+        this.onTransition = onTransition;
+    }
+
+    public synchronized boolean tryAcquire() {
+
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (clock.getAsLong() - openedAt < openMillis) {
+                    return false;
+                }
+                halfOpenPermits = halfOpenCalls;
+                halfOpenSuccesses = 0;
+                transit(State.HALF_OPEN);
+                // fall through
+            default:
+                if (halfOpenPermits <= 0) {
+                    return false;
+                }
+                halfOpenPermits--;
+                return true;
+        }
+    }
+
+    public synchronized void onResult(boolean success) {
+
+        if (state == State.HALF_OPEN) {
+            if (!success) {
+                open();
+            } else if (++halfOpenSuccesses >= halfOpenCalls) {
+                reset();
+                transit(State.CLOSED);
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            // 进入OPEN之前已放行的调用，结果忽略
+            return;
+        }
+
+        if (calls == window.length) {
+            if (window[index]) {
+                failures--;
+            }
+        } else {
+            calls++;
+        }
+        window[index] = !success;
+        if (!success) {
+            failures++;
+        }
+        index = (index + 1) % window.length;
+
+        if (calls >= minimumCalls && failures * 100 >= failureRateThreshold * calls) {
+            open();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void open() {
+
+        reset();
+        openedAt = clock.getAsLong();
+        transit(State.OPEN);
+    }
+
+    private void reset() {
+
+        index = 0;
+        calls = 0;
+        failures = 0;
+    }
+
+    private void transit(State target) {
+
+        state = target;
+        if (onTransition != null) {
+            onTransition.accept(target);
+        }
+    }
+}
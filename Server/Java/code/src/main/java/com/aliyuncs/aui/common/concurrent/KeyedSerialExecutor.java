@@ -0,0 +1,109 @@
+package com.aliyuncs.aui.common.concurrent;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 按key串行执行：同一个key的任务按提交顺序依次执行，不同key的任务在共享线程池中并行。
+ * 每个key待执行的任务数超过maxPendingPerKey时拒绝提交；一个key连续执行batchSize个任务后让出线程，避免占满线程池。
+ *
+ * @author chunlei.zcl
+ */
+@Slf4j
+public class KeyedSerialExecutor<K> {
+
+    private final Executor executor;
+
+    private final int maxPendingPerKey;
+
+    private final int batchSize;
+
+    /**
+     * key -> 待执行的任务，队首为正在执行的任务。key存在即表示已有线程在执行该key的任务
+     */
+    private final ConcurrentMap<K, Queue<Runnable>> queues = new ConcurrentHashMap<>();
+
+    public KeyedSerialExecutor(Executor executor, int maxPendingPerKey, int batchSize) {
+
+        this.executor = executor;
+        this.maxPendingPerKey = maxPendingPerKey;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * 提交任务，该key待执行的任务过多或线程池已满时抛出RejectedExecutionException
+     */
+    public void execute(K key, Runnable task) {
+
+        boolean[] first = {false};
+        boolean[] full = {false};
+        queues.compute(key, (k, queue) -> {
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                first[0] = true;
+            } else if (queue.size() >= maxPendingPerKey) {
+                full[0] = true;
+                return queue;
+            }
+            queue.add(task);
+            return queue;
+        });
+        if (full[0]) {
+            throw new RejectedExecutionException("too many pending tasks for key: " + key);
+        }
+        if (first[0]) {
+            try {
+                executor.execute(() -> drain(key));
+            } catch (RejectedExecutionException e) {
+                queues.remove(key);
+                throw e;
+            }
+        }
+    }
+
+    private void drain(K key) {
+
+        Runnable[] head = {null};
+        queues.computeIfPresent(key, (k, q) -> {
+            head[0] = q.peek();
+            return q;
+        });
+        Runnable task = head[0];
+        for (int executed = 0; task != null; executed++) {
+            if (executed >= batchSize && reschedule(key)) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (Exception e) {
+                log.error(String.format("KeyedSerialExecutor task error. key: %s", key), e);
+            }
+            Runnable[] next = {null};
+            queues.computeIfPresent(key, (k, q) -> {
+                q.poll();
+                next[0] = q.peek();
+                return next[0] == null ? null : q;
+            });
+            task = next[0];
+        }
+    }
+
+    /**
+     * 重新提交到线程池尾部，线程池已满时返回false，由当前线程继续执行
+     */
+    private boolean reschedule(K key) {
+
+        try {
+            executor.execute(() -> drain(key));
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+}
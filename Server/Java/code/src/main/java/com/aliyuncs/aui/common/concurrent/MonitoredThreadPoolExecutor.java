@@ -0,0 +1,65 @@
+package com.aliyuncs.aui.common.concurrent;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+import java.util.Collections;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 有界线程池，并上报监控指标：
+ * executor.active/executor.queued/executor.pool.size等（ExecutorServiceMetrics），
+ * executor.task.wait（排队耗时）、executor.task.execution（执行耗时）、executor.rejected（拒绝次数）。
+ * 队列满时抛出RejectedExecutionException，由调用方决定降级或返回繁忙。
+ *
+ * @author chunlei.zcl
+ */
+public class MonitoredThreadPoolExecutor extends ThreadPoolExecutor {
+
+    private final Timer waitTimer;
+
+    private final Timer executionTimer;
+
+    private final Counter rejectedCounter;
+
+    public MonitoredThreadPoolExecutor(String name, int poolSize, int queueCapacity, MeterRegistry meterRegistry) {
+
+        super(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new ThreadFactoryBuilder().setNameFormat(name + "-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.AbortPolicy());
+        allowCoreThreadTimeOut(true);
+
+        this.waitTimer = Timer.builder("executor.task.wait").tag("name", name).register(meterRegistry);
+        this.executionTimer = Timer.builder("executor.task.execution").tag("name", name).register(meterRegistry);
+        this.rejectedCounter = Counter.builder("executor.rejected").tag("name", name).register(meterRegistry);
+        new ExecutorServiceMetrics(this, name, Collections.<Tag>emptyList()).bindTo(meterRegistry);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+
+        long submitted = System.nanoTime();
+        try {
+            super.execute(() -> {
+                long started = System.nanoTime();
+                waitTimer.record(started - submitted, TimeUnit.NANOSECONDS);
+                try {
+                    command.run();
+                } finally {
+                    executionTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw e;
+        }
+    }
+}
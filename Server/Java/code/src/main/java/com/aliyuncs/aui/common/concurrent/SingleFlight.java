@@ -0,0 +1,78 @@
+package com.aliyuncs.aui.common.concurrent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * 请求合并：同一个key的并发调用只有第一个会真正执行loader，其余调用等待并共享其结果（或异常）。
+ * 只合并同时在途的调用，不缓存结果。
+ *
+ * @author chunlei.zcl
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter executedCounter;
+
+    private final Counter collapsedCounter;
+
+    public SingleFlight(String name, MeterRegistry meterRegistry) {
+
+        this.executedCounter = Counter.builder("single_flight.calls")
+                .tag("name", name)
+                .tag("result", "executed")
+                .register(meterRegistry);
+        this.collapsedCounter = Counter.builder("single_flight.calls")
+                .tag("name", name)
+                .tag("result", "collapsed")
+                .register(meterRegistry);
+    }
+
+    public V execute(K key, Supplier<V> loader) {
+
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            collapsedCounter.increment();
+            return await(existing);
+        }
+
+        executedCounter.increment();
+        try {
+            V value = loader.get();
+            future.complete(value);
+            return value;
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private V await(CompletableFuture<V> future) {
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("SingleFlight interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.aliyuncs.aui.common.concurrent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 预创建资源池：后台按目标数量补充资源，使用方租用后资源即归使用方所有，不再归还。
+ * 先创建的资源先被租用，超过存活时间未被租用的资源会被销毁。上报监控指标：
+ * warm_pool.depth（池中可用数量）、warm_pool.lease（租用次数，result=hit/miss）、
+ * warm_pool.refill（补充次数，result=success/failed）、warm_pool.expired（过期销毁数）。
+ *
+ * @author chunlei.zcl
+ */
+@Slf4j
+public class WarmPool<T> {
+
+    private final String name;
+
+    private final int size;
+
+    private final long ttlMillis;
+
+    private final int refillBatch;
+
+    private final Supplier<T> creator;
+
+    private final Consumer<T> destroyer;
+
+    private final Executor executor;
+
+    private final ConcurrentLinkedQueue<Entry<T>> idle = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger depth = new AtomicInteger();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final Counter hitCounter;
+
+    private final Counter missCounter;
+
+    private final Counter refilledCounter;
+
+    private final Counter refillFailedCounter;
+
+    private final Counter expiredCounter;
+
+    /**
+     * @param creator   创建一个资源，失败时返回null
+     * @param destroyer 销毁过期的资源
+     * @param executor  创建、销毁资源使用的线程池
+     */
+    public WarmPool(String name, int size, long ttlSeconds, int refillBatch, Supplier<T> creator, Consumer<T> destroyer,
+                    Executor executor, MeterRegistry meterRegistry) {
+
+        this.name = name;
+        this.size = size;
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        this.refillBatch = refillBatch;
+        this.creator = creator;
+        this.destroyer = destroyer;
+        this.executor = executor;
+
+        Gauge.builder("warm_pool.depth", depth, AtomicInteger::get).tag("name", name).register(meterRegistry);
+        this.hitCounter = Counter.builder("warm_pool.lease").tag("name", name).tag("result", "hit").register(meterRegistry);
+        this.missCounter = Counter.builder("warm_pool.lease").tag("name", name).tag("result", "miss").register(meterRegistry);
+        this.refilledCounter = Counter.builder("warm_pool.refill").tag("name", name).tag("result", "success").register(meterRegistry);
+        this.refillFailedCounter = Counter.builder("warm_pool.refill").tag("name", name).tag("result", "failed").register(meterRegistry);
+        this.expiredCounter = Counter.builder("warm_pool.expired").tag("name", name).register(meterRegistry);
+    }
+
+    /**
+     * 租用一个资源，池为空时返回null，由调用方实时创建
+     */
+    public T lease() {
+
+        long now = System.currentTimeMillis();
+        Entry<T> entry;
+        while ((entry = idle.poll()) != null) {
+            depth.decrementAndGet();
+            if (entry.isExpired(now, ttlMillis)) {
+                expire(entry);
+                continue;
+            }
+            hitCounter.increment();
+            return entry.resource;
+        }
+        missCounter.increment();
+        return null;
+    }
+
+    /**
+     * 销毁过期资源，并按缺口补充资源，每次最多提交refillBatch个创建任务
+     */
+    public void refill() {
+
+        long now = System.currentTimeMillis();
+        Entry<T> head;
+        while ((head = idle.peek()) != null && head.isExpired(now, ttlMillis)) {
+            if (idle.remove(head)) {
+                depth.decrementAndGet();
+                expire(head);
+            }
+        }
+
+        int deficit = Math.min(size - depth.get() - inFlight.get(), refillBatch);
+        for (int i = 0; i < deficit; i++) {
+            inFlight.incrementAndGet();
+            try {
+                executor.execute(this::create);
+            } catch (RejectedExecutionException e) {
+                inFlight.decrementAndGet();
+                break;
+            }
+        }
+    }
+
+    /**
+     * 销毁池中全部资源
+     */
+    public void clear() {
+
+        Entry<T> entry;
+        while ((entry = idle.poll()) != null) {
+            depth.decrementAndGet();
+            destroy(entry.resource);
+        }
+    }
+
+    private void create() {
+
+        try {
+            T resource = creator.get();
+            if (resource == null) {
+                refillFailedCounter.increment();
+                return;
+            }
+            idle.offer(new Entry<>(resource, System.currentTimeMillis()));
+            depth.incrementAndGet();
+            refilledCounter.increment();
+        } catch (Exception e) {
+            refillFailedCounter.increment();
+            log.error(String.format("WarmPool create error. name: %s", name), e);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private void expire(Entry<T> entry) {
+
+        expiredCounter.increment();
+        try {
+            executor.execute(() -> destroy(entry.resource));
+        } catch (RejectedExecutionException e) {
+            log.warn("WarmPool destroy skipped, executor is full. name:{}", name);
+        }
+    }
+
+    private void destroy(T resource) {
+
+        try {
+            destroyer.accept(resource);
+        } catch (Exception e) {
+            log.error(String.format("WarmPool destroy error. name: %s", name), e);
+        }
+    }
+
+    private static class Entry<T> {
+
+        private final T resource;
+
+        private final long createdAt;
+
+        Entry(T resource, long createdAt) {
+            this.resource = resource;
+            this.createdAt = createdAt;
+        }
+
+        boolean isExpired(long now, long ttlMillis) {
+            return now - createdAt > ttlMillis;
+        }
+    }
+}
@@ -7,6 +7,7 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * 异常处理器
@@ -36,4 +37,13 @@ public class BizExceptionHandler {
 
 		return Result.error(map);
 	}
+
+	/**
+	 * 线程池或并发数已满，返回服务繁忙
+	 */
+	@ExceptionHandler(RejectedExecutionException.class)
+	public Result handleRejectedExecutionException(RejectedExecutionException e){
+		log.warn("RejectedExecutionException: {}", e.getMessage());
+		return Result.overload();
+	}
 }
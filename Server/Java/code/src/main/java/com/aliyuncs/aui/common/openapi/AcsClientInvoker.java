@@ -0,0 +1,165 @@
+package com.aliyuncs.aui.common.openapi;
+
+import com.aliyuncs.AcsRequest;
+import com.aliyuncs.AcsResponse;
+import com.aliyuncs.CommonRequest;
+import com.aliyuncs.CommonResponse;
+import com.aliyuncs.DefaultAcsClient;
+import com.aliyuncs.IAcsClient;
+import com.aliyuncs.aui.config.OpenApiProperties;
+import com.aliyuncs.exceptions.ClientException;
+import com.aliyuncs.exceptions.ServerException;
+import com.aliyuncs.http.HttpClientConfig;
+import com.aliyuncs.profile.DefaultProfile;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 阿里云OpenAPI调用入口。每个接口（Action）有独立的并发上限，慢接口（如SearchMedia）占满时不影响其他接口；
+ * 达到上限且等待acquire_timeout_ms后仍无空闲时直接抛出ClientException（ErrCode为SDK.ConcurrencyLimit）。
+ * 上报监控指标：openapi.request（按action、result统计耗时及次数，result=success/server_error/client_error/throttled）、
+ * openapi.in_flight（各接口正在执行的请求数）。
+ *
+ * @author chunlei.zcl
+ */
+@Component
+@Slf4j
+public class AcsClientInvoker {
+
+    public static final String CONCURRENCY_LIMIT_ERROR = "SDK.ConcurrencyLimit";
+
+    @Resource
+    private OpenApiProperties openApiProperties;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private IAcsClient client;
+
+    private Map<String, OpenApiProperties.Action> actions;
+
+    private final ConcurrentMap<String, Semaphore> permits = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+
+        HttpClientConfig httpClientConfig = HttpClientConfig.getDefault();
+        httpClientConfig.setConnectionTimeoutMillis(openApiProperties.getConnectTimeoutMs());
+        httpClientConfig.setReadTimeoutMillis(openApiProperties.getReadTimeoutMs());
+        httpClientConfig.setMaxRequests(openApiProperties.getMaxRequests());
+        httpClientConfig.setMaxRequestsPerHost(openApiProperties.getMaxRequestsPerHost());
+        httpClientConfig.setMaxIdleConnections(openApiProperties.getMaxIdleConnections());
+        httpClientConfig.setKeepAliveDurationMillis(openApiProperties.getKeepAliveMs());
+
+        DefaultProfile profile = DefaultProfile.getProfile(openApiProperties.getRegionId(), openApiProperties.getAccess().getKey(),
+                openApiProperties.getAccess().getSecret());
+        profile.setHttpClientConfig(httpClientConfig);
+        client = new DefaultAcsClient(profile);
+
+        // 配置中的接口名不区分大小写
+        actions = new ConcurrentHashMap<>();
+        openApiProperties.getActions().forEach((name, action) -> actions.put(name.toLowerCase(), action));
+    }
+
+    @PreDestroy
+    public void destroy() {
+
+        client.shutdown();
+    }
+
+    public <T extends AcsResponse> T getAcsResponse(AcsRequest<T> request) throws ClientException {
+
+        String action = request.getSysActionName();
+        OpenApiProperties.Action config = actions.get(action.toLowerCase());
+        if (config != null) {
+            if (config.getConnectTimeoutMs() != null && request.getSysConnectTimeout() == null) {
+                request.setSysConnectTimeout(config.getConnectTimeoutMs());
+            }
+            if (config.getReadTimeoutMs() != null && request.getSysReadTimeout() == null) {
+                request.setSysReadTimeout(config.getReadTimeoutMs());
+            }
+        }
+        return invoke(action, config, () -> client.getAcsResponse(request));
+    }
+
+    public CommonResponse getCommonResponse(CommonRequest request) throws ClientException {
+
+        String action = request.getSysAction();
+        OpenApiProperties.Action config = actions.get(action.toLowerCase());
+        if (config != null) {
+            if (config.getConnectTimeoutMs() != null && request.getSysConnectTimeout() == null) {
+                request.setSysConnectTimeout(config.getConnectTimeoutMs());
+            }
+            if (config.getReadTimeoutMs() != null && request.getSysReadTimeout() == null) {
+                request.setSysReadTimeout(config.getReadTimeoutMs());
+            }
+        }
+        return invoke(action, config, () -> client.getCommonResponse(request));
+    }
+
+    private <R> R invoke(String action, OpenApiProperties.Action config, Call<R> call) throws ClientException {
+
+        Semaphore semaphore = permits.computeIfAbsent(action, key -> newSemaphore(key, config));
+        boolean acquired;
+        try {
+            acquired = semaphore.tryAcquire(openApiProperties.getAcquireTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            record(action, "throttled", 0);
+            log.warn("OpenAPI request throttled, too many concurrent requests. action:{}", action);
+            throw new ClientException(CONCURRENCY_LIMIT_ERROR, "too many concurrent requests: " + action);
+        }
+
+        long start = System.nanoTime();
+        String result = "client_error";
+        try {
+            R response = call.execute();
+            result = "success";
+            return response;
+        } catch (ServerException e) {
+            result = "server_error";
+            throw e;
+        } finally {
+            semaphore.release();
+            record(action, result, System.nanoTime() - start);
+        }
+    }
+
+    private Semaphore newSemaphore(String action, OpenApiProperties.Action config) {
+
+        int maxConcurrency = config != null && config.getMaxConcurrency() != null ? config.getMaxConcurrency()
+                : openApiProperties.getDefaultMaxConcurrency();
+        Semaphore semaphore = new Semaphore(maxConcurrency);
+        Gauge.builder("openapi.in_flight", semaphore, s -> maxConcurrency - s.availablePermits())
+                .tag("action", action)
+                .register(meterRegistry);
+        return semaphore;
+    }
+
+    private void record(String action, String result, long nanos) {
+
+        Timer.builder("openapi.request").tag("action", action).tag("result", result).register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @FunctionalInterface
+    private interface Call<R> {
+
+        R execute() throws ClientException;
+    }
+}
@@ -0,0 +1,161 @@
+package com.aliyuncs.aui.common.resilience;
+
+import com.aliyuncs.aui.common.concurrent.CircuitBreaker;
+import com.aliyuncs.aui.config.ResilienceProperties;
+import com.google.common.util.concurrent.RateLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 三方服务调用保护：每个(服务商, 接口)一个令牌桶限流器和一个熔断器。限流或熔断时不调用三方接口，直接返回fallback。
+ * 三方服务的实现类都不抛异常、失败时返回null/false等，由调用方通过success判断本次调用是否成功；耗时超过slow_call_ms的调用也按失败统计。
+ * 监控指标：vendor.call（result=success/failure/rate_limited/circuit_open）、
+ * vendor.circuit_breaker.state（0:CLOSED，1:OPEN，2:HALF_OPEN）、vendor.circuit_breaker.transition（state为切换后的状态）。
+ *
+ * @author chunlei.zcl
+ */
+@Component
+@Slf4j
+public class VendorGuard {
+
+    public static final String ALIYUN = "aliyun";
+
+    public static final String RONG_CLOUD = "rong_cloud";
+
+    public static final String BOARD = "board";
+
+    @Resource
+    private ResilienceProperties resilienceProperties;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private final ConcurrentMap<String, Guard> guards = new ConcurrentHashMap<>();
+
+    public <T> T call(String vendor, String action, Supplier<T> call, Predicate<T> success, Supplier<T> fallback) {
+
+        if (!resilienceProperties.isEnabled()) {
+            return call.get();
+        }
+
+        Guard guard = guards.computeIfAbsent(vendor + ":" + action, key -> newGuard(vendor, action));
+        if (guard.rateLimiter != null && !guard.rateLimiter.tryAcquire()) {
+            count(vendor, action, "rate_limited");
+            return fallback.get();
+        }
+        if (!guard.circuitBreaker.tryAcquire()) {
+            count(vendor, action, "circuit_open");
+            return fallback.get();
+        }
+
+        long start = System.currentTimeMillis();
+        boolean succeeded = false;
+        try {
+            T result = call.get();
+            succeeded = success.test(result) && System.currentTimeMillis() - start <= guard.slowCallMs;
+            return result;
+        } finally {
+            guard.circuitBreaker.onResult(succeeded);
+            count(vendor, action, succeeded ? "success" : "failure");
+        }
+    }
+
+    /**
+     * 返回值为null表示失败，限流或熔断时返回null
+     */
+    public <T> T call(String vendor, String action, Supplier<T> call) {
+        return call(vendor, action, call, Objects::nonNull, () -> null);
+    }
+
+    /**
+     * 返回值为false表示失败，限流或熔断时返回false
+     */
+    public boolean run(String vendor, String action, Supplier<Boolean> call) {
+        return call(vendor, action, call, Boolean.TRUE::equals, () -> false);
+    }
+
+    private Guard newGuard(String vendor, String action) {
+
+        ResilienceProperties.Vendor vendorPolicy = find(resilienceProperties.getVendors(), vendor);
+        ResilienceProperties.Policy actionPolicy = vendorPolicy == null ? null : find(vendorPolicy.getActions(), action);
+        ResilienceProperties.Policy[] policies = {actionPolicy, vendorPolicy, resilienceProperties.getDefaults()};
+
+        double permitsPerSecond = pick(policies, ResilienceProperties.Policy::getPermitsPerSecond);
+        CircuitBreaker circuitBreaker = new CircuitBreaker(
+                pick(policies, ResilienceProperties.Policy::getWindowSize),
+                pick(policies, ResilienceProperties.Policy::getMinimumCalls),
+                pick(policies, ResilienceProperties.Policy::getFailureRateThreshold),
+                pick(policies, ResilienceProperties.Policy::getOpenMs),
+                pick(policies, ResilienceProperties.Policy::getHalfOpenCalls),
+                System::currentTimeMillis,
+                state -> {
+                    log.warn("Circuit breaker state changed. vendor:{}, action:{}, state:{}", vendor, action, state);
+                    Counter.builder("vendor.circuit_breaker.transition").tag("vendor", vendor).tag("action", action)
+                            .tag("state", state.name()).register(meterRegistry).increment();
+                });
+        Gauge.builder("vendor.circuit_breaker.state", circuitBreaker, b -> b.getState().ordinal())
+                .tag("vendor", vendor)
+                .tag("action", action)
+                .register(meterRegistry);
+
+        return new Guard(permitsPerSecond > 0 ? RateLimiter.create(permitsPerSecond) : null, circuitBreaker,
+                pick(policies, ResilienceProperties.Policy::getSlowCallMs));
+    }
+
+    /**
+     * 配置中的服务商、接口名不区分大小写
+     */
+    private static <P> P find(Map<String, P> map, String name) {
+
+        for (Map.Entry<String, P> entry : map.entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(name)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static <V> V pick(ResilienceProperties.Policy[] policies, Function<ResilienceProperties.Policy, V> getter) {
+
+        for (ResilienceProperties.Policy policy : policies) {
+            V value = policy == null ? null : getter.apply(policy);
+            if (value != null) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("biz.resilience.defaults is incomplete");
+    }
+
+    private void count(String vendor, String action, String result) {
+
+        Counter.builder("vendor.call").tag("vendor", vendor).tag("action", action).tag("result", result)
+                .register(meterRegistry).increment();
+    }
+
+    private static final class Guard {
+
+        private final RateLimiter rateLimiter;
+
+        private final CircuitBreaker circuitBreaker;
+
+        private final long slowCallMs;
+
+        private Guard(RateLimiter rateLimiter, CircuitBreaker circuitBreaker, long slowCallMs) {
+            this.rateLimiter = rateLimiter;
+            this.circuitBreaker = circuitBreaker;
+            this.slowCallMs = slowCallMs;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.aliyuncs.aui.common.utils;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.apache.commons.lang3.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * 游标分页工具类，游标为 (created_at, id) 的Base64编码，对调用方不透明
+ */
+public class CursorUtils {
+
+    private static final String SEPARATOR = ":";
+
+    public static String encode(Date createdAt, String id) {
+
+        String raw = createdAt.getTime() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标，格式不合法时返回null
+     */
+    public static Cursor decode(String cursor) {
+
+        if (StringUtils.isEmpty(cursor)) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int index = raw.indexOf(SEPARATOR);
+            if (index <= 0 || index == raw.length() - 1) {
+                return null;
+            }
+            return new Cursor(new Date(Long.parseLong(raw.substring(0, index))), raw.substring(index + 1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Cursor {
+
+        private Date createdAt;
+
+        private String id;
+    }
+}
@@ -31,6 +31,11 @@ public class PageUtils implements Serializable {
 	 * 总记录数
 	 */
 	private int totalCount;
+
+	/**
+	 * 游标分页时下一页的游标，没有下一页时为空
+	 */
+	private String nextCursor;
 	
 	/**
 	 * 分页
@@ -45,4 +50,18 @@ public class PageUtils implements Serializable {
 		this.list = list;
 		this.totalCount = totalCount;
 	}
+
+	/**
+	 * 游标分页
+	 * @param list        列表数据
+	 * @param totalCount  总记录数，未查询时为-1
+	 * @param pageSize    每页记录数
+	 * @param nextCursor  下一页的游标
+	 */
+	public PageUtils(List<?> list, int totalCount, int pageSize, String nextCursor) {
+		this.pageSize = pageSize;
+		this.list = list;
+		this.totalCount = totalCount;
+		this.nextCursor = nextCursor;
+	}
 }
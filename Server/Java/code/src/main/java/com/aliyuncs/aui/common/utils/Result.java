@@ -35,6 +35,10 @@ public class Result {
 		return error(404, msg);
 	}
 
+	public static Result overload() {
+		return error(503, "服务繁忙，请稍后重试");
+	}
+
 	public static Result invalidParam() {
 		return error(401, "参数错误");
 	}
@@ -0,0 +1,183 @@
+package com.aliyuncs.aui.common.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 摘要签名：hex(digest(prefix + 动态内容 + suffix))，prefix、suffix为AppKey等固定部分，创建时预先转为字节。
+ * 每个线程复用自己的MessageDigest及字节、字符缓冲，签名过程中除返回的字符串外不分配对象。
+ * 用法：signer.begin().append(a).append(b).sign()，同一线程上一次签名完成前不能再次begin
+ *
+ * @author chunlei.zcl
+ */
+public final class Signer {
+
+    public static final String MD5 = "MD5";
+
+    public static final String SHA1 = "SHA-1";
+
+    public static final String SHA256 = "SHA-256";
+
+    private static final char[] HEX_DIGITS = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+
+    private static final int BUFFER_SIZE = 256;
+
+    private final String algorithm;
+
+    private final byte[] prefix;
+
+    private final byte[] suffix;
+
+    private final ThreadLocal<Session> sessions;
+
+    public Signer(String algorithm, String prefix, String suffix) {
+
+        this.algorithm = algorithm;
+        this.prefix = prefix == null ? new byte[0] : prefix.getBytes(StandardCharsets.UTF_8);
+        this.suffix = suffix == null ? new byte[0] : suffix.getBytes(StandardCharsets.UTF_8);
+        this.sessions = ThreadLocal.withInitial(this::newSession);
+        // 创建时校验算法，避免签名时才失败
+        newSession();
+    }
+
+    /**
+     * 开始一次签名，已写入prefix
+     */
+    public Session begin() {
+
+        Session session = sessions.get();
+        session.reset();
+        return session;
+    }
+
+    private Session newSession() {
+
+        try {
+            return new Session(MessageDigest.getInstance(algorithm));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("unsupported digest algorithm: " + algorithm, e);
+        }
+    }
+
+    public final class Session {
+
+        private final MessageDigest digest;
+
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+
+        private final byte[] result;
+
+        private final char[] hex;
+
+        private int position;
+
+        private Session(MessageDigest digest) {
+
+            this.digest = digest;
+            this.result = new byte[digest.getDigestLength()];
+            this.hex = new char[result.length * 2];
+        }
+
+        private void reset() {
+
+            digest.reset();
+            digest.update(prefix);
+            position = 0;
+        }
+
+        public Session append(CharSequence value) {
+
+            if (value == null) {
+                return append("null");
+            }
+            int length = value.length();
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c >= 0x80) {
+                    // 非ASCII字符很少出现，整体按UTF-8编码
+                    appendUtf8(value, i);
+                    return this;
+                }
+                put((byte) c);
+            }
+            return this;
+        }
+
+        public Session append(char value) {
+
+            if (value >= 0x80) {
+                appendUtf8(String.valueOf(value), 0);
+                return this;
+            }
+            put((byte) value);
+            return this;
+        }
+
+        public Session append(long value) {
+
+            if (value == Long.MIN_VALUE) {
+                return append(String.valueOf(value));
+            }
+            if (value < 0) {
+                put((byte) '-');
+                value = -value;
+            }
+            if (BUFFER_SIZE - position < 19) {
+                flush();
+            }
+            int digits = 1;
+            for (long v = value / 10; v > 0; v /= 10) {
+                digits++;
+            }
+            for (int i = position + digits - 1; i >= position; i--) {
+                buffer[i] = (byte) ('0' + value % 10);
+                value /= 10;
+            }
+            position += digits;
+            return this;
+        }
+
+        /**
+         * 写入suffix并结束签名，返回小写十六进制摘要
+         */
+        public String sign() {
+
+            flush();
+            digest.update(suffix);
+            try {
+                digest.digest(result, 0, result.length);
+            } catch (DigestException e) {
+                throw new IllegalStateException(e);
+            }
+            for (int i = 0; i < result.length; i++) {
+                hex[i * 2] = HEX_DIGITS[(result[i] >> 4) & 0x0f];
+                hex[i * 2 + 1] = HEX_DIGITS[result[i] & 0x0f];
+            }
+            return new String(hex);
+        }
+
+        private void appendUtf8(CharSequence value, int from) {
+
+            flush();
+            digest.update(value.subSequence(from, value.length()).toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        private void put(byte b) {
+
+            if (position == BUFFER_SIZE) {
+                flush();
+            }
+            buffer[position++] = b;
+        }
+
+        private void flush() {
+
+            if (position > 0) {
+                digest.update(buffer, 0, position);
+                position = 0;
+            }
+        }
+    }
+}
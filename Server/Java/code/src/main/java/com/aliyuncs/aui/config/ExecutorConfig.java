@@ -0,0 +1,122 @@
+package com.aliyuncs.aui.config;
+
+import com.aliyuncs.aui.common.concurrent.MonitoredThreadPoolExecutor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 业务线程池配置
+ *
+ * @author chunlei.zcl
+ */
+@Configuration
+public class ExecutorConfig {
+
+    @Value("${biz.class_info.aggregate.pool_size:32}")
+    private int aggregatePoolSize;
+
+    @Value("${biz.class_info.aggregate.queue_capacity:512}")
+    private int aggregateQueueCapacity;
+
+    @Value("${biz.class_info.list.pool_size:16}")
+    private int listPoolSize;
+
+    @Value("${biz.class_info.list.queue_capacity:256}")
+    private int listQueueCapacity;
+
+    @Value("${biz.class_info.create.pool_size:32}")
+    private int createPoolSize;
+
+    @Value("${biz.class_info.create.queue_capacity:256}")
+    private int createQueueCapacity;
+
+    @Value("${biz.class_info.warm_pool.pool_size:4}")
+    private int warmPoolPoolSize;
+
+    @Value("${biz.class_info.warm_pool.queue_capacity:256}")
+    private int warmPoolQueueCapacity;
+
+    @Value("${biz.class_info.teardown.pool_size:2}")
+    private int teardownPoolSize;
+
+    @Value("${biz.class_info.teardown.queue_capacity:1000}")
+    private int teardownQueueCapacity;
+
+    @Value("${biz.im_token.cache.refresh_pool_size:4}")
+    private int imTokenRefreshPoolSize;
+
+    @Value("${biz.im_token.cache.refresh_queue_capacity:1000}")
+    private int imTokenRefreshQueueCapacity;
+
+    @Value("${biz.room_event.pool_size:8}")
+    private int roomEventPoolSize;
+
+    @Value("${biz.room_event.queue_capacity:10000}")
+    private int roomEventQueueCapacity;
+
+    /**
+     * 课堂详情并发聚合使用的线程池。有界队列，队列满时直接拒绝，由调用方降级
+     */
+    @Bean(name = "classInfoAggregateExecutor", destroyMethod = "shutdown")
+    public MonitoredThreadPoolExecutor classInfoAggregateExecutor(MeterRegistry meterRegistry) {
+
+        return new MonitoredThreadPoolExecutor("class-aggregate", aggregatePoolSize, aggregateQueueCapacity, meterRegistry);
+    }
+
+    /**
+     * 课堂列表批量获取详情使用的线程池。有界队列，队列满时拒绝，接口返回服务繁忙
+     */
+    @Bean(name = "classListExecutor", destroyMethod = "shutdown")
+    public MonitoredThreadPoolExecutor classListExecutor(MeterRegistry meterRegistry) {
+
+        return new MonitoredThreadPoolExecutor("class-list", listPoolSize, listQueueCapacity, meterRegistry);
+    }
+
+    /**
+     * 创建课堂时并行创建三方资源及失败补偿使用的线程池。队列满时拒绝，接口返回服务繁忙
+     */
+    @Bean(name = "roomCreateExecutor", destroyMethod = "shutdown")
+    public MonitoredThreadPoolExecutor roomCreateExecutor(MeterRegistry meterRegistry) {
+
+        return new MonitoredThreadPoolExecutor("room-create", createPoolSize, createQueueCapacity, meterRegistry);
+    }
+
+    /**
+     * 后台预创建、销毁三方资源使用的线程池，与创建课堂的请求隔离
+     */
+    @Bean(name = "warmPoolExecutor", destroyMethod = "shutdown")
+    public MonitoredThreadPoolExecutor warmPoolExecutor(MeterRegistry meterRegistry) {
+
+        return new MonitoredThreadPoolExecutor("warm-pool", warmPoolPoolSize, warmPoolQueueCapacity, meterRegistry);
+    }
+
+    /**
+     * 课堂事件推送使用的线程池。同一课堂的事件由RoomEventServiceImpl按课堂串行发送，不同课堂并行，
+     * 一个客户端发送阻塞只影响所在课堂
+     */
+    @Bean(name = "roomEventExecutor", destroyMethod = "shutdown")
+    public MonitoredThreadPoolExecutor roomEventExecutor(MeterRegistry meterRegistry) {
+
+        return new MonitoredThreadPoolExecutor("room-event", roomEventPoolSize, roomEventQueueCapacity, meterRegistry);
+    }
+
+    /**
+     * 删除课堂后后台清理三方资源及关联数据使用的线程池，队列满时由定时扫描兜底
+     */
+    @Bean(name = "roomTeardownExecutor", destroyMethod = "shutdown")
+    public MonitoredThreadPoolExecutor roomTeardownExecutor(MeterRegistry meterRegistry) {
+
+        return new MonitoredThreadPoolExecutor("room-teardown", teardownPoolSize, teardownQueueCapacity, meterRegistry);
+    }
+
+    /**
+     * IM Token提前刷新使用的线程池，队列满时跳过本次刷新，Token过期后同步获取
+     */
+    @Bean(name = "imTokenRefreshExecutor", destroyMethod = "shutdown")
+    public MonitoredThreadPoolExecutor imTokenRefreshExecutor(MeterRegistry meterRegistry) {
+
+        return new MonitoredThreadPoolExecutor("im-token-refresh", imTokenRefreshPoolSize, imTokenRefreshQueueCapacity, meterRegistry);
+    }
+}
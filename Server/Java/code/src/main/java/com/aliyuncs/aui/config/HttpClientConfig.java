@@ -0,0 +1,90 @@
+package com.aliyuncs.aui.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.httpcomponents.MicrometerHttpRequestExecutor;
+import io.micrometer.core.instrument.binder.httpcomponents.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 调用三方HTTP接口（白板等）共用的连接池客户端。复用长连接，避免每次请求重新建立TCP及TLS连接；
+ * 响应的gzip、deflate压缩由客户端自动解压。上报连接池指标httpcomponents.httpclient.pool.*
+ * 及请求耗时httpcomponents.httpclient.request（client=vendor）
+ *
+ * @author chunlei.zcl
+ */
+@Configuration
+public class HttpClientConfig {
+
+    @Value("${biz.http_client.max_total:200}")
+    private int maxTotal;
+
+    @Value("${biz.http_client.max_per_route:50}")
+    private int maxPerRoute;
+
+    @Value("${biz.http_client.connect_timeout_ms:2000}")
+    private int connectTimeoutMs;
+
+    @Value("${biz.http_client.read_timeout_ms:5000}")
+    private int readTimeoutMs;
+
+    /**
+     * 从连接池获取连接的最长等待时间，连接池耗尽时快速失败
+     */
+    @Value("${biz.http_client.connection_request_timeout_ms:1000}")
+    private int connectionRequestTimeoutMs;
+
+    /**
+     * 服务端未返回Keep-Alive时，空闲连接的最长保持时间
+     */
+    @Value("${biz.http_client.keep_alive_ms:30000}")
+    private long keepAliveMs;
+
+    /**
+     * 空闲连接被复用前重新检查的间隔，避免使用已被服务端关闭的连接
+     */
+    @Value("${biz.http_client.validate_after_inactivity_ms:2000}")
+    private int validateAfterInactivityMs;
+
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager vendorHttpConnectionManager(MeterRegistry meterRegistry) {
+
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxTotal);
+        connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+        connectionManager.setValidateAfterInactivity(validateAfterInactivityMs);
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "vendor").bindTo(meterRegistry);
+        return connectionManager;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient vendorHttpClient(PoolingHttpClientConnectionManager vendorHttpConnectionManager, MeterRegistry meterRegistry) {
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMs)
+                .setSocketTimeout(readTimeoutMs)
+                .setConnectionRequestTimeout(connectionRequestTimeoutMs)
+                .build();
+
+        return HttpClients.custom()
+                .setConnectionManager(vendorHttpConnectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy((response, context) -> {
+                    long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return keepAlive > 0 ? Math.min(keepAlive, keepAliveMs) : keepAliveMs;
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(keepAliveMs, TimeUnit.MILLISECONDS)
+                .setRequestExecutor(MicrometerHttpRequestExecutor.builder(meterRegistry).tags(Tags.of("client", "vendor")).build())
+                .build();
+    }
+}
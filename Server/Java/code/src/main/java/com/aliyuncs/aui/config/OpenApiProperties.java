@@ -0,0 +1,71 @@
+package com.aliyuncs.aui.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 阿里云OpenAPI客户端配置，直播、点播、IM接口共用一个客户端
+ *
+ * @author chunlei.zcl
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "biz.openapi")
+public class OpenApiProperties {
+
+    private Access access = new Access();
+
+    private String regionId = "cn-shanghai";
+
+    private long connectTimeoutMs = 3000;
+
+    private long readTimeoutMs = 10000;
+
+    /**
+     * SDK连接池：最大并发请求数、每个域名的最大并发请求数、最大空闲连接数及空闲连接保持时间
+     */
+    private int maxRequests = 256;
+
+    private int maxRequestsPerHost = 128;
+
+    private int maxIdleConnections = 32;
+
+    private long keepAliveMs = 60000;
+
+    /**
+     * 未单独配置的接口，每个接口的最大并发数
+     */
+    private int defaultMaxConcurrency = 64;
+
+    /**
+     * 达到并发上限时等待的最长时间，超时后直接失败
+     */
+    private long acquireTimeoutMs = 200;
+
+    /**
+     * 按接口名（如SearchMedia）单独配置并发数及超时时间，未配置的项使用上面的默认值
+     */
+    private Map<String, Action> actions = new HashMap<>();
+
+    @Data
+    public static class Access {
+
+        private String key;
+
+        private String secret;
+    }
+
+    @Data
+    public static class Action {
+
+        private Integer maxConcurrency;
+
+        private Integer connectTimeoutMs;
+
+        private Integer readTimeoutMs;
+    }
+}
@@ -0,0 +1,80 @@
+package com.aliyuncs.aui.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 三方服务（阿里云、融云、白板）调用的限流及熔断配置。每个接口独立限流、独立熔断，
+ * 接口未配置的项依次使用所属服务商的配置、defaults
+ *
+ * @author chunlei.zcl
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "biz.resilience")
+public class ResilienceProperties {
+
+    private boolean enabled = true;
+
+    private Policy defaults = new Policy(0D, 50, 50, 20, 30000L, 3, 5000L);
+
+    /**
+     * 服务商 -> 配置，服务商为aliyun、rong_cloud、board
+     */
+    private Map<String, Vendor> vendors = new HashMap<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Policy {
+
+        /**
+         * 令牌桶每秒生成的令牌数，小于等于0表示不限流
+         */
+        private Double permitsPerSecond;
+
+        /**
+         * 失败率达到该百分比时熔断
+         */
+        private Integer failureRateThreshold;
+
+        /**
+         * 统计失败率的调用次数窗口
+         */
+        private Integer windowSize;
+
+        /**
+         * 窗口内调用次数达到该值后才判断失败率
+         */
+        private Integer minimumCalls;
+
+        /**
+         * 熔断持续时间，之后放行halfOpenCalls次探测调用
+         */
+        private Long openMs;
+
+        private Integer halfOpenCalls;
+
+        /**
+         * 耗时超过该值的调用按失败统计
+         */
+        private Long slowCallMs;
+    }
+
+    @Data
+    @EqualsAndHashCode(callSuper = true)
+    public static class Vendor extends Policy {
+
+        /**
+         * 接口名 -> 配置
+         */
+        private Map<String, Policy> actions = new HashMap<>();
+    }
+}
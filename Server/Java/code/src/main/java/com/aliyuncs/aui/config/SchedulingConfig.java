@@ -0,0 +1,14 @@
+package com.aliyuncs.aui.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * 开启定时任务
+ *
+ * @author chunlei.zcl
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -12,13 +12,18 @@ import com.aliyuncs.aui.service.*;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 直播间管理的Controller
@@ -47,6 +52,15 @@ public class ClassInfoController {
     @Resource
     private ClassMemberService classMemberService;
 
+    @Resource
+    private RoomEventService roomEventService;
+
+    @Resource
+    private RoomCreateService roomCreateService;
+
+    @Value("${biz.meeting_state.poll_timeout_ms:25000}")
+    private long meetingPollTimeoutMs;
+
     /**
      * 获取Im的token
      */
@@ -93,6 +107,15 @@ public class ClassInfoController {
         if (CollectionUtils.isEmpty(roomCreateRequestDto.getImServer())) {
             return Result.error("imServer null");
         }
+        if (roomCreateRequestDto.pullLiveSelector() == null) {
+            return Result.invalidParam();
+        }
+
+        // 客户端超时重试时携带相同的request_token，直接返回首次请求的结果
+        return roomCreateService.deduplicate(roomCreateRequestDto, () -> doCreateRoomInfo(roomCreateRequestDto));
+    }
+
+    private Result doCreateRoomInfo(RoomCreateRequestDto roomCreateRequestDto) {
 
         String aLiYunId = null;
         String rongCloudId = null;
@@ -142,6 +165,9 @@ public class ClassInfoController {
     public Result get(@RequestBody RoomGetRequestDto roomGetRequestDto) {
         log.info("get");
         ValidatorUtils.validateEntity(roomGetRequestDto);
+        if (roomGetRequestDto.pullLiveSelector() == null) {
+            return Result.invalidParam();
+        }
 
         RoomInfoDto roomInfo = roomInfoService.get(roomGetRequestDto);
         if (roomInfo != null) {
@@ -157,7 +183,20 @@ public class ClassInfoController {
     public Result list(@RequestBody RoomListRequestDto roomListRequestDto) {
         log.info("list");
         ValidatorUtils.validateEntity(roomListRequestDto);
+        if (!roomListRequestDto.valid()) {
+            return Result.invalidParam();
+        }
         PageUtils page = roomInfoService.list(roomListRequestDto);
+        if (roomListRequestDto.cursorMode()) {
+            if (page == null) {
+                return Result.error();
+            }
+            return returnResult(ClassInfoListDto.builder()
+                    .list(page.getList())
+                    .nextCursor(page.getNextCursor())
+                    .totalCount(page.getTotalCount() >= 0 ? (long) page.getTotalCount() : null)
+                    .build());
+        }
         if (page != null && CollectionUtils.isNotEmpty(page.getList())) {
             return returnResult(page.getList());
         }
@@ -233,6 +272,20 @@ public class ClassInfoController {
 
     }
 
+    @RequestMapping("/updateMeetingMember")
+    public Result updateMeetingMember(@RequestBody MeetingMemberActionRequestDto meetingMemberActionRequestDto) {
+        log.info("updateMeetingMember");
+        ValidatorUtils.validateEntity(meetingMemberActionRequestDto);
+        if (!meetingMemberActionRequestDto.valid()) {
+            return Result.invalidParam();
+        }
+        MeetingMemberInfo.Members members = roomInfoService.updateMeetingMember(meetingMemberActionRequestDto);
+        if (members != null) {
+            return returnResult(members);
+        }
+        return Result.error();
+    }
+
     @RequestMapping("/getMeetingInfo")
     public Result getMeetingInfo(@RequestBody MeetingGetRequestDto meetingGetRequestDto, HttpServletResponse servletResponse) {
         log.info("getMeetingInfo");
@@ -246,6 +299,55 @@ public class ClassInfoController {
         return  returnResult(members);
     }
 
+    /**
+     * 长轮询连麦信息：版本未变化时挂起请求（不占用servlet线程），有修改时立即返回最新状态，
+     * 超时返回仅包含当前版本号的结果，客户端据此继续轮询
+     */
+    @RequestMapping("/pollMeetingInfo")
+    public DeferredResult<Result> pollMeetingInfo(@RequestBody MeetingPollRequestDto meetingPollRequestDto) {
+        ValidatorUtils.validateEntity(meetingPollRequestDto);
+
+        MeetingMemberInfo.Members unchanged = new MeetingMemberInfo.Members();
+        unchanged.setVersion(meetingPollRequestDto.getVersion());
+        DeferredResult<Result> deferredResult = new DeferredResult<>(meetingPollTimeoutMs, returnResult(unchanged));
+
+        CompletableFuture<MeetingMemberInfo.Members> future = roomInfoService.pollMeetingInfo(meetingPollRequestDto);
+        if (future == null) {
+            deferredResult.setResult(Result.overload());
+            return deferredResult;
+        }
+        future.thenAccept(members -> {
+            if (members == null) {
+                MeetingMemberInfo.Members empty = new MeetingMemberInfo.Members();
+                empty.setMembers(Collections.emptyList());
+                deferredResult.setResult(returnResult(empty));
+                return;
+            }
+            deferredResult.setResult(returnResult(members));
+        });
+        deferredResult.onCompletion(() -> future.cancel(false));
+        return deferredResult;
+    }
+
+    /**
+     * 订阅课堂事件（SSE）：课堂状态、连麦信息、签到、成员进出的变化由服务端推送，替代客户端轮询。
+     * 课堂不存在返回404，连接数达到上限返回503。浏览器EventSource不能设置请求头，可通过查询参数access_token传入Token
+     */
+    @GetMapping("/subscribe")
+    public SseEmitter subscribe(@RequestParam("class_id") String classId, HttpServletResponse servletResponse) {
+        log.info("subscribe. classId:{}", classId);
+        if (StringUtils.isEmpty(classId) || !roomInfoService.isExistById(classId)) {
+            servletResponse.setStatus(HttpStatus.NOT_FOUND.value());
+            return null;
+        }
+        SseEmitter emitter = roomEventService.subscribe(classId);
+        if (emitter == null) {
+            servletResponse.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return null;
+        }
+        return emitter;
+    }
+
     /**
      * 流状态实时信息回调，可以及时更新db中的直播（或房间）状态
      */
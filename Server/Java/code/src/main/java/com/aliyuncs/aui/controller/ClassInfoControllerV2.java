@@ -1,15 +1,13 @@
 package com.aliyuncs.aui.controller;
 
-import com.alibaba.fastjson.JSON;
 import com.aliyuncs.aui.common.utils.Result;
 import com.aliyuncs.aui.common.utils.ValidatorUtils;
 import com.aliyuncs.aui.dto.req.ImTokenRequestDto;
 import com.aliyuncs.aui.dto.req.RoomCreateRequestDto;
 import com.aliyuncs.aui.dto.res.*;
 import com.aliyuncs.aui.service.ALiYunService;
-import com.aliyuncs.aui.service.BoardRoomService;
-import com.aliyuncs.aui.service.ClassInfoService;
 import com.aliyuncs.aui.service.RongCloudServer;
+import com.aliyuncs.aui.service.RoomCreateService;
 import com.google.common.collect.ImmutableMap;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections.CollectionUtils;
@@ -21,7 +19,6 @@ import org.springframework.web.bind.annotation.RestController;
 import javax.annotation.Resource;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.UUID;
 
 import static com.aliyuncs.aui.common.Constants.*;
 
@@ -43,10 +40,7 @@ public class ClassInfoControllerV2 {
     private RongCloudServer rongCloudServer;
 
     @Resource
-    private ClassInfoService roomInfoService;
-
-    @Resource
-    private BoardRoomService boardRoomService;
+    private RoomCreateService roomCreateService;
 
     /**
      * 获取Im的token
@@ -100,55 +94,11 @@ public class ClassInfoControllerV2 {
         if (CollectionUtils.isEmpty(roomCreateRequestDto.getImServer())) {
             return Result.error("imServer null");
         }
-
-        String aLiYunId = null;
-        String rongCloudId = null;
-
-
-        if (roomCreateRequestDto.getImServer().contains(IM_OLD)) {
-            aLiYunId = aLiyunService.createMessageGroup(roomCreateRequestDto.getTeacherId());
-            if (StringUtils.isEmpty(aLiYunId)) {
-                log.error("aliyun createMessageGroup error. teacher:{}", roomCreateRequestDto.getTeacherId());
-                String msg = String.format("aliyun createMessageGroup error. teacher: %s", roomCreateRequestDto.getTeacherId());
-                return Result.error(msg);
-            }
-        }
-
-        if (roomCreateRequestDto.getImServer().contains(IM_NEW)) {
-            if (StringUtils.isEmpty(aLiYunId)) {
-                aLiYunId = UUID.randomUUID().toString().replaceAll("-", "");
-            }
-            aLiYunId = aLiyunService.createNewImMessageGroup(aLiYunId, roomCreateRequestDto.getTeacherId());
-        }
-
-        if (roomCreateRequestDto.getImServer().contains(RONG_CLOUD)) {
-            rongCloudId = rongCloudServer.createChatroom(roomCreateRequestDto.getTeacherId());
-            if (StringUtils.isEmpty(rongCloudId)) {
-                log.error("rongCloud createMessageGroup error. teacher:{}", roomCreateRequestDto.getTeacherId());
-                String msg = String.format("rongCloud createMessageGroup error. teacher: %s", roomCreateRequestDto.getTeacherId());
-                return Result.error(msg);
-            }
-        } else {
-            log.warn("imServer: IM group service is not configured");
-        }
-
-
-        //  创建白板
-        String boardRoomId = aLiYunId == null ? rongCloudId : aLiYunId;
-        BoardAuthResponse boardAuthResponse = roomInfoService.getWhiteboardAuthInfo();
-        BoardCreateResponse createResponse = boardRoomService.createBoardRoom(roomCreateRequestDto, boardAuthResponse, boardRoomId);
-        log.info("创建白板:  " + JSON.toJSONString(createResponse));
-        if (createResponse.getCode() != 200) {
-            return Result.error(createResponse.getCode(), createResponse.getMessage());
+        if (roomCreateRequestDto.pullLiveSelector() == null) {
+            return Result.invalidParam();
         }
 
-        RoomInfoDto roomInfo = roomInfoService.createRoomInfo(roomCreateRequestDto, createResponse, aLiYunId, rongCloudId);
-
-        log.info("roomInfoDto: {}", roomInfo);
-        if (roomInfo != null) {
-            return Result.ok(roomInfo);
-
-        }
-        return Result.error();
+        // 各三方资源并行创建，失败时删除已创建的资源
+        return roomCreateService.createRoomInfo(roomCreateRequestDto);
     }
 }
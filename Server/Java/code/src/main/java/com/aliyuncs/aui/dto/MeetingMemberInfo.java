@@ -105,5 +105,11 @@ public class MeetingMemberInfo {
          */
         @JsonProperty("interaction_allowed")
         private Boolean interactionAllowed;
+
+        /**
+         * 连麦状态的版本号，每次修改加1，用于长轮询
+         */
+        @JsonProperty("version")
+        private Long version;
     }
 }
@@ -0,0 +1,85 @@
+package com.aliyuncs.aui.dto;
+
+import com.aliyuncs.aui.dto.enums.PullProtocol;
+import com.aliyuncs.aui.dto.enums.PullStream;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 需要生成的拉流地址：协议 × 流。只对选中的地址签名，未选中的字段为null，不返回给客户端
+ *
+ * @author chunlei.zcl
+ */
+public final class PullLiveSelector {
+
+    public static final PullLiveSelector ALL = new PullLiveSelector(EnumSet.allOf(PullProtocol.class), EnumSet.allOf(PullStream.class));
+
+    private final Set<PullProtocol> protocols;
+
+    private final Set<PullStream> streams;
+
+    private PullLiveSelector(Set<PullProtocol> protocols, Set<PullStream> streams) {
+
+        this.protocols = Collections.unmodifiableSet(protocols);
+        this.streams = Collections.unmodifiableSet(streams);
+    }
+
+    /**
+     * 未传入的维度表示全部；含有未知取值时返回null
+     */
+    public static PullLiveSelector of(List<String> protocols, List<String> streams) {
+
+        if (protocols == null && streams == null) {
+            return ALL;
+        }
+        Set<PullProtocol> protocolSet = EnumSet.allOf(PullProtocol.class);
+        if (protocols != null) {
+            protocolSet.clear();
+            for (String val : protocols) {
+                PullProtocol protocol = PullProtocol.of(val);
+                if (protocol == null) {
+                    return null;
+                }
+                protocolSet.add(protocol);
+            }
+        }
+        Set<PullStream> streamSet = EnumSet.allOf(PullStream.class);
+        if (streams != null) {
+            streamSet.clear();
+            for (String val : streams) {
+                PullStream stream = PullStream.of(val);
+                if (stream == null) {
+                    return null;
+                }
+                streamSet.add(stream);
+            }
+        }
+        return new PullLiveSelector(protocolSet, streamSet);
+    }
+
+    public Set<PullProtocol> getProtocols() {
+        return protocols;
+    }
+
+    public boolean contains(PullStream stream) {
+        return streams.contains(stream);
+    }
+
+    /**
+     * 选择结果的位图，用作缓存key
+     */
+    public int mask() {
+
+        int mask = 0;
+        for (PullProtocol protocol : protocols) {
+            mask |= 1 << protocol.ordinal();
+        }
+        for (PullStream stream : streams) {
+            mask |= 1 << (PullProtocol.values().length + stream.ordinal());
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,39 @@
+package com.aliyuncs.aui.dto.enums;
+
+/**
+ * 课堂列表可按需返回的扩展信息
+ */
+public enum ClassInfoExpand {
+
+    /**
+     * 全部字段，包括白板、公告、连麦成员、IM群组等
+     */
+    Detail("detail"),
+    LinkInfo("link_info"),
+    ShadowLinkInfo("shadow_link_info"),
+    VodInfo("vod_info"),
+    Metrics("metrics"),
+    UserStatus("user_status"),
+    Assistant("assistant");
+
+    private final String val;
+
+    public static ClassInfoExpand of(String val) {
+
+        for (ClassInfoExpand value : ClassInfoExpand.values()) {
+            if (value.getVal().equals(val)) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    ClassInfoExpand(String val) {
+        this.val = val;
+    }
+
+    public String getVal() {
+        return val;
+    }
+
+}
@@ -18,7 +18,12 @@ public enum ClassRoomStatus {
     /**
      * 已结束
      */
-    ClassRoomStatusOff(2);
+    ClassRoomStatusOff(2),
+
+    /**
+     * 删除中，三方资源及关联数据由后台清理，清理完成后删除课堂
+     */
+    ClassRoomStatusDeleting(3);
 
     private final int val;
 
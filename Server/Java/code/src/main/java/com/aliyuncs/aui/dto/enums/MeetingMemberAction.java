@@ -0,0 +1,53 @@
+package com.aliyuncs.aui.dto.enums;
+
+/**
+ * 连麦信息的增量操作
+ */
+public enum MeetingMemberAction {
+
+    /**
+     * 上麦
+     */
+    Add("add"),
+
+    /**
+     * 下麦
+     */
+    Remove("remove"),
+
+    /**
+     * 修改成员的摄像头、麦克风、屏幕共享等状态
+     */
+    Update("update"),
+
+    /**
+     * 全员静音
+     */
+    AllMute("all_mute"),
+
+    /**
+     * 是否允许连麦
+     */
+    InteractionAllowed("interaction_allowed");
+
+    private final String val;
+
+    public static MeetingMemberAction of(String val) {
+
+        for (MeetingMemberAction value : MeetingMemberAction.values()) {
+            if (value.getVal().equals(val)) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    MeetingMemberAction(String val) {
+        this.val = val;
+    }
+
+    public String getVal() {
+        return val;
+    }
+
+}
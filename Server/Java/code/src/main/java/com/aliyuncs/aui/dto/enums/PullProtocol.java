@@ -0,0 +1,33 @@
+package com.aliyuncs.aui.dto.enums;
+
+/**
+ * 拉流协议
+ */
+public enum PullProtocol {
+
+    Rtmp("rtmp"),
+    Rts("rts"),
+    Flv("flv"),
+    Hls("hls");
+
+    private final String val;
+
+    public static PullProtocol of(String val) {
+
+        for (PullProtocol value : PullProtocol.values()) {
+            if (value.getVal().equals(val)) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    PullProtocol(String val) {
+        this.val = val;
+    }
+
+    public String getVal() {
+        return val;
+    }
+
+}
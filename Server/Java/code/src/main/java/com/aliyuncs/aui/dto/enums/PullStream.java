@@ -0,0 +1,33 @@
+package com.aliyuncs.aui.dto.enums;
+
+/**
+ * 拉流地址对应的流：摄像头、屏幕共享，及各自的原始音频（_oriaac）转码流
+ */
+public enum PullStream {
+
+    Camera("camera"),
+    CameraOriaac("camera_oriaac"),
+    Screen("screen"),
+    ScreenOriaac("screen_oriaac");
+
+    private final String val;
+
+    public static PullStream of(String val) {
+
+        for (PullStream value : PullStream.values()) {
+            if (value.getVal().equals(val)) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    PullStream(String val) {
+        this.val = val;
+    }
+
+    public String getVal() {
+        return val;
+    }
+
+}
@@ -0,0 +1,58 @@
+package com.aliyuncs.aui.dto.enums;
+
+/**
+ * 课堂事件推送（SSE）的事件类型，即SSE的event字段
+ */
+public enum RoomEventType {
+
+    /**
+     * 课堂状态迁移
+     */
+    Status("status"),
+
+    /**
+     * 连麦信息整体替换，data为完整的连麦信息
+     */
+    Meeting("meeting"),
+
+    /**
+     * 连麦信息增量修改，data为本次操作及修改后的版本号
+     */
+    MeetingDelta("meeting_delta"),
+
+    /**
+     * 开始签到
+     */
+    CheckInStart("check_in_start"),
+
+    /**
+     * 签到结束
+     */
+    CheckInStop("check_in_stop"),
+
+    /**
+     * 成员进入课堂
+     */
+    MemberJoin("member_join"),
+
+    /**
+     * 成员离开课堂
+     */
+    MemberLeave("member_leave"),
+
+    /**
+     * 成员被踢出课堂
+     */
+    MemberKick("member_kick");
+
+    private final String val;
+
+    RoomEventType(String val) {
+        this.val = val;
+    }
+
+    public String getVal() {
+        return val;
+    }
+
+}
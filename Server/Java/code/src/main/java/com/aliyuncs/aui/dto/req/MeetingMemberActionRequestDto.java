@@ -0,0 +1,61 @@
+package com.aliyuncs.aui.dto.req;
+
+import com.aliyuncs.aui.dto.MeetingMemberInfo;
+import com.aliyuncs.aui.dto.enums.MeetingMemberAction;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.validation.constraints.NotBlank;
+
+/**
+ * 按增量修改连麦信息
+ */
+@Data
+public class MeetingMemberActionRequestDto {
+
+    @NotBlank(message="直播间Id不能为空")
+    private String id;
+
+    /**
+     * 操作类型，取值见MeetingMemberAction
+     */
+    @NotBlank(message="action不能为空")
+    @JsonProperty("action")
+    private String action;
+
+    /**
+     * 操作的成员，add/remove/update时必填
+     */
+    @JsonProperty("user_id")
+    private String userId;
+
+    /**
+     * add/update时的成员信息，只修改非空字段
+     */
+    @JsonProperty("member")
+    private MeetingMemberInfo member;
+
+    /**
+     * all_mute/interaction_allowed时的取值
+     */
+    @JsonProperty("value")
+    private Boolean value;
+
+    public boolean valid() {
+
+        MeetingMemberAction meetingMemberAction = MeetingMemberAction.of(action);
+        if (meetingMemberAction == null) {
+            return false;
+        }
+        switch (meetingMemberAction) {
+            case Add:
+            case Remove:
+            case Update:
+                return StringUtils.isNotEmpty(userId);
+            default:
+                return value != null;
+        }
+    }
+
+}
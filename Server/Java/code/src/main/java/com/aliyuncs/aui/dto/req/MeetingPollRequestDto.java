@@ -0,0 +1,25 @@
+package com.aliyuncs.aui.dto.req;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+
+/**
+ * 长轮询连麦信息
+ */
+@Data
+public class MeetingPollRequestDto {
+
+    @NotBlank(message="直播间Id不能为空")
+    private String id;
+
+    /**
+     * 客户端已知的连麦信息版本号，服务端版本与之相同时挂起请求直到有修改或超时
+     */
+    @NotNull(message="version不能为空")
+    @JsonProperty("version")
+    private Long version;
+
+}
@@ -1,5 +1,6 @@
 package com.aliyuncs.aui.dto.req;
 
+import com.aliyuncs.aui.dto.PullLiveSelector;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -8,6 +9,7 @@ import lombok.NoArgsConstructor;
 
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
 import java.util.List;
 
 /**
@@ -43,4 +45,31 @@ public class RoomCreateRequestDto {
     
     @JsonProperty("im_server")
     private List<String> imServer;
+
+    /**
+     * 幂等键，客户端为每次创建生成，超时重试时保持不变
+     */
+    @Size(max = 64, message="request_token过长")
+    @JsonProperty("request_token")
+    private String requestToken;
+
+    /**
+     * 需要返回的拉流协议，取值见PullProtocol。不传时返回全部协议
+     */
+    @JsonProperty("pull_protocols")
+    private List<String> pullProtocols;
+
+    /**
+     * 需要返回拉流地址的流，取值见PullStream。不传时返回全部流
+     */
+    @JsonProperty("pull_streams")
+    private List<String> pullStreams;
+
+    /**
+     * 参数中含有未知取值时返回null
+     */
+    public PullLiveSelector pullLiveSelector() {
+
+        return PullLiveSelector.of(pullProtocols, pullStreams);
+    }
 }
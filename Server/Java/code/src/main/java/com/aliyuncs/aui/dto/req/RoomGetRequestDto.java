@@ -1,9 +1,11 @@
 package com.aliyuncs.aui.dto.req;
 
+import com.aliyuncs.aui.dto.PullLiveSelector;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 
 import javax.validation.constraints.NotBlank;
+import java.util.List;
 
 /**
  * 获取房间信息
@@ -20,4 +22,35 @@ public class RoomGetRequestDto {
     @JsonProperty("user_id")
     private String userId;
 
+    /**
+     * 需要返回的拉流协议，取值见PullProtocol。不传时返回全部协议
+     */
+    @JsonProperty("pull_protocols")
+    private List<String> pullProtocols;
+
+    /**
+     * 需要返回拉流地址的流，取值见PullStream。不传时返回全部流
+     */
+    @JsonProperty("pull_streams")
+    private List<String> pullStreams;
+
+    /**
+     * 是否返回旁路（_shadow）连麦信息，不传时返回
+     */
+    @JsonProperty("with_shadow")
+    private Boolean withShadow;
+
+    /**
+     * 参数中含有未知取值时返回null
+     */
+    public PullLiveSelector pullLiveSelector() {
+
+        return PullLiveSelector.of(pullProtocols, pullStreams);
+    }
+
+    public boolean shadowRequired() {
+
+        return withShadow == null || withShadow;
+    }
+
 }
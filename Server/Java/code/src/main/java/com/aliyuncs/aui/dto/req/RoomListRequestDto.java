@@ -1,10 +1,16 @@
 package com.aliyuncs.aui.dto.req;
 
+import com.aliyuncs.aui.common.utils.CursorUtils;
+import com.aliyuncs.aui.dto.enums.ClassInfoExpand;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
+import org.apache.commons.lang3.StringUtils;
 
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * 批量获取房间信息
@@ -12,12 +18,15 @@ import javax.validation.constraints.NotNull;
 @Data
 public class RoomListRequestDto {
 
+    private static final int MAX_PAGE_SIZE = 100;
     
     @NotBlank(message="UserId不能为空")
     @JsonProperty("user_id")
     private String userId;
 
-    @NotNull(message="page_num不能为空")
+    /**
+     * 传page_num时按页码分页；不传时按游标分页
+     */
     @JsonProperty("page_num")
     private Integer pageNum;
 
@@ -25,4 +34,60 @@ public class RoomListRequestDto {
     @JsonProperty("page_size")
     private Integer pageSize;
 
+    /**
+     * 游标分页时上一页返回的next_cursor，首页不传
+     */
+    @JsonProperty("cursor")
+    private String cursor;
+
+    /**
+     * 游标分页时是否返回总数（近似值），默认不返回
+     */
+    @JsonProperty("with_total")
+    private boolean withTotal;
+
+    /**
+     * 需要返回的扩展信息，取值见ClassInfoExpand。不传时返回全部信息；
+     * 传入时只返回id、标题、老师、状态、时间等摘要字段及指定的扩展信息
+     */
+    @JsonProperty("expand")
+    private List<String> expand;
+
+    /**
+     * 返回null表示不做裁剪
+     */
+    public Set<ClassInfoExpand> expands() {
+
+        if (expand == null) {
+            return null;
+        }
+        Set<ClassInfoExpand> expands = EnumSet.noneOf(ClassInfoExpand.class);
+        for (String val : expand) {
+            ClassInfoExpand classInfoExpand = ClassInfoExpand.of(val);
+            if (classInfoExpand != null) {
+                expands.add(classInfoExpand);
+            }
+        }
+        return expands;
+    }
+
+    public boolean cursorMode() {
+
+        return pageNum == null;
+    }
+
+    public boolean valid() {
+
+        if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+            return false;
+        }
+        if (expand != null && expand.stream().anyMatch(val -> ClassInfoExpand.of(val) == null)) {
+            return false;
+        }
+        if (pageNum != null) {
+            return pageNum > 0 && StringUtils.isEmpty(cursor);
+        }
+        return StringUtils.isEmpty(cursor) || CursorUtils.decode(cursor) != null;
+    }
+
 }
@@ -0,0 +1,34 @@
+package com.aliyuncs.aui.dto.res;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 游标分页获取课堂列表DTO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClassInfoListDto {
+
+    private List<?> list;
+
+    /**
+     * 下一页的游标，为空表示没有更多数据
+     */
+    @JsonProperty("next_cursor")
+    private String nextCursor;
+
+    /**
+     * 近似总数，请求with_total时返回
+     */
+    @JsonProperty("total_count")
+    private Long totalCount;
+
+}
@@ -0,0 +1,36 @@
+package com.aliyuncs.aui.dto.res;
+
+import com.aliyuncs.aui.dto.MeetingMemberInfo;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 连麦信息的增量修改事件
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MeetingDeltaDto {
+
+    @JsonProperty("action")
+    private String action;
+
+    @JsonProperty("user_id")
+    private String userId;
+
+    @JsonProperty("member")
+    private MeetingMemberInfo member;
+
+    @JsonProperty("value")
+    private Boolean value;
+
+    /**
+     * 修改后的连麦信息版本号，客户端发现版本不连续时应重新获取完整的连麦信息
+     */
+    @JsonProperty("version")
+    private Long version;
+}
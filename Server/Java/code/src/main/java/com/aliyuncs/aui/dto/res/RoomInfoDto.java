@@ -138,6 +138,12 @@ public class RoomInfoDto {
     @JsonProperty("assistantPermit")
     private ClassMemberDto assistantClassMemberDto;
 
+    /**
+     * 因超时或线程池繁忙而未返回的字段
+     */
+    @JsonProperty("degraded_fields")
+    private List<String> degradedFields;
+
 
     @Data
     @Builder
@@ -114,4 +114,19 @@ public class ClassInfoEntity implements Serializable {
 	@TableField("boards")
 	private String boardsInfo;
 
+	/**
+	 * 版本号，每次状态迁移加1
+	 */
+	private Long version;
+
+	/**
+	 * IM消息组的创建者，删除新版IM消息组时作为操作者。为空时为老师
+	 */
+	private String imCreatorId;
+
+	/**
+	 * 后台扫描下次可搜索录制视频的时间，多实例间抢占课堂使用
+	 */
+	private Date vodSearchAt;
+
 }
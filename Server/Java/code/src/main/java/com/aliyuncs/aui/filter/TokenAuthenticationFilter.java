@@ -31,12 +31,26 @@ public class TokenAuthenticationFilter extends OncePerRequestFilter {
     private static final String TOKEN_HEADER = "Authorization";
 
     private static final String TOKEN_PREFIX = "Bearer";
+
+    /**
+     * 浏览器的EventSource不能设置请求头，订阅课堂事件（SSE）的接口允许通过该查询参数传入Token
+     */
+    private static final String TOKEN_PARAM = "access_token";
+
+    private static final String SUBSCRIBE_PATH = "/api/v1/class/subscribe";
+
     @Override
     protected void doFilterInternal(HttpServletRequest httpServletRequest, HttpServletResponse httpServletResponse, FilterChain filterChain)
             throws ServletException, IOException {
 
         long start = System.currentTimeMillis();
         String authorization = httpServletRequest.getHeader(TOKEN_HEADER);
+        if (StringUtils.isEmpty(authorization) && SUBSCRIBE_PATH.equals(httpServletRequest.getServletPath())) {
+            String token = httpServletRequest.getParameter(TOKEN_PARAM);
+            if (StringUtils.isNotEmpty(token)) {
+                authorization = TOKEN_PREFIX + " " + token;
+            }
+        }
         if (StringUtils.isNotEmpty(authorization) && authorization.startsWith(TOKEN_PREFIX)) {
             String authToken = authorization.substring(TOKEN_PREFIX.length());
             if (StringUtils.isNotEmpty(authToken)) {
@@ -3,12 +3,16 @@ package com.aliyuncs.aui.service;
 import com.aliyuncs.aui.dto.ClassMemberDto;
 import com.aliyuncs.aui.dto.LinkInfo;
 import com.aliyuncs.aui.dto.PullLiveInfo;
+import com.aliyuncs.aui.dto.PullLiveSelector;
 import com.aliyuncs.aui.dto.PushLiveInfo;
 import com.aliyuncs.aui.dto.req.ImTokenRequestDto;
 import com.aliyuncs.aui.dto.res.ImTokenResponseDto;
 import com.aliyuncs.aui.dto.res.NewImTokenResponseDto;
 import com.aliyuncs.aui.dto.res.RoomInfoDto;
 
+import java.util.Collection;
+import java.util.Map;
+
 /**
  * 视频云服务
  */
@@ -48,11 +52,22 @@ public interface ALiYunService {
      */
     LinkInfo getRtcInfo(String channelId, String userId, String teacherId);
 
+    /**
+     * 获取RTC地址，CDN拉流地址只生成selector选中的协议及流
+     */
+    LinkInfo getRtcInfo(String channelId, String userId, String teacherId, PullLiveSelector selector);
+
     /**
      * 从点播搜索录制的视频Id。见文档：https://help.aliyun.com/document_detail/436559.htm
      */
     String searchMediaByTitle(String title);
 
+    /**
+     * 按标题批量搜索录制的视频Id，一次SearchMedia调用。返回 title -> mediaId，未搜到的标题不在结果中。
+     * 调用失败时返回null，调用方不能将其当作未搜到
+     */
+    Map<String, String> searchMediaByTitles(Collection<String> titles);
+
 
     /**
      * 通过音视频ID直接获取视频的播放地址。见文档：https://help.aliyun.com/document_detail/436555.html
@@ -92,4 +107,14 @@ public interface ALiYunService {
     public boolean sendMessageToNewGroup(String groupId, Integer type, ClassMemberDto classMemberDto);
 
     String createNewImMessageGroup(String groupId, String creatorId);
+
+    /**
+     * 删除消息组。见文档：https://help.aliyun.com/document_detail/465133.html
+     */
+    boolean deleteMessageGroup(String groupId);
+
+    /**
+     * 删除新IM的消息组。见文档：https://help.aliyun.com/zh/live/developer-reference/api-deletelivemessagegroup
+     */
+    boolean deleteNewImMessageGroup(String groupId, String operatorId);
 }
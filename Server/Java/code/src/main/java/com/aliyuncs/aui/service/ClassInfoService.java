@@ -8,6 +8,8 @@ import com.aliyuncs.aui.dto.res.*;
 import com.aliyuncs.aui.entity.ClassInfoEntity;
 import com.baomidou.mybatisplus.extension.service.IService;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  *  房间服务
  */
@@ -19,10 +21,18 @@ public interface ClassInfoService extends IService<ClassInfoEntity> {
     ImTokenResponseDto getImToken(ImTokenRequestDto imTokenRequestDto);
 
     /**
-     * 创建房间
+     * 创建房间，IM消息组由老师创建
+     */
+    default RoomInfoDto createRoomInfo(RoomCreateRequestDto roomCreateRequestDto, BoardCreateResponse createResponse,
+                                       String aLiYunId, String rongCloudId) {
+        return createRoomInfo(roomCreateRequestDto, createResponse, aLiYunId, rongCloudId, null);
+    }
+
+    /**
+     * 创建房间，imCreatorId为IM消息组的创建者（如资源池预创建的消息组），为空时表示老师
      */
     RoomInfoDto createRoomInfo(RoomCreateRequestDto roomCreateRequestDto, BoardCreateResponse createResponse,
-                               String aLiYunId, String rongCloudId);
+                               String aLiYunId, String rongCloudId, String imCreatorId);
 
     /**
      * 获取房间详情
@@ -64,13 +74,26 @@ public interface ClassInfoService extends IService<ClassInfoEntity> {
      */
     MeetingMemberInfo.Members updateMeetingInfo(MeetingActionRequestDto meetingActionRequestDto);
 
+    /**
+     * 按增量修改连麦信息：上麦、下麦、修改单个成员的摄像头/麦克风/屏幕共享状态、全员静音、是否允许连麦
+     */
+    MeetingMemberInfo.Members updateMeetingMember(MeetingMemberActionRequestDto meetingMemberActionRequestDto);
+
     /**
      * 获取连麦信息
      */
     MeetingMemberInfo.Members getMeetingInfo(MeetingGetRequestDto meetingGetRequestDto);
 
+    /**
+     * 长轮询连麦信息：版本号与客户端已知版本不同时立即完成，否则在下次修改时完成。
+     * 课堂不存在时以null完成；等待的请求数达到上限时返回null，调用方应返回服务繁忙。
+     * 调用方超时后需cancel返回的future以释放等待
+     */
+    CompletableFuture<MeetingMemberInfo.Members> pollMeetingInfo(MeetingPollRequestDto meetingPollRequestDto);
+
     /**
      * 检验直播推流状态回调的签名。见文档：https://help.aliyun.com/document_detail/199365.html?spm=5176.13499635.help.dexternal.35d92699jvVrc7#section-mxt-vfh-b6s
+     * 验签通过后事件入队即返回，状态更新异步批量处理；返回false表示验签失败或队列已满
      */
     boolean handlePushStreamEventCallback(LivePushStreamEventRequestDto livePushStreamEventRequestDto);
 
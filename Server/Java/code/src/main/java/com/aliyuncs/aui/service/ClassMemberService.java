@@ -7,6 +7,9 @@ import com.aliyuncs.aui.dto.res.ClassMemberListDto;
 import com.aliyuncs.aui.entity.ClassMemberEntity;
 import com.baomidou.mybatisplus.extension.service.IService;
 
+import java.util.Collection;
+import java.util.Map;
+
 /**
  *  课堂成员服务
  */
@@ -23,5 +26,10 @@ public interface ClassMemberService extends IService<ClassMemberEntity> {
     ClassMemberListDto listMembers(ClassMemberListRequestDto classMemberListRequestDto);
 
     ClassMemberDto getAssistantClassMemberDto(String classId);
+
+    /**
+     * 批量获取课堂的助教，一次IN查询。返回 classId -> 助教，没有助教的课堂不在结果中
+     */
+    Map<String, ClassMemberDto> getAssistantClassMemberDtos(Collection<String> classIds);
 }
 
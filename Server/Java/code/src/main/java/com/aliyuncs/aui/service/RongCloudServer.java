@@ -27,6 +27,11 @@ public interface RongCloudServer {
     */
     String createChatroom(String name);
 
+    /**
+     * 销毁聊天室
+     */
+    boolean destroyChatroom(String chatroomId);
+
 
     /**
      * 获取指定用户的禁言状态
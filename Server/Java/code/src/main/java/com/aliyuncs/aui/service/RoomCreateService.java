@@ -0,0 +1,23 @@
+package com.aliyuncs.aui.service;
+
+import com.aliyuncs.aui.common.utils.Result;
+import com.aliyuncs.aui.dto.req.RoomCreateRequestDto;
+
+import java.util.function.Supplier;
+
+/**
+ * 课堂创建编排：并行创建IM消息组、融云聊天室、白板等三方资源后写入课堂，任一步失败时删除已创建的资源
+ */
+public interface RoomCreateService {
+
+    /**
+     * 创建课堂，返回课堂信息或失败原因
+     */
+    Result createRoomInfo(RoomCreateRequestDto roomCreateRequestDto);
+
+    /**
+     * 按request_token对创建请求去重：同一老师相同token的重试返回首次请求的结果，首次请求仍在执行时等待其完成。
+     * 只保存成功的结果；token为空时直接执行creator
+     */
+    Result deduplicate(RoomCreateRequestDto roomCreateRequestDto, Supplier<Result> creator);
+}
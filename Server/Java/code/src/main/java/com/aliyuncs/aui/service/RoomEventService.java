@@ -0,0 +1,25 @@
+package com.aliyuncs.aui.service;
+
+import com.aliyuncs.aui.dto.enums.RoomEventType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * 课堂事件推送：客户端按课堂订阅SSE连接，课堂状态、连麦信息、签到、成员进出等变化时主动推送，替代客户端轮询
+ */
+public interface RoomEventService {
+
+    /**
+     * 订阅课堂事件。连接数达到上限时返回null
+     */
+    SseEmitter subscribe(String classId);
+
+    /**
+     * 向课堂的所有订阅者推送事件，异步发送，不阻塞调用方
+     */
+    void publish(String classId, RoomEventType type, Object data);
+
+    /**
+     * 课堂当前是否有订阅者，没有时调用方可以跳过事件的构造
+     */
+    boolean hasSubscribers(String classId);
+}
@@ -0,0 +1,12 @@
+package com.aliyuncs.aui.service;
+
+/**
+ * 课堂删除后的异步清理：删除白板、聊天室等三方资源，分批删除成员、签到、课件等关联数据，最后删除课堂
+ */
+public interface RoomTeardownService {
+
+    /**
+     * 提交已标记为删除中的课堂，立即开始清理。提交失败的课堂由后台定时扫描兜底
+     */
+    void submit(String classId);
+}
@@ -0,0 +1,30 @@
+package com.aliyuncs.aui.service;
+
+import com.aliyuncs.aui.entity.ClassInfoEntity;
+import com.baomidou.mybatisplus.extension.service.IService;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ *  课堂录制视频服务，负责解析并保存课堂对应的点播mediaId（class_infos.vod_id）
+ */
+public interface VodMediaService extends IService<ClassInfoEntity> {
+
+    /**
+     * 获取课堂录制视频的mediaId：优先使用已保存的vod_id；未保存时按标题搜索并保存，
+     * 搜索不到时按指数退避，退避期间直接返回null
+     */
+    String resolveMediaId(ClassInfoEntity classInfoEntity);
+
+    /**
+     * 批量版本，未保存vod_id的课堂合并为一次SearchMedia。返回 classId -> mediaId，
+     * SearchMedia失败（含限流、熔断）时只返回已保存的vod_id
+     */
+    Map<String, String> resolveMediaIds(Collection<ClassInfoEntity> classInfoEntities);
+
+    /**
+     * 断流回调时调用，延迟一段时间（等待录制文件生成）后重新解析该课堂最新的录制视频
+     */
+    void onStreamDone(String classId);
+}
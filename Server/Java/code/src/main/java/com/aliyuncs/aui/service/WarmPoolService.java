@@ -0,0 +1,29 @@
+package com.aliyuncs.aui.service;
+
+import com.aliyuncs.aui.dto.res.BoardCreateResponse;
+
+/**
+ * 预创建的IM消息组、融云聊天室、白板资源池。创建课堂时优先租用，未命中或未开启时返回null，由调用方实时创建
+ */
+public interface WarmPoolService {
+
+    /**
+     * 租用预创建的阿里云IM消息组。同时开通新老IM时租用的是Id相同的一对消息组
+     */
+    String leaseImGroup(boolean oldIm, boolean newIm);
+
+    /**
+     * 租用预创建的融云聊天室
+     */
+    String leaseChatroom();
+
+    /**
+     * 租用预创建的白板房间，title为课堂标题
+     */
+    BoardCreateResponse leaseBoardRoom(String title);
+
+    /**
+     * 预创建资源使用的创建者Id，租用的IM消息组属于该用户，删除时需以其作为操作者
+     */
+    String getCreatorId();
+}
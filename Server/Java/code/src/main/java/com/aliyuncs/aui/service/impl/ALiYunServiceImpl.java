@@ -3,13 +3,18 @@ package com.aliyuncs.aui.service.impl;
 import com.alibaba.fastjson.JSONObject;
 import com.aliyuncs.CommonRequest;
 import com.aliyuncs.CommonResponse;
-import com.aliyuncs.DefaultAcsClient;
-import com.aliyuncs.IAcsClient;
+import com.aliyuncs.aui.cache.ImTokenCache;
+import com.aliyuncs.aui.common.openapi.AcsClientInvoker;
+import com.aliyuncs.aui.common.resilience.VendorGuard;
+import com.aliyuncs.aui.common.utils.Signer;
 import com.aliyuncs.aui.dto.ClassMemberDto;
 import com.aliyuncs.aui.dto.LinkInfo;
 import com.aliyuncs.aui.dto.PullLiveInfo;
+import com.aliyuncs.aui.dto.PullLiveSelector;
 import com.aliyuncs.aui.dto.PushLiveInfo;
 import com.aliyuncs.aui.dto.enums.MediaStatus;
+import com.aliyuncs.aui.dto.enums.PullProtocol;
+import com.aliyuncs.aui.dto.enums.PullStream;
 import com.aliyuncs.aui.dto.req.ImTokenRequestDto;
 import com.aliyuncs.aui.dto.res.ImTokenResponseDto;
 import com.aliyuncs.aui.dto.res.NewImTokenResponseDto;
@@ -21,25 +26,29 @@ import com.aliyuncs.exceptions.ServerException;
 import com.aliyuncs.http.FormatType;
 import com.aliyuncs.http.MethodType;
 import com.aliyuncs.live.model.v20161101.*;
-import com.aliyuncs.profile.DefaultProfile;
 import com.aliyuncs.vod.model.v20170321.GetPlayInfoRequest;
 import com.aliyuncs.vod.model.v20170321.GetPlayInfoResponse;
 import com.aliyuncs.vod.model.v20170321.SearchMediaRequest;
 import com.aliyuncs.vod.model.v20170321.SearchMediaResponse;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.time.DateUtils;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.util.DigestUtils;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * 视频云服务实现类
@@ -54,12 +63,27 @@ public class ALiYunServiceImpl implements ALiYunService {
 
     private static final String LIVE_OPEN_API_DOMAIN = "live.aliyuncs.com";
 
-    @Value("${biz.openapi.access.key}")
-    private String accessKeyId;
-    @Value("${biz.openapi.access.secret}")
-    private String accessKeySecret;
+    /**
+     * SearchMedia单次最多返回100条
+     */
+    private static final int SEARCH_MEDIA_PAGE_SIZE = 100;
+
+    private static final int SEARCH_MEDIA_TITLES_PER_REQUEST = 50;
+
+    /**
+     * 一批标题最多翻页数，避免异常数据导致无限翻页
+     */
+    private static final int SEARCH_MEDIA_MAX_PAGES = 10;
+
+    private static final String IM_TOKEN_PROVIDER = "aliyun_old_im";
+
     @Value("${biz.live_im.app_id}")
     private String imAppId;
+    /**
+     * 接口未返回过期时间时，老IM Token的缓存有效期
+     */
+    @Value("${biz.im_token.aliyun_old_im.ttl_seconds:86400}")
+    private long imTokenTtlSeconds;
     @Value("${biz.live_stream.push_url}")
     private String liveStreamPushUrl;
     @Value("${biz.live_stream.pull_url}")
@@ -72,6 +96,13 @@ public class ALiYunServiceImpl implements ALiYunService {
     private String liveStreamAppName;
     @Value("${biz.live_stream.auth_expires}")
     private Long liveStreamAuthExpires;
+    /**
+     * 拉流鉴权的过期时间按此粒度对齐，同一时间段内同一路流的拉流地址相同，可被所有用户共享
+     */
+    @Value("${biz.live_stream.auth_bucket_seconds:600}")
+    private long liveStreamAuthBucketSeconds;
+    @Value("${biz.live_stream.pull_cache_max_size:10000}")
+    private long pullLiveInfoCacheMaxSize;
     @Value("${biz.live_mic.app_id}")
     private String liveMicAppId;
     @Value("${biz.live_mic.app_key}")
@@ -88,21 +119,74 @@ public class ALiYunServiceImpl implements ALiYunService {
     @Value("${biz.new_im.appSign}")
     private String appSign;
 
-    private IAcsClient client;
+    @Resource
+    private AcsClientInvoker client;
 
     @Resource
     private RongCloudServer rongCloudServer;
 
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private ImTokenCache imTokenCache;
+
+    @Resource
+    private VendorGuard vendorGuard;
+
+    /**
+     * (appName, 摄像头流, 屏幕共享流, 时间段) -> 签名后的拉流地址。缓存的对象被所有用户共享，调用方不能修改
+     */
+    private Cache<String, PullLiveInfo> pullLiveInfoCache;
+
+    /**
+     * RTC鉴权：sha256(appId + appKey + channelId + userId + timestamp)
+     */
+    private Signer rtcAuthSigner;
+
+    /**
+     * 推拉流A鉴权：md5(path-exp-rand-uid-authKey)，rand、uid固定为0
+     */
+    private Signer pushAuthSigner;
+
+    private Signer pullAuthSigner;
+
+    /**
+     * 新IM AppToken：sha256(appId + appKey + userId + nonce + timestamp + role)
+     */
+    private Signer newImTokenSigner;
+
+    /**
+     * 直播回调签名：md5(pushUrl|timestamp|authKey)
+     */
+    private Signer liveCallbackSigner;
+
     @PostConstruct
     public void init() {
 
-        DefaultProfile profile = DefaultProfile.getProfile("cn-shanghai", accessKeyId, accessKeySecret);
-        client = new DefaultAcsClient(profile);
+        rtcAuthSigner = new Signer(Signer.SHA256, liveMicAppId + liveMicAppKey, null);
+        pushAuthSigner = new Signer(Signer.MD5, null, "-0-0-" + liveStreamPushAuthKey);
+        pullAuthSigner = new Signer(Signer.MD5, null, "-0-0-" + liveStreamPullAuthKey);
+        newImTokenSigner = new Signer(Signer.SHA256, appId + appKey, null);
+        liveCallbackSigner = new Signer(Signer.MD5, liveStreamPushUrl + "|", "|" + liveCallbackAuthKey);
+
+        pullLiveInfoCache = CacheBuilder.newBuilder()
+                .maximumSize(pullLiveInfoCacheMaxSize)
+                .expireAfterWrite(liveStreamAuthBucketSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        GuavaCacheMetrics.monitor(meterRegistry, pullLiveInfoCache, "pull_live_info");
     }
 
     @Override
     public ImTokenResponseDto getImToken(ImTokenRequestDto imTokenRequestDto) {
 
+        return imTokenCache.get(IM_TOKEN_PROVIDER, imTokenRequestDto.getUserId(), imTokenRequestDto.getDeviceId(),
+                () -> vendorGuard.call(VendorGuard.ALIYUN, "GetMessageToken", () -> fetchImToken(imTokenRequestDto)));
+    }
+
+    private ImTokenCache.Token<ImTokenResponseDto> fetchImToken(ImTokenRequestDto imTokenRequestDto) {
+
         long start = System.currentTimeMillis();
         GetMessageTokenRequest request = new GetMessageTokenRequest();
         request.setAppId(imAppId);
@@ -115,10 +199,11 @@ public class ALiYunServiceImpl implements ALiYunService {
             GetMessageTokenResponse response = client.getAcsResponse(request);
             log.info("getImToken, response:{}, consume:{}", JSONObject.toJSONString(response), (System.currentTimeMillis() - start));
 
-            return ImTokenResponseDto.builder()
+            ImTokenResponseDto imTokenResponseDto = ImTokenResponseDto.builder()
                     .aLiYunAccessToken(response.getResult().getAccessToken())
                     .aLiYunRefreshToken(response.getResult().getRefreshToken())
                     .build();
+            return ImTokenCache.Token.of(imTokenResponseDto, getImTokenExpiresAt(response.getResult().getAccessTokenExpiredTime(), start));
         } catch (ServerException e) {
             log.error("getImToken ServerException. ErrCode:{}, ErrMsg:{}, RequestId:{}", e.getErrCode(), e.getErrMsg(), e.getRequestId());
         } catch (ClientException e) {
@@ -129,6 +214,23 @@ public class ALiYunServiceImpl implements ALiYunService {
         return null;
     }
 
+    /**
+     * AccessTokenExpiredTime文档未说明单位，按数值大小兼容毫秒时间戳、秒时间戳及有效时长（秒）。未返回时使用配置的有效期
+     */
+    private long getImTokenExpiresAt(Long accessTokenExpiredTime, long issuedAt) {
+
+        if (accessTokenExpiredTime == null || accessTokenExpiredTime <= 0) {
+            return issuedAt + TimeUnit.SECONDS.toMillis(imTokenTtlSeconds);
+        }
+        if (accessTokenExpiredTime > 100_000_000_000L) {
+            return accessTokenExpiredTime;
+        }
+        if (accessTokenExpiredTime > 1_000_000_000L) {
+            return TimeUnit.SECONDS.toMillis(accessTokenExpiredTime);
+        }
+        return issuedAt + TimeUnit.SECONDS.toMillis(accessTokenExpiredTime);
+    }
+
     @Override
     public NewImTokenResponseDto getNewImToken(ImTokenRequestDto imTokenRequestDto) {
 
@@ -138,8 +240,7 @@ public class ALiYunServiceImpl implements ALiYunService {
         }
         String nonce = UUID.randomUUID().toString();
         long timestamp = DateUtils.addDays(new Date(), 2).getTime() / 1000;
-        String signContent = String.format("%s%s%s%s%s%s", appId, appKey, imTokenRequestDto.getUserId(), nonce, timestamp, role);
-        String appToken = org.apache.commons.codec.digest.DigestUtils.sha256Hex(signContent);
+        String appToken = newImTokenSigner.begin().append(imTokenRequestDto.getUserId()).append(nonce).append(timestamp).append(role).sign();
 
         NewImTokenResponseDto newImTokenResponseDto = NewImTokenResponseDto.builder()
                 .appId(appId)
@@ -205,6 +306,49 @@ public class ALiYunServiceImpl implements ALiYunService {
         return null;
     }
 
+    @Override
+    public boolean deleteMessageGroup(String groupId) {
+
+        long start = System.currentTimeMillis();
+        DeleteMessageGroupRequest request = new DeleteMessageGroupRequest();
+        request.setAppId(imAppId);
+        request.setGroupId(groupId);
+        try {
+            DeleteMessageGroupResponse acsResponse = client.getAcsResponse(request);
+            log.info("deleteMessageGroup, groupId:{}, response:{}, consume:{}", groupId, JSONObject.toJSONString(acsResponse), (System.currentTimeMillis() - start));
+            return acsResponse.getResult() != null && Boolean.TRUE.equals(acsResponse.getResult().getSuccess());
+        } catch (ServerException e) {
+            log.error("deleteMessageGroup ServerException. ErrCode:{}, ErrMsg:{}, RequestId:{}", e.getErrCode(), e.getErrMsg(), e.getRequestId());
+        } catch (ClientException e) {
+            log.error("deleteMessageGroup ClientException. ErrCode:{}, ErrMsg:{}, RequestId:{}", e.getErrCode(), e.getErrMsg(), e.getRequestId());
+        } catch (Exception e) {
+            log.error("deleteMessageGroup Exception. error:{}", e.getMessage());
+        }
+        return false;
+    }
+
+    @Override
+    public boolean deleteNewImMessageGroup(String groupId, String operatorId) {
+
+        long start = System.currentTimeMillis();
+        DeleteLiveMessageGroupRequest request = new DeleteLiveMessageGroupRequest();
+        request.setAppId(appId);
+        request.setGroupId(groupId);
+        request.setOperatorId(operatorId);
+        try {
+            DeleteLiveMessageGroupResponse acsResponse = client.getAcsResponse(request);
+            log.info("deleteNewImMessageGroup, groupId:{}, response:{}, consume:{}", groupId, JSONObject.toJSONString(acsResponse), (System.currentTimeMillis() - start));
+            return true;
+        } catch (ServerException e) {
+            log.error("deleteNewImMessageGroup ServerException. ErrCode:{}, ErrMsg:{}, RequestId:{}", e.getErrCode(), e.getErrMsg(), e.getRequestId());
+        } catch (ClientException e) {
+            log.error("deleteNewImMessageGroup ClientException. ErrCode:{}, ErrMsg:{}, RequestId:{}", e.getErrCode(), e.getErrMsg(), e.getRequestId());
+        } catch (Exception e) {
+            log.error("deleteNewImMessageGroup Exception. error:{}", e.getMessage());
+        }
+        return false;
+    }
+
     public boolean sendMessageToGroup(String groupId, Integer type, ClassMemberDto classMemberDto) {
 
         SendMessageToGroupRequest request = new SendMessageToGroupRequest();
@@ -253,7 +397,7 @@ public class ALiYunServiceImpl implements ALiYunService {
     @Override
     public PushLiveInfo getPushLiveInfo(String streamName) {
 
-        String pushAuthKey = getAAuth(streamName, liveStreamPushAuthKey);
+        String pushAuthKey = getAAuth(pushAuthSigner, streamName, "", System.currentTimeMillis() / 1000 + liveStreamAuthExpires);
         String url = String.format("%s/%s/%s?auth_key=%s", liveStreamPushUrl, liveStreamAppName, streamName, pushAuthKey);
         PushLiveInfo pushLiveInfo = PushLiveInfo.builder()
                 .rtmpUrl(String.format("%s://%s", "rtmp", url))
@@ -274,6 +418,12 @@ public class ALiYunServiceImpl implements ALiYunService {
     @Override
     public LinkInfo getRtcInfo(String channelId, String userId, String teacherId) {
 
+        return getRtcInfo(channelId, userId, teacherId, PullLiveSelector.ALL);
+    }
+
+    @Override
+    public LinkInfo getRtcInfo(String channelId, String userId, String teacherId, PullLiveSelector selector) {
+
         // 24小时有效
         long timestamp = DateUtils.addDays(new Date(), 1).getTime() / 1000;
         String token = getRtcAuth(channelId, userId, timestamp);
@@ -289,7 +439,7 @@ public class ALiYunServiceImpl implements ALiYunService {
         // shareScreen 流
         String screenStreamName = String.format("%s_%s_%s_shareScreen", liveMicAppId, channelId, teacherId);
 
-        PullLiveInfo rtcLinkCDNUrl = getPullLiveInfo("live", streamName, screenStreamName);
+        PullLiveInfo rtcLinkCDNUrl = getCachedPullLiveInfo("live", streamName, screenStreamName, selector);
 
         LinkInfo linkInfo = LinkInfo.builder().rtcPushUrl(rtcPushUrl).rtcPullUrl(rtcPullUrl).cdnPullInfo(rtcLinkCDNUrl).build();
 
@@ -323,6 +473,67 @@ public class ALiYunServiceImpl implements ALiYunService {
         return null;
     }
 
+    @Override
+    public Map<String, String> searchMediaByTitles(Collection<String> titles) {
+
+        if (CollectionUtils.isEmpty(titles)) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, String> result = new HashMap<>(titles.size());
+        Set<String> validTitles = new LinkedHashSet<>(titles.size());
+        for (String title : titles) {
+            // 标题来自客户端，含引号或反斜杠时会破坏整批的Match表达式，单独跳过
+            if (title == null || title.indexOf('\'') >= 0 || title.indexOf('\\') >= 0) {
+                log.warn("searchMediaByTitles skip invalid title:{}", title);
+                continue;
+            }
+            validTitles.add(title);
+        }
+
+        for (List<String> partition : Iterables.partition(validTitles, SEARCH_MEDIA_TITLES_PER_REQUEST)) {
+            String match = String.format("Title in (%s)", partition.stream().map(title -> String.format("'%s'", title)).collect(Collectors.joining(",")));
+            try {
+                // 同一标题可能有多个视频，一页放不下时继续翻页，直到最后一页或所有标题都已找到
+                for (int pageNo = 1; pageNo <= SEARCH_MEDIA_MAX_PAGES; pageNo++) {
+                    long start = System.currentTimeMillis();
+                    SearchMediaRequest request = new SearchMediaRequest();
+                    request.setMatch(match);
+                    request.setFields("Title");
+                    request.setPageNo(pageNo);
+                    request.setPageSize(SEARCH_MEDIA_PAGE_SIZE);
+                    request.setAcceptFormat(FormatType.JSON);
+
+                    SearchMediaResponse acsResponse = client.getAcsResponse(request);
+                    log.info("searchMediaByTitles, titles:{}, pageNo:{}, response:{}, consume:{}", partition, pageNo, JSONObject.toJSONString(acsResponse), (System.currentTimeMillis() - start));
+                    List<SearchMediaResponse.Media> mediaList = acsResponse.getMediaList();
+                    if (CollectionUtils.isEmpty(mediaList)) {
+                        break;
+                    }
+                    // 同一标题有多个视频时，与searchMediaByTitle一致取第一个
+                    for (SearchMediaResponse.Media media : mediaList) {
+                        if (media.getVideo() != null && partition.contains(media.getVideo().getTitle())) {
+                            result.putIfAbsent(media.getVideo().getTitle(), media.getMediaId());
+                        }
+                    }
+                    if (mediaList.size() < SEARCH_MEDIA_PAGE_SIZE || result.keySet().containsAll(partition)) {
+                        break;
+                    }
+                }
+            } catch (ServerException e) {
+                log.error("searchMediaByTitles ServerException. ErrCode:{}, ErrMsg:{}, RequestId:{}", e.getErrCode(), e.getErrMsg(), e.getRequestId());
+                return null;
+            } catch (ClientException e) {
+                log.error("searchMediaByTitles ClientException. ErrCode:{}, ErrMsg:{}, RequestId:{}", e.getErrCode(), e.getErrMsg(), e.getRequestId());
+                return null;
+            } catch (Exception e) {
+                log.error("searchMediaByTitles Exception. error:{}", e.getMessage());
+                return null;
+            }
+        }
+        return result;
+    }
+
     @Override
     public RoomInfoDto.VodInfo getPlayInfo(String mediaId) {
 
@@ -422,114 +633,120 @@ public class ALiYunServiceImpl implements ALiYunService {
     @Override
     public boolean validLiveCallbackSign(String liveSignature, String liveTimestamp) {
 
-        String signContent = String.format("%s|%s|%s", liveStreamPushUrl, liveTimestamp, liveCallbackAuthKey);
-        String sum = DigestUtils.md5DigestAsHex(signContent.getBytes());
+        String sum = liveCallbackSigner.begin().append(liveTimestamp).sign();
         if (!sum.equals(liveSignature)) {
-            log.warn("validLiveCallbackSign sign invalid.signContent:{}", signContent);
+            log.warn("validLiveCallbackSign sign invalid. liveTimestamp:{}", liveTimestamp);
             return false;
         }
         return true;
     }
 
-    private PullLiveInfo getPullLiveInfo(String appName, String streamName, String screenStreamName) {
-
-        String streamUrl = String.format("%s/%s/%s", liveStreamPullUrl, appName, streamName);
-        String streamUrlOfOriaac = String.format("%s/%s/%s_oriaac", liveStreamPullUrl, appName, streamName);
-
-        String pullAuthKey = getAAuth(streamName, liveStreamPullAuthKey);
-        String pullAuthKeyOfOriaac = getAAuth(String.format("%s_oriaac", streamName), liveStreamPullAuthKey);
-        String pullAuthKeyWithFlv = getAAuth(String.format("%s%s", streamName, ".flv"), liveStreamPullAuthKey);
-        String pullAuthKeyWithFlvOfOriaac = getAAuth(String.format("%s_oriaac%s", streamName, ".flv"), liveStreamPullAuthKey);
-        String pullAuthKeyWithM3u8 = getAAuth(String.format("%s%s", streamName, ".m3u8"), liveStreamPullAuthKey);
-        String pullAuthKeyWithM3u8OfOriaac = getAAuth(String.format("%s_oriaac%s", streamName, ".m3u8"), liveStreamPullAuthKey);
+    /**
+     * 拉流地址只与老师的流有关，与请求的用户无关。鉴权过期时间对齐到时间段结束时刻再加auth_expires，
+     * 同一时间段内所有用户共用一份签名结果；进入下一个时间段后重新签名，因此地址的剩余有效期不少于auth_expires
+     */
+    private PullLiveInfo getCachedPullLiveInfo(String appName, String streamName, String screenStreamName, PullLiveSelector selector) {
 
-        String screenStreamUrl = String.format("%s/%s/%s", liveStreamPullUrl, appName, screenStreamName);
-        String screenStreamUrlOfOriaac = String.format("%s/%s/%s_oriaac", liveStreamPullUrl, appName, screenStreamName);
+        long bucket = System.currentTimeMillis() / 1000 / liveStreamAuthBucketSeconds;
+        long exp = (bucket + 1) * liveStreamAuthBucketSeconds + liveStreamAuthExpires;
+        String key = String.format("%s/%s/%s/%d/%d", appName, streamName, screenStreamName, bucket, selector.mask());
+        try {
+            return pullLiveInfoCache.get(key, () -> getPullLiveInfo(appName, streamName, screenStreamName, exp, selector));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            log.error(String.format("getCachedPullLiveInfo error. key: %s", key), e.getCause());
+            return getPullLiveInfo(appName, streamName, screenStreamName, exp, selector);
+        }
+    }
 
-        String pullScreenAuthKey = getAAuth(screenStreamName, liveStreamPullAuthKey);
-        String pullScreenAuthKeyOfOriaac = getAAuth(String.format("%s_oriaac", screenStreamName), liveStreamPullAuthKey);
-        String pullScreenAuthKeyWithFlv = getAAuth(String.format("%s%s", screenStreamName, ".flv"), liveStreamPullAuthKey);
-        String pullScreenAuthKeyWithFlvOfOriaac = getAAuth(String.format("%s_oriaac%s", screenStreamName, ".flv"), liveStreamPullAuthKey);
-        String pullScreenAuthKeyWithM3u8 = getAAuth(String.format("%s%s", screenStreamName, ".m3u8"), liveStreamPullAuthKey);
-        String pullScreenAuthKeyWithM3u8OfOriaac = getAAuth(String.format("%s_oriaac%s", screenStreamName, ".m3u8"), liveStreamPullAuthKey);
+    private PullLiveInfo getPullLiveInfo(String appName, String streamName, String screenStreamName, long exp, PullLiveSelector selector) {
 
+        String[] camera = getPullUrls(appName, streamName, selector.contains(PullStream.Camera), selector, exp);
+        String[] cameraOfOriaac = getPullUrls(appName, streamName + "_oriaac", selector.contains(PullStream.CameraOriaac), selector, exp);
+        String[] screen = getPullUrls(appName, screenStreamName, selector.contains(PullStream.Screen), selector, exp);
+        String[] screenOfOriaac = getPullUrls(appName, screenStreamName + "_oriaac", selector.contains(PullStream.ScreenOriaac), selector, exp);
 
+        int rtmp = PullProtocol.Rtmp.ordinal();
+        int rts = PullProtocol.Rts.ordinal();
+        int flv = PullProtocol.Flv.ordinal();
+        int hls = PullProtocol.Hls.ordinal();
         PullLiveInfo pullLiveInfo = PullLiveInfo.builder()
-                .rtmpUrl(String.format("%s://%s?auth_key=%s", "rtmp", streamUrl, pullAuthKey))
-                .rtmpOriaacUrl(String.format("%s://%s?auth_key=%s", "rtmp", streamUrlOfOriaac, pullAuthKeyOfOriaac))
-                .rtsUrl(String.format("%s://%s?auth_key=%s", "artc", streamUrl, pullAuthKey))
-                .rtsOriaacUrl(String.format("%s://%s?auth_key=%s", "artc", streamUrlOfOriaac, pullAuthKeyOfOriaac))
-                .flvUrl(String.format("https://%s.flv?auth_key=%s", streamUrl, pullAuthKeyWithFlv))
-                .flvOriaacUrl(String.format("https://%s.flv?auth_key=%s", streamUrlOfOriaac, pullAuthKeyWithFlvOfOriaac))
-                .hlsUrl(String.format("https://%s.m3u8?auth_key=%s", streamUrl, pullAuthKeyWithM3u8))
-                .hlsOriaacUrl(String.format("https://%s.m3u8?auth_key=%s", streamUrlOfOriaac, pullAuthKeyWithM3u8OfOriaac))
-
-                .rtmpScreenUrl(String.format("%s://%s?auth_key=%s", "rtmp", screenStreamUrl, pullScreenAuthKey))
-                .rtmpScreenOriaacUrl(String.format("%s://%s?auth_key=%s", "rtmp", screenStreamUrlOfOriaac, pullScreenAuthKeyOfOriaac))
-                .rtsScreenUrl(String.format("%s://%s?auth_key=%s", "artc", screenStreamUrl, pullScreenAuthKey))
-                .rtsScreenOriaacUrl(String.format("%s://%s?auth_key=%s", "artc", screenStreamUrlOfOriaac, pullScreenAuthKeyOfOriaac))
-                .flvScreenUrl(String.format("https://%s.flv?auth_key=%s", screenStreamUrl, pullScreenAuthKeyWithFlv))
-                .flvScreenOriaacUrl(String.format("https://%s.flv?auth_key=%s", screenStreamUrlOfOriaac, pullScreenAuthKeyWithFlvOfOriaac))
-                .hlsScreenUrl(String.format("https://%s.m3u8?auth_key=%s", screenStreamUrl, pullScreenAuthKeyWithM3u8))
-                .hlsScreenOriaacUrl(String.format("https://%s.m3u8?auth_key=%s", screenStreamUrlOfOriaac, pullScreenAuthKeyWithM3u8OfOriaac))
+                .rtmpUrl(camera[rtmp])
+                .rtmpOriaacUrl(cameraOfOriaac[rtmp])
+                .rtsUrl(camera[rts])
+                .rtsOriaacUrl(cameraOfOriaac[rts])
+                .flvUrl(camera[flv])
+                .flvOriaacUrl(cameraOfOriaac[flv])
+                .hlsUrl(camera[hls])
+                .hlsOriaacUrl(cameraOfOriaac[hls])
+
+                .rtmpScreenUrl(screen[rtmp])
+                .rtmpScreenOriaacUrl(screenOfOriaac[rtmp])
+                .rtsScreenUrl(screen[rts])
+                .rtsScreenOriaacUrl(screenOfOriaac[rts])
+                .flvScreenUrl(screen[flv])
+                .flvScreenOriaacUrl(screenOfOriaac[flv])
+                .hlsScreenUrl(screen[hls])
+                .hlsScreenOriaacUrl(screenOfOriaac[hls])
                 .build();
 
         log.info("getPullLiveInfo. streamName:{}, screenStreamName:{}, pullLiveInfo:{}", streamName, screenStreamName, JSONObject.toJSONString(pullLiveInfo));
         return pullLiveInfo;
     }
 
+    /**
+     * 生成一路流选中协议的拉流地址，按PullProtocol的顺序返回，未选中的为null。rtmp与rts共用同一个鉴权
+     */
+    private String[] getPullUrls(String appName, String streamName, boolean selected, PullLiveSelector selector, long exp) {
 
-    public String getRtcAuth(String channelId, String userId, long timestamp) {
-
-        String rtcAuthStr = String.format("%s%s%s%s%d", liveMicAppId, liveMicAppKey, channelId, userId, timestamp);
-        String rtcAuth = getSHA256(rtcAuthStr);
-        log.info("getRtcAuth. rtcAuthStr:{}, rtcAuth:{}", rtcAuthStr, rtcAuth);
-        return rtcAuth;
+        String[] urls = new String[PullProtocol.values().length];
+        if (!selected) {
+            return urls;
+        }
+        Set<PullProtocol> protocols = selector.getProtocols();
+        String streamUrl = liveStreamPullUrl + "/" + appName + "/" + streamName;
+        if (protocols.contains(PullProtocol.Rtmp) || protocols.contains(PullProtocol.Rts)) {
+            String authKey = getAAuth(pullAuthSigner, streamName, "", exp);
+            if (protocols.contains(PullProtocol.Rtmp)) {
+                urls[PullProtocol.Rtmp.ordinal()] = "rtmp://" + streamUrl + "?auth_key=" + authKey;
+            }
+            if (protocols.contains(PullProtocol.Rts)) {
+                urls[PullProtocol.Rts.ordinal()] = "artc://" + streamUrl + "?auth_key=" + authKey;
+            }
+        }
+        if (protocols.contains(PullProtocol.Flv)) {
+            urls[PullProtocol.Flv.ordinal()] = "https://" + streamUrl + ".flv?auth_key=" + getAAuth(pullAuthSigner, streamName, ".flv", exp);
+        }
+        if (protocols.contains(PullProtocol.Hls)) {
+            urls[PullProtocol.Hls.ordinal()] = "https://" + streamUrl + ".m3u8?auth_key=" + getAAuth(pullAuthSigner, streamName, ".m3u8", exp);
+        }
+        return urls;
     }
 
 
-    private static String getSHA256(String str) {
-        MessageDigest messageDigest;
-        String encodestr = "";
-        try {
-            messageDigest = MessageDigest.getInstance("SHA-256");
-            messageDigest.update(str.getBytes(StandardCharsets.UTF_8));
-            encodestr = byte2Hex(messageDigest.digest());
-        } catch (NoSuchAlgorithmException e) {
-            e.printStackTrace();
-        }
-        return encodestr;
-    }
+    public String getRtcAuth(String channelId, String userId, long timestamp) {
 
-    private static String byte2Hex(byte[] bytes) {
-        StringBuilder stringBuffer = new StringBuilder();
-        for (byte aByte : bytes) {
-            String temp = Integer.toHexString(aByte & 0xFF);
-            if (temp.length() == 1) {
-                stringBuffer.append("0");
-            }
-            stringBuffer.append(temp);
-        }
-        return stringBuffer.toString();
+        String rtcAuth = rtcAuthSigner.begin().append(channelId).append(userId).append(timestamp).sign();
+        log.info("getRtcAuth. channelId:{}, userId:{}, timestamp:{}, rtcAuth:{}", channelId, userId, timestamp, rtcAuth);
+        return rtcAuth;
     }
 
+
     /**
      * 获取鉴权。文档见：https://help.aliyun.com/document_detail/199349.html
+     *
+     * @param suffix 流名称后缀，如_oriaac、.flv
+     * @param exp    鉴权过期时间，单位秒
      */
-    private String getAAuth(String streamName, String authKey) {
-
-        String rand = "0";
-        String uid = "0";
-        String path = String.format("/%s/%s", liveStreamAppName, streamName);
-        long exp = System.currentTimeMillis() / 1000 + liveStreamAuthExpires;
-
-        String signStr = String.format("%s-%d-%s-%s-%s", path, exp, rand, uid, authKey);
+    private String getAAuth(Signer signer, String streamName, String suffix, long exp) {
 
-        String hashValue = DigestUtils.md5DigestAsHex(signStr.getBytes());
+        String hashValue = signer.begin()
+                .append('/').append(liveStreamAppName).append('/').append(streamName).append(suffix)
+                .append('-').append(exp)
+                .sign();
 
-        String ak = String.format("%d-%s-%s-%s", exp, rand, uid, hashValue);
+        String ak = exp + "-0-0-" + hashValue;
 
-        log.info("getAAuth. signStr:{}, hashValue:{}, ak:{}", signStr, hashValue, ak);
+        log.info("getAAuth. streamName:{}{}, ak:{}", streamName, suffix, ak);
         return ak;
     }
 }
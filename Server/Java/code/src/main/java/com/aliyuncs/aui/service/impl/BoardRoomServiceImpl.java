@@ -12,13 +12,14 @@ import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
 import org.apache.http.util.EntityUtils;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import lombok.extern.slf4j.Slf4j;
 
+import javax.annotation.Resource;
+
 
 @Service
 @Slf4j
@@ -38,6 +39,12 @@ public class BoardRoomServiceImpl implements BoardRoomService {
     @Value("${room.boards.channel_destroy_time}")
     private int channelDestroyTime;
 
+    /**
+     * 共用的连接池客户端，见HttpClientConfig
+     */
+    @Resource
+    private CloseableHttpClient vendorHttpClient;
+
     @Override
     public BoardCreateResponse createBoardRoom(RoomCreateRequestDto roomCreateRequestDto, BoardAuthResponse boardAuthResponse, String boardId) {
         // 添加header
@@ -56,11 +63,9 @@ public class BoardRoomServiceImpl implements BoardRoomService {
         httpPost.setEntity(new StringEntity(roomStringInfo, "UTF-8"));
 
         // post 请求
-        CloseableHttpClient httpClient = HttpClients.createDefault();
         BoardCreateResponse boardRoomResponseDto = new BoardCreateResponse();
-        try {
-            // 执行http请求
-            CloseableHttpResponse response = httpClient.execute(httpPost);
+        // 关闭响应时连接归还连接池
+        try (CloseableHttpResponse response = vendorHttpClient.execute(httpPost)) {
             String resultString = EntityUtils.toString(response.getEntity(), "utf-8");
 
             JSONObject jsonObject = JSON.parseObject(resultString);
@@ -80,6 +85,8 @@ public class BoardRoomServiceImpl implements BoardRoomService {
                 boardRoomResponseDto.setMessage(msg);
             }
         } catch (Exception e) {
+            boardRoomResponseDto.setCode(500);
+            boardRoomResponseDto.setMessage(e.toString());
             log.error(e.toString());
         }
         log.info("boardRoomResponseDto:  {}", boardRoomResponseDto);
@@ -93,7 +100,8 @@ public class BoardRoomServiceImpl implements BoardRoomService {
         httpPost.setHeader("Content-type", "application/json; chartset=UTF-8");
         httpPost.setHeader("User-Agent", "PostmanRuntime/7.26.2");
         httpPost.setHeader("Accept", "*/*");
-        httpPost.setHeader("Accept-Encoding", "gzip, deflate, br");
+        // HttpClient只能自动解压gzip、deflate
+        httpPost.setHeader("Accept-Encoding", "gzip, deflate");
         httpPost.setHeader("AppKey", APP_KEY);
         httpPost.setHeader("Nonce", boardAuthResponse.getNonce());
         httpPost.setHeader("CurTime", String.valueOf(boardAuthResponse.getCurTime()));
@@ -107,9 +115,9 @@ public class BoardRoomServiceImpl implements BoardRoomService {
 
         BoardCreateResponse boardRoomResponseDto = new BoardCreateResponse();
 
-        CloseableHttpClient httpClient = HttpClients.createDefault();
-        try {
-            CloseableHttpResponse response = httpClient.execute(httpDelete);
+        try (CloseableHttpResponse response = vendorHttpClient.execute(httpDelete)) {
+            // 读完响应体，连接才能被复用
+            EntityUtils.consume(response.getEntity());
             int codeStatus = response.getStatusLine().getStatusCode();
             if (codeStatus == 200) {
                 boardRoomResponseDto.setCode(codeStatus);
@@ -117,6 +125,8 @@ public class BoardRoomServiceImpl implements BoardRoomService {
                 boardRoomResponseDto.setCode(codeStatus);
             }
         } catch (Exception e) {
+            // 默认code为200，请求失败时需要覆盖，调用方据此重试
+            boardRoomResponseDto.setCode(500);
             log.error(e.toString());
         }
         return boardRoomResponseDto;
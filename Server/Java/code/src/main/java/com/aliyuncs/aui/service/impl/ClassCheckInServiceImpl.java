@@ -3,6 +3,7 @@ package com.aliyuncs.aui.service.impl;
 import com.alibaba.fastjson.JSONObject;
 import com.aliyuncs.aui.dao.ClassCheckInDao;
 import com.aliyuncs.aui.dto.InvokeResult;
+import com.aliyuncs.aui.dto.enums.RoomEventType;
 import com.aliyuncs.aui.dto.req.CheckInRequest;
 import com.aliyuncs.aui.dto.req.CheckInSetRequest;
 import com.aliyuncs.aui.dto.res.ClassCheckInRecordResponse;
@@ -11,9 +12,12 @@ import com.aliyuncs.aui.entity.ClassCheckInEntity;
 import com.aliyuncs.aui.entity.ClassCheckInRecordEntity;
 import com.aliyuncs.aui.service.ClassCheckInRecordService;
 import com.aliyuncs.aui.service.ClassCheckInService;
+import com.aliyuncs.aui.service.RoomEventService;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang3.time.DateUtils;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
@@ -33,6 +37,10 @@ public class ClassCheckInServiceImpl extends ServiceImpl<ClassCheckInDao, ClassC
 
     @Resource
     private ClassCheckInRecordService classCheckInRecordService;
+    @Resource
+    private RoomEventService roomEventService;
+    @Resource
+    private TaskScheduler taskScheduler;
     @Override
     public ClassCheckInResponse setCheckIn(CheckInSetRequest checkInSetRequest) {
 
@@ -55,7 +63,12 @@ public class ClassCheckInServiceImpl extends ServiceImpl<ClassCheckInDao, ClassC
 
         this.save(classCheckInEntity);
 
-        return convert2ClassCheckInResponse(classCheckInEntity);
+        ClassCheckInResponse classCheckInResponse = convert2ClassCheckInResponse(classCheckInEntity);
+        roomEventService.publish(classCheckInEntity.getClassId(), RoomEventType.CheckInStart, classCheckInResponse);
+        // 签到没有结束接口，到期时推送结束事件
+        Date endTime = DateUtils.addSeconds(classCheckInEntity.getStartTime(), classCheckInEntity.getDuration());
+        taskScheduler.schedule(() -> roomEventService.publish(classCheckInEntity.getClassId(), RoomEventType.CheckInStop, classCheckInResponse), endTime);
+        return classCheckInResponse;
     }
 
     @Override
@@ -2,15 +2,24 @@ package com.aliyuncs.aui.service.impl;
 
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
+import com.aliyuncs.aui.cache.ClassInfoCache;
+import com.aliyuncs.aui.cache.MeetingStateStore;
+import com.aliyuncs.aui.common.concurrent.SingleFlight;
+import com.aliyuncs.aui.common.utils.CursorUtils;
 import com.aliyuncs.aui.common.utils.JwtUtils;
 import com.aliyuncs.aui.common.utils.PageUtils;
 import com.aliyuncs.aui.common.utils.Result;
+import com.aliyuncs.aui.common.utils.Signer;
 import com.aliyuncs.aui.dao.RoomInfoDao;
 import com.aliyuncs.aui.dto.ClassMemberDto;
 import com.aliyuncs.aui.dto.LinkInfo;
 import com.aliyuncs.aui.dto.MeetingMemberInfo;
+import com.aliyuncs.aui.dto.PullLiveSelector;
+import com.aliyuncs.aui.dto.enums.ClassInfoExpand;
 import com.aliyuncs.aui.dto.enums.ClassRoomStatus;
+import com.aliyuncs.aui.dto.enums.MeetingMemberAction;
 import com.aliyuncs.aui.dto.enums.PushStreamStatus;
+import com.aliyuncs.aui.dto.enums.RoomEventType;
 import com.aliyuncs.aui.dto.req.*;
 import com.aliyuncs.aui.dto.res.*;
 import com.aliyuncs.aui.entity.ClassInfoEntity;
@@ -21,8 +30,16 @@ import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.Claim;
 import com.auth0.jwt.interfaces.DecodedJWT;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.RateLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections.CollectionUtils;
@@ -34,11 +51,15 @@ import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.web.util.UriUtils;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
 import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 
 /**
@@ -58,28 +79,192 @@ public class ClassInfoServiceImpl extends ServiceImpl<RoomInfoDao, ClassInfoEnti
      */
     private static final String TOKEN_SECRET = "323assa2323.dqe223b434";
 
-    private static final char[] HEX_DIGITS = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+    /**
+     * 列表摘要模式下查询的字段
+     */
+    private static final Set<String> SUMMARY_PROPERTIES = new HashSet<>(Arrays.asList("id", "title", "anchor", "status", "mode",
+            "teacherId", "teacherNick", "coverUrl", "createdAt", "updatedAt", "startedAt", "stoppedAt"));
+
+    /**
+     * 推流回调：开始推流时，准备中或已结束的课堂变为已开始
+     */
+    static final Set<ClassRoomStatus> PUBLISH_TRANSIT_FROM = Collections.unmodifiableSet(
+            EnumSet.of(ClassRoomStatus.ClassRoomStatusPrepare, ClassRoomStatus.ClassRoomStatusOff));
+
+    /**
+     * 推流回调：断流时，已开始的课堂变为准备中
+     */
+    static final Set<ClassRoomStatus> PUBLISH_DONE_TRANSIT_FROM = Collections.unmodifiableSet(
+            EnumSet.of(ClassRoomStatus.ClassRoomStatusOn));
+
+    /**
+     * 老师删除课堂：未删除的课堂均可变为删除中
+     */
+    static final Set<ClassRoomStatus> DELETE_TRANSIT_FROM = Collections.unmodifiableSet(
+            EnumSet.of(ClassRoomStatus.ClassRoomStatusPrepare, ClassRoomStatus.ClassRoomStatusOn, ClassRoomStatus.ClassRoomStatusOff));
+
+    /**
+     * 老师操作：除删除中外的任意其他状态均可迁移到目标状态
+     */
+    static final Map<ClassRoomStatus, Set<ClassRoomStatus>> TEACHER_TRANSIT_FROM;
+
+    static {
+        Map<ClassRoomStatus, Set<ClassRoomStatus>> teacherTransitFrom = new EnumMap<>(ClassRoomStatus.class);
+        for (ClassRoomStatus target : DELETE_TRANSIT_FROM) {
+            Set<ClassRoomStatus> from = EnumSet.copyOf(DELETE_TRANSIT_FROM);
+            from.remove(target);
+            teacherTransitFrom.put(target, Collections.unmodifiableSet(from));
+        }
+        TEACHER_TRANSIT_FROM = Collections.unmodifiableMap(teacherTransitFrom);
+    }
+
+    private static final int TEACHER_TRANSIT_RETRY = 3;
 
     @Value("${room.boards.app_secret}")
     private String APP_SECRET;
 
-    @Value("${biz.live_mic.app_id}")
-    private String liveMicAppId;
+    /**
+     * 是否并发获取课堂详情中的各项远程信息
+     */
+    @Value("${biz.class_info.aggregate.enabled:true}")
+    private boolean aggregateAsync;
+
+    @Value("${biz.class_info.aggregate.vod_timeout_ms:1500}")
+    private long vodTimeoutMs;
+
+    @Value("${biz.class_info.aggregate.metrics_timeout_ms:800}")
+    private long metricsTimeoutMs;
+
+    @Value("${biz.class_info.aggregate.user_status_timeout_ms:800}")
+    private long userStatusTimeoutMs;
+
+    @Value("${biz.class_info.aggregate.assistant_timeout_ms:500}")
+    private long assistantTimeoutMs;
+
+    @Resource(name = "classInfoAggregateExecutor")
+    private ExecutorService aggregateExecutor;
+
+    @Resource(name = "classListExecutor")
+    private ExecutorService listExecutor;
+
+    /**
+     * 同时执行的list请求数上限，超过时直接返回服务繁忙，避免单个接口占满线程池
+     */
+    @Value("${biz.class_info.list.max_concurrent_requests:32}")
+    private int listMaxConcurrentRequests;
+
+    private Semaphore listBulkhead;
+
+    /**
+     * 白板鉴权CheckSum：sha1(appSecret + nonce + curTime)
+     */
+    private Signer boardChecksumSigner;
+
+    /**
+     * 列表页中无批量接口的OpenAPI调用（GetPlayInfo、GetGroupStatistics、ListMessageGroupUserById）共享的限流，所有list请求共用
+     */
+    @Value("${biz.class_info.list.remote_qps:200}")
+    private double listRemoteQps;
+
+    @Value("${biz.class_info.list.remote_acquire_timeout_ms:200}")
+    private long listRemoteAcquireTimeoutMs;
+
+    private RateLimiter listRemoteRateLimiter;
+
+    @Value("${biz.push_stream_event.queue_capacity:10000}")
+    private int pushStreamEventQueueCapacity;
+
+    @Value("${biz.push_stream_event.batch_size:200}")
+    private int pushStreamEventBatchSize;
+
+    /**
+     * 推流事件去重的有效期，直播服务在该时间内的重试回调会被丢弃
+     */
+    @Value("${biz.push_stream_event.dedupe_seconds:600}")
+    private long pushStreamEventDedupeSeconds;
 
-    private static final ThreadPoolExecutor THREAD_POOL = new ThreadPoolExecutor(0, Integer.MAX_VALUE,
-            60L, TimeUnit.SECONDS,
-            new SynchronousQueue<>());
+    private PushStreamEventPipeline pushStreamEventPipeline;
+
+    /**
+     * 每个课堂最近处理的推流事件时间，用于丢弃乱序到达的旧事件
+     */
+    private Cache<String, Integer> lastPushStreamEventTimes;
+
+    private Counter coalescedEventCounter;
+
+    /**
+     * 连麦Id -> 课堂Id，推流回调中连麦的StreamId只包含连麦Id
+     */
+    @Value("${biz.class_info.meeting_index.max_size:100000}")
+    private long meetingIndexMaxSize;
+
+    private Cache<String, String> meetingClassIds;
+
+    private Counter staleEventCounter;
 
     @Resource
     private ALiYunService videoCloudService;
 
     @Resource
-    private BoardRoomService boardRoomService;
+    private VodMediaService vodMediaService;
+
+    @Resource
+    private ClassInfoCache classInfoCache;
+
+    @Resource
+    private MeetingStateStore meetingStateStore;
+
+    @Resource
+    private RoomEventService roomEventService;
+
+    @Resource
+    private RoomTeardownService roomTeardownService;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 合并同一课堂的并发读请求，课堂开始时大量用户同时进入可大幅减少DB及OpenAPI的调用
+     */
+    private SingleFlight<String, ClassInfoEntity> classInfoEntityFlight;
+
+    private SingleFlight<String, RoomInfoDto> roomInfoFlight;
+
 
     @Resource
     @Lazy
     private ClassMemberService classMemberService;
 
+    @PostConstruct
+    public void init() {
+
+        classInfoEntityFlight = new SingleFlight<>("class_info_entity", meterRegistry);
+        roomInfoFlight = new SingleFlight<>("room_info", meterRegistry);
+        listBulkhead = new Semaphore(listMaxConcurrentRequests);
+        boardChecksumSigner = new Signer(Signer.SHA1, APP_SECRET, null);
+        listRemoteRateLimiter = RateLimiter.create(listRemoteQps);
+
+        lastPushStreamEventTimes = CacheBuilder.newBuilder()
+                .maximumSize(pushStreamEventQueueCapacity)
+                .expireAfterWrite(pushStreamEventDedupeSeconds, TimeUnit.SECONDS)
+                .build();
+        meetingClassIds = CacheBuilder.newBuilder()
+                .maximumSize(meetingIndexMaxSize)
+                .recordStats()
+                .build();
+        GuavaCacheMetrics.monitor(meterRegistry, meetingClassIds, "class_info.meeting_index");
+        coalescedEventCounter = Counter.builder("push_stream_event.dropped").tag("reason", "coalesced").register(meterRegistry);
+        staleEventCounter = Counter.builder("push_stream_event.dropped").tag("reason", "stale").register(meterRegistry);
+        pushStreamEventPipeline = new PushStreamEventPipeline(pushStreamEventQueueCapacity, pushStreamEventBatchSize,
+                pushStreamEventDedupeSeconds, meterRegistry, this::applyPushStreamEvents);
+    }
+
+    @PreDestroy
+    public void destroy() {
+
+        pushStreamEventPipeline.shutdown();
+    }
+
     @Override
     public ImTokenResponseDto getImToken(ImTokenRequestDto imTokenRequestDto) {
 
@@ -88,7 +273,8 @@ public class ClassInfoServiceImpl extends ServiceImpl<RoomInfoDao, ClassInfoEnti
 
     @SneakyThrows
     @Override
-    public RoomInfoDto createRoomInfo(RoomCreateRequestDto roomCreateRequestDto, BoardCreateResponse createResponses, String aLiYunId, String rongCloudId) {
+    public RoomInfoDto createRoomInfo(RoomCreateRequestDto roomCreateRequestDto, BoardCreateResponse createResponses, String aLiYunId, String rongCloudId,
+                                  String imCreatorId) {
         RoomInfoDto roomInfoDto = new RoomInfoDto();
         long start = System.currentTimeMillis();
         Date now = new Date();
@@ -103,6 +289,7 @@ public class ClassInfoServiceImpl extends ServiceImpl<RoomInfoDao, ClassInfoEnti
                 .extendsInfo(roomCreateRequestDto.getExtendsInfo())
                 .aliyunId(aLiYunId)
                 .rongCloudId(rongCloudId)
+                .imCreatorId(imCreatorId)
                 .mode(roomCreateRequestDto.getMode())
                 .status((long) ClassRoomStatus.ClassRoomStatusPrepare.getVal())
                 .boardsInfo(JSON.toJSONString(createResponses))
@@ -116,10 +303,12 @@ public class ClassInfoServiceImpl extends ServiceImpl<RoomInfoDao, ClassInfoEnti
             log.error("save db error. roomInfoEntity:{}", JSONObject.toJSONString(roomInfoEntity));
             return null;
         }
+        meetingClassIds.put(roomInfoEntity.getMeetingId(), roomInfoEntity.getId());
 
 
         BeanUtils.copyProperties(roomInfoEntity, roomInfoDto);
-        LinkInfo rtcInfo = videoCloudService.getRtcInfo(roomInfoEntity.getMeetingId(), roomCreateRequestDto.getTeacherId(), roomCreateRequestDto.getTeacherId());
+        LinkInfo rtcInfo = videoCloudService.getRtcInfo(roomInfoEntity.getMeetingId(), roomCreateRequestDto.getTeacherId(), roomCreateRequestDto.getTeacherId(),
+                roomCreateRequestDto.pullLiveSelector());
         roomInfoDto.setLinkInfo(rtcInfo);
 
         log.info("createRoomInfo. roomCreateRequestDto:{}, roomInfoDto:{}, consume:{}", JSONObject.toJSONString(roomCreateRequestDto),
@@ -130,45 +319,52 @@ public class ClassInfoServiceImpl extends ServiceImpl<RoomInfoDao, ClassInfoEnti
 
     @Override
     public RoomInfoDto get(RoomGetRequestDto roomGetRequestDto) {
-        ClassInfoEntity roomInfoEntity = this.getById(roomGetRequestDto.getId());
-        if (roomInfoEntity == null) {
+        RoomInfoDto sharedRoomInfo = roomInfoFlight.execute(roomGetRequestDto.getId(), () -> loadRoomInfo(roomGetRequestDto.getId()));
+        if (sharedRoomInfo == null) {
             log.warn("get roomInfoEntity is null. roomGetRequestDto:{}", JSONObject.toJSONString(roomGetRequestDto));
             return null;
         }
 
         RoomInfoDto roomInfoDto = new RoomInfoDto();
-        BeanUtils.copyProperties(roomInfoEntity, roomInfoDto);
+        BeanUtils.copyProperties(sharedRoomInfo, roomInfoDto);
+        // 连麦状态以内存中的为准，DB中的meeting_info异步写回
+        String meetingInfo = meetingStateStore.getJsonIfLoaded(roomGetRequestDto.getId());
+        if (meetingInfo != null) {
+            roomInfoDto.setMeetingInfo(meetingInfo);
+        }
 
-        LinkInfo rtcInfo = videoCloudService.getRtcInfo(roomInfoEntity.getMeetingId(), roomGetRequestDto.getUserId(), roomInfoEntity.getTeacherId());
+        // 只生成客户端需要的拉流地址
+        PullLiveSelector selector = roomGetRequestDto.pullLiveSelector();
+        LinkInfo rtcInfo = videoCloudService.getRtcInfo(sharedRoomInfo.getMeetingId(), roomGetRequestDto.getUserId(), sharedRoomInfo.getTeacherId(), selector);
         roomInfoDto.setLinkInfo(rtcInfo);
 
-        LinkInfo rtcShadowInfo = videoCloudService.getRtcInfo(roomInfoEntity.getMeetingId(), String.format("%s_%s", roomGetRequestDto.getUserId(), "shadow"),
-                String.format("%s_%s", roomInfoEntity.getTeacherId(), "shadow"));
-        roomInfoDto.setLinkShadowInfo(rtcShadowInfo);
-
-        String mediaId = videoCloudService.searchMediaByTitle(getTitle(roomInfoEntity));
-        if (StringUtils.isNotEmpty(mediaId)) {
-            RoomInfoDto.VodInfo vodInfo = videoCloudService.getPlayInfo(mediaId);
-            if (vodInfo != null) {
-                roomInfoDto.setVodInfo(vodInfo);
-            }
+        if (roomGetRequestDto.shadowRequired()) {
+            LinkInfo rtcShadowInfo = videoCloudService.getRtcInfo(sharedRoomInfo.getMeetingId(), String.format("%s_%s", roomGetRequestDto.getUserId(), "shadow"),
+                    String.format("%s_%s", sharedRoomInfo.getTeacherId(), "shadow"), selector);
+            roomInfoDto.setLinkShadowInfo(rtcShadowInfo);
         }
 
-        RoomInfoDto.Metrics metrics = videoCloudService.getGroupDetails(roomInfoEntity.getId());
-        if (metrics != null) {
-            roomInfoDto.setMetrics(metrics);
-        }
+        return roomInfoDto;
+    }
 
-        RoomInfoDto.UserStatus userStatus = videoCloudService.getUserInfo(roomInfoEntity.getId(), roomInfoEntity.getTeacherId());
-        if (userStatus != null) {
-            roomInfoDto.setUserStatus(userStatus);
-        }
+    /**
+     * 加载课堂中与用户无关的信息，同一课堂的并发调用会被合并。返回的对象会被共享，调用方不能修改
+     */
+    private RoomInfoDto loadRoomInfo(String classId) {
 
-        ClassMemberDto assistantClassMemberDto = classMemberService.getAssistantClassMemberDto(roomInfoEntity.getId());
-        if (assistantClassMemberDto != null) {
-            roomInfoDto.setAssistantClassMemberDto(assistantClassMemberDto);
+        ClassInfoEntity roomInfoEntity = classInfoCache.entities().get(classId, () -> this.getById(classId));
+        if (roomInfoEntity == null || isDeleting(roomInfoEntity)) {
+            return null;
         }
 
+        RoomInfoDto roomInfoDto = new RoomInfoDto();
+        BeanUtils.copyProperties(roomInfoEntity, roomInfoDto);
+
+        if (aggregateAsync) {
+            fillRemoteInfoAsync(roomInfoDto, roomInfoEntity);
+        } else {
+            fillRemoteInfo(roomInfoDto, roomInfoEntity);
+        }
         return roomInfoDto;
     }
 
@@ -176,9 +372,15 @@ public class ClassInfoServiceImpl extends ServiceImpl<RoomInfoDao, ClassInfoEnti
     @Override
     public PageUtils list(RoomListRequestDto roomListRequestDto) {
 
+        if (roomListRequestDto.cursorMode()) {
+            return listByCursor(roomListRequestDto);
+        }
+
         Page<ClassInfoEntity> page = new Page<>(roomListRequestDto.getPageNum(), roomListRequestDto.getPageSize());
         QueryWrapper<ClassInfoEntity> queryWrapper = new QueryWrapper<>();
-        queryWrapper.lambda().orderByDesc(ClassInfoEntity::getCreatedAt);
+        queryWrapper.lambda().ne(ClassInfoEntity::getStatus, (long) ClassRoomStatus.ClassRoomStatusDeleting.getVal())
+                .orderByDesc(ClassInfoEntity::getCreatedAt);
+        applyProjection(queryWrapper, roomListRequestDto.expands());
 
         Page<ClassInfoEntity> roomInfoEntityPage = this.page(page, queryWrapper);
         if (roomInfoEntityPage == null || CollectionUtils.isEmpty(roomInfoEntityPage.getRecords())) {
@@ -186,45 +388,70 @@ public class ClassInfoServiceImpl extends ServiceImpl<RoomInfoDao, ClassInfoEnti
             return null;
         }
 
-        List<Future<RoomInfoDto>> futureList = new ArrayList<>(roomInfoEntityPage.getRecords().size());
-        CountDownLatch countDownLatch = new CountDownLatch(roomInfoEntityPage.getRecords().size());
+        List<RoomInfoDto> roomInfoDtos = batchGetRoomInfoWithBulkhead(roomInfoEntityPage.getRecords(), roomListRequestDto);
+        return new PageUtils(roomInfoDtos, (int) roomInfoEntityPage.getTotal(), (int) roomInfoEntityPage.getSize(), (int) roomInfoEntityPage.getCurrent());
+    }
 
-        for (ClassInfoEntity record : roomInfoEntityPage.getRecords()) {
-            RoomGetRequestDto roomGetRequestDto = new RoomGetRequestDto();
-            roomGetRequestDto.setId(record.getId());
-            roomGetRequestDto.setUserId(record.getTeacherId());
-            Future<RoomInfoDto> future = THREAD_POOL.submit(() -> getRoomInfo(roomGetRequestDto, countDownLatch));
-            futureList.add(future);
-        }
+    /**
+     * 按 (created_at, id) 游标分页，走idx_create_at索引（二级索引隐含主键id），不执行COUNT及OFFSET扫描
+     */
+    private PageUtils listByCursor(RoomListRequestDto roomListRequestDto) {
 
-        try {
-            countDownLatch.await();
-        } catch (InterruptedException e) {
-            log.error(String.format("list InterruptedException. roomListRequestDto: %s", JSONObject.toJSONString(roomListRequestDto)), e);
-            return null;
+        int pageSize = roomListRequestDto.getPageSize();
+        QueryWrapper<ClassInfoEntity> queryWrapper = new QueryWrapper<>();
+        CursorUtils.Cursor cursor = CursorUtils.decode(roomListRequestDto.getCursor());
+        if (cursor != null) {
+            queryWrapper.lambda().and(w -> w.lt(ClassInfoEntity::getCreatedAt, cursor.getCreatedAt())
+                    .or(o -> o.eq(ClassInfoEntity::getCreatedAt, cursor.getCreatedAt()).lt(ClassInfoEntity::getId, cursor.getId())));
+        }
+        // 多查一条用于判断是否还有下一页
+        queryWrapper.lambda().ne(ClassInfoEntity::getStatus, (long) ClassRoomStatus.ClassRoomStatusDeleting.getVal())
+                .orderByDesc(ClassInfoEntity::getCreatedAt).orderByDesc(ClassInfoEntity::getId)
+                .last("LIMIT " + (pageSize + 1));
+        applyProjection(queryWrapper, roomListRequestDto.expands());
+
+        List<ClassInfoEntity> records = this.list(queryWrapper);
+        String nextCursor = null;
+        if (records.size() > pageSize) {
+            records = records.subList(0, pageSize);
+            ClassInfoEntity last = records.get(pageSize - 1);
+            nextCursor = CursorUtils.encode(last.getCreatedAt(), last.getId());
         }
 
-        List<RoomInfoDto> roomInfoDtos = new ArrayList<>(futureList.size());
-        for (Future<RoomInfoDto> roomInfoDtoFuture : futureList) {
-            try {
-                roomInfoDtos.add(roomInfoDtoFuture.get());
-            } catch (Exception e) {
-                log.error(String.format("roomInfoDtoFuture.get() Exception. roomListRequestDto: %s", JSONObject.toJSONString(roomListRequestDto)), e);
-            }
+        int totalCount = -1;
+        if (roomListRequestDto.isWithTotal()) {
+            Long approximateCount = this.baseMapper.approximateCount();
+            totalCount = approximateCount == null ? -1 : approximateCount.intValue();
         }
 
-        return new PageUtils(roomInfoDtos, (int) roomInfoEntityPage.getTotal(), (int) roomInfoEntityPage.getSize(), (int) roomInfoEntityPage.getCurrent());
+        List<RoomInfoDto> roomInfoDtos = records.isEmpty() ? Collections.emptyList()
+                : batchGetRoomInfoWithBulkhead(records, roomListRequestDto);
+        return new PageUtils(roomInfoDtos, totalCount, pageSize, nextCursor);
     }
 
-    @Override
-    public RoomInfoDto stop(RoomUpdateStatusRequestDto roomUpdateStatusRequestDto) {
+    private List<RoomInfoDto> batchGetRoomInfoWithBulkhead(List<ClassInfoEntity> records, RoomListRequestDto roomListRequestDto) {
 
-        boolean valid = verifyPermission(roomUpdateStatusRequestDto.getId(), roomUpdateStatusRequestDto.getUserId());
-        if (!valid) {
-            return null;
+        Set<ClassInfoExpand> expands = roomListRequestDto.expands();
+        if (expands != null && !expands.contains(ClassInfoExpand.VodInfo) && !expands.contains(ClassInfoExpand.Metrics)
+                && !expands.contains(ClassInfoExpand.UserStatus)) {
+            // 不需要远程调用，不占用列表线程池的并发数
+            return batchGetRoomInfo(records, expands);
+        }
+        if (!listBulkhead.tryAcquire()) {
+            log.warn("list rejected, too many concurrent requests. roomListRequestDto: {}", JSONObject.toJSONString(roomListRequestDto));
+            throw new RejectedExecutionException("too many concurrent list requests");
+        }
+        try {
+            return batchGetRoomInfo(records, expands);
+        } finally {
+            listBulkhead.release();
         }
+    }
 
-        boolean result = updateStatus(roomUpdateStatusRequestDto.getId(), ClassRoomStatus.ClassRoomStatusOff);
+    @Override
+    public RoomInfoDto stop(RoomUpdateStatusRequestDto roomUpdateStatusRequestDto) {
+
+        boolean result = changeStatusByTeacher(roomUpdateStatusRequestDto.getId(), roomUpdateStatusRequestDto.getUserId(), ClassRoomStatus.ClassRoomStatusOff);
         if (result) {
             RoomGetRequestDto roomGetRequestDto = new RoomGetRequestDto();
             roomGetRequestDto.setId(roomUpdateStatusRequestDto.getId());
@@ -237,12 +464,7 @@ public class ClassInfoServiceImpl extends ServiceImpl<RoomInfoDao, ClassInfoEnti
     @Override
     public RoomInfoDto pause(RoomUpdateStatusRequestDto roomUpdateStatusRequestDto) {
 
-        boolean valid = verifyPermission(roomUpdateStatusRequestDto.getId(), roomUpdateStatusRequestDto.getUserId());
-        if (!valid) {
-            return null;
-        }
-
-        boolean result = updateStatus(roomUpdateStatusRequestDto.getId(), ClassRoomStatus.ClassRoomStatusPrepare);
+        boolean result = changeStatusByTeacher(roomUpdateStatusRequestDto.getId(), roomUpdateStatusRequestDto.getUserId(), ClassRoomStatus.ClassRoomStatusPrepare);
         if (result) {
             RoomGetRequestDto roomGetRequestDto = new RoomGetRequestDto();
             roomGetRequestDto.setId(roomUpdateStatusRequestDto.getId());
@@ -255,11 +477,7 @@ public class ClassInfoServiceImpl extends ServiceImpl<RoomInfoDao, ClassInfoEnti
     @Override
     public RoomInfoDto start(RoomUpdateStatusRequestDto roomUpdateStatusRequestDto) {
 
-        boolean valid = verifyPermission(roomUpdateStatusRequestDto.getId(), roomUpdateStatusRequestDto.getUserId());
-        if (!valid) {
-            return null;
-        }
-        boolean result = updateStatus(roomUpdateStatusRequestDto.getId(), ClassRoomStatus.ClassRoomStatusOn);
+        boolean result = changeStatusByTeacher(roomUpdateStatusRequestDto.getId(), roomUpdateStatusRequestDto.getUserId(), ClassRoomStatus.ClassRoomStatusOn);
         if (result) {
             RoomGetRequestDto roomGetRequestDto = new RoomGetRequestDto();
             roomGetRequestDto.setId(roomUpdateStatusRequestDto.getId());
@@ -272,30 +490,30 @@ public class ClassInfoServiceImpl extends ServiceImpl<RoomInfoDao, ClassInfoEnti
     @Override
     public RoomInfoDto delete(RoomDeleteRequestDto roomDeleteRequestDto) {
 
-        boolean valid = verifyPermission(roomDeleteRequestDto.getId(), roomDeleteRequestDto.getUserId());
-        if (!valid) {
+        String id = roomDeleteRequestDto.getId();
+        ClassInfoEntity roomInfoEntity = this.getById(id);
+        if (roomInfoEntity == null || isDeleting(roomInfoEntity)) {
+            log.warn("RoomInfoEntity Not Found. roomId:{}", id);
             return null;
         }
-
-        RoomGetRequestDto roomGetRequestDto = new RoomGetRequestDto();
-        roomGetRequestDto.setId(roomDeleteRequestDto.getId());
-        roomGetRequestDto.setUserId(roomDeleteRequestDto.getUserId());
-        RoomInfoDto roomInfoDto = get(roomGetRequestDto);
-        if (roomInfoDto == null) {
+        if (!StringUtils.equals(roomInfoEntity.getTeacherId(), roomDeleteRequestDto.getUserId())) {
+            log.warn("Insufficient permission. roomId:{}, anthor:{}, reqUid:{}", id, roomInfoEntity.getTeacherId(),
+                    roomDeleteRequestDto.getUserId());
             return null;
         }
-        JSONObject jsonBoard = JSON.parseObject(roomInfoDto.getBoardsInfo() == null ? "" : roomInfoDto.getBoardsInfo());
 
-        String cid = jsonBoard.get("cid").toString();
-        BoardCreateResponse result = boardRoomService.deleteBoardRoom(cid);
-        if (result.getCode() == 200) {
-            log.info("deleteBoardRoom 删除成功!!");
-        }
-        if (this.removeById(roomDeleteRequestDto.getId())) {
-            return roomInfoDto;
+        // 只标记为删除中，白板、聊天室等三方资源及成员、签到等关联数据由后台分批清理
+        if (!transitStatus(id, ClassRoomStatus.ClassRoomStatusDeleting, DELETE_TRANSIT_FROM, roomDeleteRequestDto.getUserId())) {
+            log.warn("delete conflict, room is deleting. roomId:{}", id);
+            return null;
         }
+        meetingStateStore.remove(id);
+        roomTeardownService.submit(id);
 
-        return null;
+        RoomInfoDto roomInfoDto = new RoomInfoDto();
+        BeanUtils.copyProperties(roomInfoEntity, roomInfoDto);
+        roomInfoDto.setStatus((long) ClassRoomStatus.ClassRoomStatusDeleting.getVal());
+        return roomInfoDto;
     }
 
     @Override
@@ -314,6 +532,7 @@ public class ClassInfoServiceImpl extends ServiceImpl<RoomInfoDao, ClassInfoEnti
         }
         roomInfoEntity.setUpdatedAt(new Date());
         if (this.updateById(roomInfoEntity)) {
+            classInfoCache.invalidate(roomUpdateRequestDto.getId());
             ClassInfoEntity re = this.getById(roomUpdateRequestDto.getId());
             if (re != null) {
                 RoomGetRequestDto roomGetRequestDto = new RoomGetRequestDto();
@@ -328,50 +547,89 @@ public class ClassInfoServiceImpl extends ServiceImpl<RoomInfoDao, ClassInfoEnti
     @Override
     public MeetingMemberInfo.Members updateMeetingInfo(MeetingActionRequestDto meetingActionRequestDto) {
 
-        ClassInfoEntity roomInfoEntity = this.getById(meetingActionRequestDto.getId());
-        if (roomInfoEntity == null) {
+        MeetingMemberInfo.Members members = meetingStateStore.replace(meetingActionRequestDto.getId(), meetingActionRequestDto.getMembers(),
+                meetingActionRequestDto.getAllMute(), meetingActionRequestDto.getInteractionAllowed());
+        if (members == null) {
             log.warn("RoomInfoEntity Not Found. roomId:{}", meetingActionRequestDto.getId());
             return null;
         }
+        roomEventService.publish(meetingActionRequestDto.getId(), RoomEventType.Meeting, members);
+        return members;
+    }
 
-        ClassInfoEntity re = new ClassInfoEntity();
-        re.setId(meetingActionRequestDto.getId());
-
-        MeetingGetRequestDto meetingGetRequestDto = new MeetingGetRequestDto();
-        meetingGetRequestDto.setId(meetingActionRequestDto.getId());
+    @Override
+    public MeetingMemberInfo.Members updateMeetingMember(MeetingMemberActionRequestDto meetingMemberActionRequestDto) {
 
-        MeetingMemberInfo.Members meetingInfo = getMeetingInfo(meetingGetRequestDto);
-        if (meetingInfo == null) {
-            meetingInfo = new MeetingMemberInfo.Members();
+        String id = meetingMemberActionRequestDto.getId();
+        MeetingMemberInfo member = meetingMemberActionRequestDto.getMember();
+        if (member == null) {
+            member = new MeetingMemberInfo();
         }
-        if (meetingActionRequestDto.getMembers() != null) {
-            meetingInfo.setMembers(meetingActionRequestDto.getMembers());
-        }
-        if (meetingActionRequestDto.getAllMute() != null) {
-            meetingInfo.setAllMute(meetingActionRequestDto.getAllMute());
-        }
-        if (meetingActionRequestDto.getInteractionAllowed() != null) {
-            meetingInfo.setInteractionAllowed(meetingActionRequestDto.getInteractionAllowed());
-        }
-        re.setMeetingInfo(JSONObject.toJSONString(meetingInfo));
-        re.setUpdatedAt(new Date());
+        member.setUserId(meetingMemberActionRequestDto.getUserId());
 
-        if (this.updateById(re)) {
-            return meetingInfo;
+        MeetingMemberInfo.Members members;
+        switch (MeetingMemberAction.of(meetingMemberActionRequestDto.getAction())) {
+            case Add:
+                members = meetingStateStore.addMember(id, member);
+                break;
+            case Remove:
+                members = meetingStateStore.removeMember(id, member.getUserId());
+                break;
+            case Update:
+                members = meetingStateStore.updateMember(id, member);
+                break;
+            case AllMute:
+                members = meetingStateStore.setAllMute(id, Boolean.TRUE.equals(meetingMemberActionRequestDto.getValue()));
+                break;
+            case InteractionAllowed:
+                members = meetingStateStore.setInteractionAllowed(id, Boolean.TRUE.equals(meetingMemberActionRequestDto.getValue()));
+                break;
+            default:
+                return null;
         }
-        return null;
+        if (members == null) {
+            log.warn("RoomInfoEntity Not Found. roomId:{}", id);
+            return null;
+        }
+        roomEventService.publish(id, RoomEventType.MeetingDelta, MeetingDeltaDto.builder()
+                .action(meetingMemberActionRequestDto.getAction())
+                .userId(member.getUserId())
+                .member(meetingMemberActionRequestDto.getMember())
+                .value(meetingMemberActionRequestDto.getValue())
+                .version(members.getVersion())
+                .build());
+        return members;
     }
 
     @Override
     public MeetingMemberInfo.Members getMeetingInfo(MeetingGetRequestDto meetingGetRequestDto) {
 
-        ClassInfoEntity roomInfoEntity = this.getById(meetingGetRequestDto.getId());
-        if (roomInfoEntity == null) {
-            log.warn("RoomInfoEntity Not Found. roomId:{}", meetingGetRequestDto.getId());
-            return null;
-        }
+        return meetingStateStore.get(meetingGetRequestDto.getId());
+    }
+
+    @Override
+    public CompletableFuture<MeetingMemberInfo.Members> pollMeetingInfo(MeetingPollRequestDto meetingPollRequestDto) {
 
-        return JSONObject.parseObject(roomInfoEntity.getMeetingInfo(), MeetingMemberInfo.Members.class);
+        String classId = meetingPollRequestDto.getId();
+        CompletableFuture<MeetingMemberInfo.Members> future = new CompletableFuture<>();
+        Consumer<MeetingMemberInfo.Members> watcher = future::complete;
+        switch (meetingStateStore.watch(classId, meetingPollRequestDto.getVersion(), watcher)) {
+            case REJECTED:
+                return null;
+            case NOT_FOUND:
+                future.complete(null);
+                return future;
+            case WAITING:
+                // 超时或连接断开时由调用方cancel，从等待列表中移除
+                future.whenComplete((members, e) -> {
+                    if (future.isCancelled()) {
+                        meetingStateStore.unwatch(classId, watcher);
+                    }
+                });
+                return future;
+            default:
+                return future;
+        }
     }
 
     @Override
@@ -382,39 +640,107 @@ public class ClassInfoServiceImpl extends ServiceImpl<RoomInfoDao, ClassInfoEnti
             log.warn("InvalidLiveCallbackSign");
             return false;
         }
-        ClassInfoEntity roomInfoEntity = null;
+
+        // 验签后入队即应答，状态更新由后台线程批量处理。队列满时返回失败，由直播服务重试
+        return pushStreamEventPipeline.offer(livePushStreamEventRequestDto);
+    }
+
+    /**
+     * 批量处理推流事件：同一课堂只保留最新的事件（合并推流/断流的抖动），
+     * 早于该课堂已处理事件的乱序事件直接丢弃，然后按目标状态各执行一次批量条件更新
+     */
+    private void applyPushStreamEvents(List<PushStreamEventPipeline.PushStreamEvent> events) {
+
+        Map<String, PushStreamEventPipeline.PushStreamEvent> latestEvents = new HashMap<>();
+        Set<String> streamDoneClassIds = new HashSet<>();
+        for (PushStreamEventPipeline.PushStreamEvent event : events) {
+            LivePushStreamEventRequestDto request = event.getRequest();
+            String classId = resolveClassIdByStreamId(request.getId());
+            if (StringUtils.isEmpty(classId)) {
+                log.warn("handlePushStreamEventCallback roomInfoEntity is null. id:{}", request.getId());
+                continue;
+            }
+            if (PushStreamStatus.PUBLIC_DONE.getStatus().equals(request.getAction())) {
+                streamDoneClassIds.add(classId);
+            }
+            PushStreamEventPipeline.PushStreamEvent previous = latestEvents.get(classId);
+            if (previous == null || event.getTime() >= previous.getTime()) {
+                latestEvents.put(classId, event);
+            }
+            if (previous != null) {
+                coalescedEventCounter.increment();
+            }
+        }
+
+        List<String> publishClassIds = new ArrayList<>();
+        List<String> publishDoneClassIds = new ArrayList<>();
+        latestEvents.forEach((classId, event) -> {
+            Integer lastTime = lastPushStreamEventTimes.getIfPresent(classId);
+            if (lastTime != null && event.getTime() < lastTime) {
+                staleEventCounter.increment();
+                return;
+            }
+            lastPushStreamEventTimes.put(classId, event.getTime());
+            if (PushStreamStatus.PUBLIC.getStatus().equals(event.getRequest().getAction())) {
+                publishClassIds.add(classId);
+            } else if (PushStreamStatus.PUBLIC_DONE.getStatus().equals(event.getRequest().getAction())) {
+                publishDoneClassIds.add(classId);
+            }
+        });
+
+        // 状态判断由条件更新完成，课堂不存在或状态不满足时不会更新
+        int published = transitStatus(publishClassIds, ClassRoomStatus.ClassRoomStatusOn, PUBLISH_TRANSIT_FROM);
+        int publishDone = transitStatus(publishDoneClassIds, ClassRoomStatus.ClassRoomStatusPrepare, PUBLISH_DONE_TRANSIT_FROM);
+        // 本次推流的录制视频生成后保存到vod_id
+        streamDoneClassIds.forEach(vodMediaService::onStreamDone);
+
+        log.info("applyPushStreamEvents. events:{}, rooms:{}, published:{}/{}, publishDone:{}/{}", events.size(), latestEvents.size(),
+                published, publishClassIds.size(), publishDone, publishDoneClassIds.size());
+    }
+
+    /**
+     * 连麦Id与课堂Id的对应关系创建后不会变化，优先读内存，未命中时走idx_meeting_id精确查询
+     */
+    private String getClassIdByMeetingId(String meetingId) {
+
+        String classId = meetingClassIds.getIfPresent(meetingId);
+        if (classId != null) {
+            return classId;
+        }
+        ClassInfoEntity roomInfoEntity = this.lambdaQuery()
+                .select(ClassInfoEntity::getId)
+                .eq(ClassInfoEntity::getMeetingId, meetingId)
+                .last("LIMIT 1")
+                .one();
+        if (roomInfoEntity == null) {
+            return null;
+        }
+        meetingClassIds.put(meetingId, roomInfoEntity.getId());
+        return roomInfoEntity.getId();
+    }
+
+    private String resolveClassIdByStreamId(String streamId) {
+
+        if (StringUtils.isEmpty(streamId)) {
+            return null;
+        }
+        String classId = null;
 
         // StreamId是通过推流URL中的多个字段拼接生成，具体拼接规则为：
         // 如果是视频连麦，其StreamId为：${连麦应用ID}_${房间ID}_${主播ID}_camera。
         // 如果是纯语音连麦，其StreamId为：${连麦应用ID}_${房间ID}_${主播ID}_audio。
         // 见文档：https://help.aliyun.com/document_detail/450515.html
-        if (livePushStreamEventRequestDto.getId().endsWith("_camera") || livePushStreamEventRequestDto.getId().endsWith("_audio")) {
+        if (streamId.endsWith("_camera") || streamId.endsWith("_audio")) {
             //表明是连麦id
-            String[] s = livePushStreamEventRequestDto.getId().split("_");
+            String[] s = streamId.split("_");
             if (s.length >= 3) {
-                String meetingId = s[1];
-                roomInfoEntity = this.lambdaQuery().ge(ClassInfoEntity::getMeetingId, meetingId).one();
+                classId = getClassIdByMeetingId(s[1]);
             }
         } else {
-            roomInfoEntity = this.getById(livePushStreamEventRequestDto.getId());
-        }
-
-        if (roomInfoEntity == null) {
-            log.warn("handlePushStreamEventCallback roomInfoEntity is null");
-            return true;
+            classId = streamId;
         }
 
-        if (PushStreamStatus.PUBLIC.getStatus().equals(livePushStreamEventRequestDto.getAction())) {
-            if (roomInfoEntity.getStatus() == ClassRoomStatus.ClassRoomStatusOff.getVal() || roomInfoEntity.getStatus() == ClassRoomStatus.ClassRoomStatusPrepare.getVal()) {
-                updateStatus(roomInfoEntity.getId(), ClassRoomStatus.ClassRoomStatusOn);
-            }
-        } else if (PushStreamStatus.PUBLIC_DONE.getStatus().equals(livePushStreamEventRequestDto.getAction())) {
-            if (roomInfoEntity.getStatus() == ClassRoomStatus.ClassRoomStatusOn.getVal()) {
-                updateStatus(roomInfoEntity.getId(), ClassRoomStatus.ClassRoomStatusPrepare);
-            }
-        }
-
-        return true;
+        return classId;
     }
 
     @Override
@@ -520,7 +846,7 @@ public class ClassInfoServiceImpl extends ServiceImpl<RoomInfoDao, ClassInfoEnti
     public BoardAuthResponse getWhiteboardAuthInfo() {
         String Nonce = UUID.randomUUID().toString().replaceAll("-", "");
         int CurTime = Math.round((float) System.currentTimeMillis() / 1000);
-        String CheckSum = getCheckSum(APP_SECRET, Nonce, CurTime);
+        String CheckSum = boardChecksumSigner.begin().append(Nonce).append(CurTime).sign();
         return BoardAuthResponse.builder()
                 .nonce(Nonce)
                 .curTime(CurTime)
@@ -528,83 +854,360 @@ public class ClassInfoServiceImpl extends ServiceImpl<RoomInfoDao, ClassInfoEnti
                 .build();
     }
 
-    public static String getCheckSum(String appSecret, String nonce, int curTime) {
-        return encode(appSecret + nonce + curTime);
+    /**
+     * 老师修改课堂状态，权限校验与状态迁移在同一条UPDATE中完成。
+     * 已处于目标状态时视为成功；无权限或课堂不存在时返回false
+     */
+    boolean changeStatusByTeacher(String id, String userId, ClassRoomStatus target) {
+
+        for (int i = 0; i < TEACHER_TRANSIT_RETRY; i++) {
+            if (transitStatus(id, target, TEACHER_TRANSIT_FROM.get(target), userId)) {
+                return true;
+            }
+
+            // 未迁移时才读取一次，区分幂等、无权限、课堂不存在
+            ClassInfoEntity roomInfoEntity = this.getById(id);
+            if (roomInfoEntity == null) {
+                log.warn("RoomInfoEntity Not Found. roomId:{}", id);
+                return false;
+            }
+            if (!StringUtils.equals(roomInfoEntity.getTeacherId(), userId)) {
+                log.warn("Insufficient permission. roomId:{}, anthor:{}, reqUid:{}", id, roomInfoEntity.getTeacherId(), userId);
+                return false;
+            }
+            if (roomInfoEntity.getStatus() != null && roomInfoEntity.getStatus() == target.getVal()) {
+                return true;
+            }
+            // 读取前状态被并发修改过，重试
+        }
+        log.warn("changeStatusByTeacher conflict. roomId:{}, target:{}", id, target);
+        return false;
     }
 
-    private static String encode(String value) {
-        if (value == null) {
-            return null;
+    /**
+     * 状态迁移：UPDATE class_infos SET status = ?, version = version + 1 WHERE id = ? AND status IN (from)。
+     * 无需先读取课堂，返回是否迁移成功。teacherId不为空时同时校验课堂的老师。
+     * from为空（目标状态不允许迁移，如老师操作的目标为删除中）时不迁移，返回false
+     */
+    boolean transitStatus(String id, ClassRoomStatus target, Set<ClassRoomStatus> from, String teacherId) {
+
+        if (CollectionUtils.isEmpty(from)) {
+            log.warn("transitStatus rejected, no source status. roomId:{}, target:{}", id, target);
+            return false;
         }
-        try {
-            MessageDigest messageDigest = MessageDigest.getInstance("sha1");
-            messageDigest.update(value.getBytes());
-            return getFormattedText(messageDigest.digest());
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+        LambdaUpdateWrapper<ClassInfoEntity> update = buildTransitWrapper(target, from).eq(ClassInfoEntity::getId, id);
+        if (StringUtils.isNotEmpty(teacherId)) {
+            update.eq(ClassInfoEntity::getTeacherId, teacherId);
         }
-    }
 
-    private static String getFormattedText(byte[] bytes) {
-        int lens = bytes.length;
-        StringBuilder buf = new StringBuilder(lens * 2);
-        for (byte aByte : bytes) {
-            buf.append(HEX_DIGITS[(aByte >> 4) & 0x0f]);
-            buf.append(HEX_DIGITS[aByte & 0x0f]);
+        boolean updated = this.update(update);
+        if (updated) {
+            classInfoCache.invalidate(id);
+            roomEventService.publish(id, RoomEventType.Status, Collections.singletonMap("status", target.getVal()));
         }
-        return buf.toString();
+        return updated;
     }
 
-    private boolean verifyPermission(String roomId, String reqUid) {
+    /**
+     * 批量状态迁移，所有课堂在一条UPDATE ... WHERE id IN (...) AND status IN (from)中完成。返回实际迁移的课堂数
+     */
+    int transitStatus(Collection<String> ids, ClassRoomStatus target, Set<ClassRoomStatus> from) {
 
-        ClassInfoEntity roomInfoEntity = this.getById(roomId);
-        if (roomInfoEntity == null) {
-            log.warn("RoomInfoEntity Not Found. roomId:{}", roomId);
-            return true;
+        if (CollectionUtils.isEmpty(ids) || CollectionUtils.isEmpty(from)) {
+            return 0;
         }
-
-        if (!roomInfoEntity.getTeacherId().equals(reqUid)) {
-            log.warn("Insufficient permission. roomId:{}, anthor:{}, reqUid:{}", roomId,
-                    roomInfoEntity.getTeacherId(), reqUid);
-            return false;
+        int updated = this.baseMapper.update(null, buildTransitWrapper(target, from).in(ClassInfoEntity::getId, ids));
+        if (updated > 0) {
+            ids.forEach(classInfoCache::invalidate);
+            publishStatusEvents(ids, target, updated);
         }
-        return true;
+        return updated;
     }
 
-    private boolean updateStatus(String id, ClassRoomStatus liveStatus) {
+    /**
+     * 批量迁移后推送状态事件。只处理有订阅者的课堂；部分课堂未迁移时回查一次状态，只推送确实处于目标状态的课堂
+     */
+    private void publishStatusEvents(Collection<String> ids, ClassRoomStatus target, int updated) {
 
-        ClassInfoEntity roomInfoEntity = new ClassInfoEntity();
-        roomInfoEntity.setId(id);
-        roomInfoEntity.setStatus((long) liveStatus.getVal());
+        List<String> subscribedIds = ids.stream().filter(roomEventService::hasSubscribers).collect(Collectors.toList());
+        if (subscribedIds.isEmpty()) {
+            return;
+        }
+        if (updated < ids.size()) {
+            subscribedIds = this.lambdaQuery()
+                    .select(ClassInfoEntity::getId)
+                    .in(ClassInfoEntity::getId, subscribedIds)
+                    .eq(ClassInfoEntity::getStatus, (long) target.getVal())
+                    .list()
+                    .stream()
+                    .map(ClassInfoEntity::getId)
+                    .collect(Collectors.toList());
+        }
+        subscribedIds.forEach(id -> roomEventService.publish(id, RoomEventType.Status, Collections.singletonMap("status", target.getVal())));
+    }
 
-        switch (liveStatus) {
-            case ClassRoomStatusPrepare:
-                break;
+    private static LambdaUpdateWrapper<ClassInfoEntity> buildTransitWrapper(ClassRoomStatus target, Set<ClassRoomStatus> from) {
+
+        Date now = new Date();
+        LambdaUpdateWrapper<ClassInfoEntity> update = Wrappers.<ClassInfoEntity>lambdaUpdate()
+                .set(ClassInfoEntity::getStatus, (long) target.getVal())
+                .set(ClassInfoEntity::getUpdatedAt, now);
+        switch (target) {
             case ClassRoomStatusOn:
-                roomInfoEntity.setStartedAt(new Date());
+                update.set(ClassInfoEntity::getStartedAt, now);
                 break;
             case ClassRoomStatusOff:
-                roomInfoEntity.setStoppedAt(new Date());
+                update.set(ClassInfoEntity::getStoppedAt, now);
+                break;
+            default:
+                break;
         }
-        roomInfoEntity.setUpdatedAt(new Date());
-        return this.updateById(roomInfoEntity);
+        return update.setSql("version = version + 1")
+                .in(ClassInfoEntity::getStatus, from.stream().map(status -> (long) status.getVal()).collect(Collectors.toList()));
     }
 
-    private RoomInfoDto getRoomInfo(RoomGetRequestDto roomGetRequestDto, CountDownLatch countDownLatch) {
+    /**
+     * 批量获取一页课堂的详情：助教一次IN查询，点播视频一次SearchMedia，
+     * 没有批量接口的GetPlayInfo、GetGroupStatistics、ListMessageGroupUserById提交到列表线程池并限流。
+     * expands为null时返回全部信息，否则只获取指定的扩展信息
+     */
+    private List<RoomInfoDto> batchGetRoomInfo(List<ClassInfoEntity> records, Set<ClassInfoExpand> expands) {
+
+        long start = System.currentTimeMillis();
+        boolean needVodInfo = needExpand(expands, ClassInfoExpand.VodInfo);
+        boolean needAssistant = needExpand(expands, ClassInfoExpand.Assistant);
+        List<String> missingAssistantIds = new ArrayList<>();
+        List<ClassInfoEntity> missingVodRecords = new ArrayList<>();
+        for (ClassInfoEntity record : records) {
+            // 只查询了部分字段时不能写入缓存
+            if (needExpand(expands, ClassInfoExpand.Detail)) {
+                classInfoCache.entities().put(record.getId(), record);
+            }
+            if (needAssistant && !classInfoCache.assistants().contains(record.getId())) {
+                missingAssistantIds.add(record.getId());
+            }
+            if (needVodInfo && !classInfoCache.vodInfos().contains(record.getId())) {
+                missingVodRecords.add(record);
+            }
+        }
+
+        if (!missingAssistantIds.isEmpty()) {
+            Map<String, ClassMemberDto> assistants = classMemberService.getAssistantClassMemberDtos(missingAssistantIds);
+            missingAssistantIds.forEach(id -> classInfoCache.assistants().put(id, assistants.get(id)));
+        }
+        Map<String, String> mediaIds = vodMediaService.resolveMediaIds(missingVodRecords);
+        Set<String> missingVodIds = missingVodRecords.stream().map(ClassInfoEntity::getId).collect(Collectors.toSet());
 
+        List<Future<?>> submitted = new ArrayList<>(records.size() * 3);
+        Map<String, Future<RoomInfoDto.VodInfo>> vodFutures = new HashMap<>(records.size());
+        Map<String, Future<RoomInfoDto.Metrics>> metricsFutures = new HashMap<>(records.size());
+        Map<String, Future<RoomInfoDto.UserStatus>> userStatusFutures = new HashMap<>(records.size());
         try {
-            return get(roomGetRequestDto);
-        } catch (Exception e) {
-            log.error(String.format("getRoomInfo. roomGetRequestDto: %s", JSONObject.toJSONString(roomGetRequestDto)), e);
-        } finally {
-            countDownLatch.countDown();
+            for (ClassInfoEntity record : records) {
+                String id = record.getId();
+                if (needVodInfo) {
+                    if (!missingVodIds.contains(id)) {
+                        vodFutures.put(id, CompletableFuture.completedFuture(classInfoCache.vodInfos().get(id, () -> loadVodInfo(record))));
+                    } else {
+                        String mediaId = mediaIds.get(id);
+                        if (StringUtils.isNotEmpty(mediaId)) {
+                            vodFutures.put(id, submitListBranch(classInfoCache.vodInfos(), id, () -> videoCloudService.getPlayInfo(mediaId), submitted));
+                        }
+                    }
+                }
+                if (needExpand(expands, ClassInfoExpand.Metrics)) {
+                    metricsFutures.put(id, submitListBranch(classInfoCache.metrics(), id, () -> videoCloudService.getGroupDetails(id), submitted));
+                }
+                if (needExpand(expands, ClassInfoExpand.UserStatus)) {
+                    userStatusFutures.put(id, submitListBranch(classInfoCache.userStatuses(), id,
+                            () -> videoCloudService.getUserInfo(id, record.getTeacherId()), submitted));
+                }
+            }
+        } catch (RejectedExecutionException e) {
+            log.warn("batchGetRoomInfo rejected, classListExecutor is full. size: {}", records.size());
+            submitted.forEach(future -> future.cancel(true));
+            throw e;
+        }
+
+        List<RoomInfoDto> roomInfoDtos = new ArrayList<>(records.size());
+        for (ClassInfoEntity record : records) {
+            String id = record.getId();
+            RoomInfoDto roomInfoDto = new RoomInfoDto();
+            BeanUtils.copyProperties(record, roomInfoDto);
+
+            List<String> degradedFields = new ArrayList<>();
+            Future<RoomInfoDto.VodInfo> vodFuture = vodFutures.get(id);
+            if (vodFuture != null) {
+                roomInfoDto.setVodInfo(awaitBranch("vod_info", vodFuture, start + vodTimeoutMs, degradedFields));
+            }
+            if (metricsFutures.containsKey(id)) {
+                roomInfoDto.setMetrics(awaitBranch("metrics", metricsFutures.get(id), start + metricsTimeoutMs, degradedFields));
+            }
+            if (userStatusFutures.containsKey(id)) {
+                roomInfoDto.setUserStatus(awaitBranch("user_status", userStatusFutures.get(id), start + userStatusTimeoutMs, degradedFields));
+            }
+            if (needAssistant) {
+                roomInfoDto.setAssistantClassMemberDto(classInfoCache.assistants().get(id, () -> classMemberService.getAssistantClassMemberDto(id)));
+            }
+            if (!degradedFields.isEmpty()) {
+                roomInfoDto.setDegradedFields(degradedFields);
+            }
+
+            if (needExpand(expands, ClassInfoExpand.LinkInfo)) {
+                roomInfoDto.setLinkInfo(videoCloudService.getRtcInfo(record.getMeetingId(), record.getTeacherId(), record.getTeacherId()));
+            }
+            if (needExpand(expands, ClassInfoExpand.ShadowLinkInfo)) {
+                roomInfoDto.setLinkShadowInfo(videoCloudService.getRtcInfo(record.getMeetingId(), String.format("%s_%s", record.getTeacherId(), "shadow"),
+                        String.format("%s_%s", record.getTeacherId(), "shadow")));
+            }
+            roomInfoDtos.add(roomInfoDto);
+        }
+        log.info("batchGetRoomInfo. size:{}, expands:{}, missingAssistant:{}, missingVod:{}, consume:{}", records.size(), expands,
+                missingAssistantIds.size(), missingVodRecords.size(), (System.currentTimeMillis() - start));
+        return roomInfoDtos;
+    }
+
+    private static boolean needExpand(Set<ClassInfoExpand> expands, ClassInfoExpand expand) {
+
+        return expands == null || expands.contains(expand);
+    }
+
+    /**
+     * 按需裁剪查询的列：未指定expand时查询全部列，否则只查询摘要列及扩展信息依赖的列
+     */
+    private static void applyProjection(QueryWrapper<ClassInfoEntity> queryWrapper, Set<ClassInfoExpand> expands) {
+
+        if (needExpand(expands, ClassInfoExpand.Detail)) {
+            return;
+        }
+        Set<String> properties = new HashSet<>(SUMMARY_PROPERTIES);
+        if (expands.contains(ClassInfoExpand.LinkInfo) || expands.contains(ClassInfoExpand.ShadowLinkInfo) || expands.contains(ClassInfoExpand.VodInfo)) {
+            properties.add("meetingId");
+        }
+        if (expands.contains(ClassInfoExpand.VodInfo)) {
+            properties.add("vodId");
+        }
+        queryWrapper.select(ClassInfoEntity.class, fieldInfo -> properties.contains(fieldInfo.getProperty()));
+    }
+
+    /**
+     * 缓存命中时直接返回，未命中时提交到列表线程池，远程调用前需获取限流令牌，获取不到时该分支降级
+     */
+    private <T> Future<T> submitListBranch(ClassInfoCache.Region<T> region, String classId, Supplier<T> loader, List<Future<?>> submitted) {
+
+        if (region.contains(classId)) {
+            return CompletableFuture.completedFuture(region.get(classId, loader));
+        }
+        Future<T> future = listExecutor.submit(() -> region.get(classId, () -> {
+            if (!listRemoteRateLimiter.tryAcquire(listRemoteAcquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new RejectedExecutionException("list remote call rate limited");
+            }
+            return loader.get();
+        }));
+        submitted.add(future);
+        return future;
+    }
+
+    /**
+     * 依次获取点播、统计、禁言、助教等信息
+     */
+    private void fillRemoteInfo(RoomInfoDto roomInfoDto, ClassInfoEntity roomInfoEntity) {
+
+        RoomInfoDto.VodInfo vodInfo = classInfoCache.vodInfos().get(roomInfoEntity.getId(), () -> loadVodInfo(roomInfoEntity));
+        if (vodInfo != null) {
+            roomInfoDto.setVodInfo(vodInfo);
+        }
+
+        RoomInfoDto.Metrics metrics = classInfoCache.metrics().get(roomInfoEntity.getId(), () -> videoCloudService.getGroupDetails(roomInfoEntity.getId()));
+        if (metrics != null) {
+            roomInfoDto.setMetrics(metrics);
         }
+
+        RoomInfoDto.UserStatus userStatus = classInfoCache.userStatuses().get(roomInfoEntity.getId(),
+                () -> videoCloudService.getUserInfo(roomInfoEntity.getId(), roomInfoEntity.getTeacherId()));
+        if (userStatus != null) {
+            roomInfoDto.setUserStatus(userStatus);
+        }
+
+        ClassMemberDto assistantClassMemberDto = classInfoCache.assistants().get(roomInfoEntity.getId(),
+                () -> classMemberService.getAssistantClassMemberDto(roomInfoEntity.getId()));
+        if (assistantClassMemberDto != null) {
+            roomInfoDto.setAssistantClassMemberDto(assistantClassMemberDto);
+        }
+    }
+
+    /**
+     * 并发获取点播、统计、禁言、助教等信息。每个分支有独立的超时时间，超时的分支不返回，并记录到degradedFields中
+     */
+    private void fillRemoteInfoAsync(RoomInfoDto roomInfoDto, ClassInfoEntity roomInfoEntity) {
+
+        long start = System.currentTimeMillis();
+        List<String> degradedFields = new ArrayList<>();
+
+        String id = roomInfoEntity.getId();
+        Future<RoomInfoDto.VodInfo> vodFuture = submitBranch(classInfoCache.vodInfos(), id, () -> loadVodInfo(roomInfoEntity));
+        Future<RoomInfoDto.Metrics> metricsFuture = submitBranch(classInfoCache.metrics(), id, () -> videoCloudService.getGroupDetails(id));
+        Future<RoomInfoDto.UserStatus> userStatusFuture = submitBranch(classInfoCache.userStatuses(), id,
+                () -> videoCloudService.getUserInfo(id, roomInfoEntity.getTeacherId()));
+        Future<ClassMemberDto> assistantFuture = submitBranch(classInfoCache.assistants(), id, () -> classMemberService.getAssistantClassMemberDto(id));
+
+        roomInfoDto.setVodInfo(awaitBranch("vod_info", vodFuture, start + vodTimeoutMs, degradedFields));
+        roomInfoDto.setMetrics(awaitBranch("metrics", metricsFuture, start + metricsTimeoutMs, degradedFields));
+        roomInfoDto.setUserStatus(awaitBranch("user_status", userStatusFuture, start + userStatusTimeoutMs, degradedFields));
+        roomInfoDto.setAssistantClassMemberDto(awaitBranch("assistantPermit", assistantFuture, start + assistantTimeoutMs, degradedFields));
+
+        if (!degradedFields.isEmpty()) {
+            roomInfoDto.setDegradedFields(degradedFields);
+            log.warn("fillRemoteInfoAsync degraded. id:{}, degradedFields:{}, consume:{}", roomInfoEntity.getId(), degradedFields,
+                    (System.currentTimeMillis() - start));
+        }
+    }
+
+    /**
+     * 缓存命中时直接返回，未命中时提交到线程池加载
+     */
+    private <T> Future<T> submitBranch(ClassInfoCache.Region<T> region, String classId, Supplier<T> loader) {
+
+        if (region.contains(classId)) {
+            return CompletableFuture.completedFuture(region.get(classId, loader));
+        }
+        try {
+            return aggregateExecutor.submit(() -> region.get(classId, loader));
+        } catch (RejectedExecutionException e) {
+            log.warn("submitBranch rejected, aggregateExecutor is full");
+            return null;
+        }
+    }
+
+    private <T> T awaitBranch(String field, Future<T> future, long deadline, List<String> degradedFields) {
+
+        if (future == null) {
+            degradedFields.add(field);
+            return null;
+        }
+        try {
+            return future.get(Math.max(deadline - System.currentTimeMillis(), 0L), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            log.warn("awaitBranch timeout. field:{}", field);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            log.warn("awaitBranch interrupted. field:{}", field);
+        } catch (ExecutionException e) {
+            log.error(String.format("awaitBranch exception. field: %s", field), e.getCause());
+        }
+        degradedFields.add(field);
         return null;
     }
 
-    private String getTitle(ClassInfoEntity roomInfoEntity) {
+    private RoomInfoDto.VodInfo loadVodInfo(ClassInfoEntity roomInfoEntity) {
 
-        return String.format("%s_%s_%s_camera", liveMicAppId, roomInfoEntity.getMeetingId(), roomInfoEntity.getTeacherId());
+        String mediaId = vodMediaService.resolveMediaId(roomInfoEntity);
+        if (StringUtils.isNotEmpty(mediaId)) {
+            return videoCloudService.getPlayInfo(mediaId);
+        }
+        return null;
     }
 
     private boolean isOwner(String anchor, String userId) {
@@ -621,17 +1224,25 @@ public class ClassInfoServiceImpl extends ServiceImpl<RoomInfoDao, ClassInfoEnti
 
     public boolean isExistById(String id) {
         ClassInfoEntity roomInfoEntity = this.getById(id);
-        return roomInfoEntity != null;
+        return roomInfoEntity != null && !isDeleting(roomInfoEntity);
     }
 
     @Override
     public ClassInfoEntity getClassInfoEntity(String classId) {
 
-        ClassInfoEntity roomInfoEntity = this.getById(classId);
-        if (roomInfoEntity == null) {
+        ClassInfoEntity roomInfoEntity = classInfoEntityFlight.execute(classId, () -> this.getById(classId));
+        if (roomInfoEntity == null || isDeleting(roomInfoEntity)) {
             log.warn("get roomInfoEntity is null. classId:{}", classId);
             return null;
         }
         return roomInfoEntity;
     }
+
+    /**
+     * 删除中的课堂对外视为不存在
+     */
+    private static boolean isDeleting(ClassInfoEntity roomInfoEntity) {
+
+        return roomInfoEntity.getStatus() != null && roomInfoEntity.getStatus() == ClassRoomStatus.ClassRoomStatusDeleting.getVal();
+    }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.aliyuncs.aui.service.impl;
 
+import com.aliyuncs.aui.cache.ClassInfoCache;
 import com.aliyuncs.aui.common.Constants;
 import com.aliyuncs.aui.dao.ClassMemberDao;
 import com.aliyuncs.aui.dto.AssistantPermitDto;
@@ -8,6 +9,7 @@ import com.aliyuncs.aui.dto.InvokeResult;
 import com.aliyuncs.aui.dto.enums.ClassMemberStatus;
 import com.aliyuncs.aui.dto.enums.Identity;
 import com.aliyuncs.aui.dto.enums.MessageType;
+import com.aliyuncs.aui.dto.enums.RoomEventType;
 import com.aliyuncs.aui.dto.req.*;
 import com.aliyuncs.aui.dto.res.ClassMemberListDto;
 import com.aliyuncs.aui.entity.ClassInfoEntity;
@@ -24,10 +26,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Date;
-import java.util.List;
+import java.util.*;
 
 
 /**
@@ -45,6 +44,10 @@ public class ClassMemberServiceImpl extends ServiceImpl<ClassMemberDao, ClassMem
     private ALiYunService videoCloudService;
     @Resource
     private AssistantPermitService assistantPermitService;
+    @Resource
+    private ClassInfoCache classInfoCache;
+    @Resource
+    private RoomEventService roomEventService;
 
     @Override
     public InvokeResult joinClass(JoinClassRequestDto joinClassRequestDto) {
@@ -104,8 +107,10 @@ public class ClassMemberServiceImpl extends ServiceImpl<ClassMemberDao, ClassMem
         boolean result = this.saveOrUpdate(classMemberEntity);
 
         if (result) {
+            classInfoCache.assistants().invalidate(joinClassRequestDto.getClassId());
             ClassMemberDto classMemberDto = getClassMemberDto(joinClassRequestDto.getClassId(), joinClassRequestDto.getUserId());
             videoCloudService.sendMessageToGroup(classInfoEntity.getAliyunId(), MessageType.Join.getVal(), classMemberDto);
+            roomEventService.publish(joinClassRequestDto.getClassId(), RoomEventType.MemberJoin, classMemberDto);
         }
         return InvokeResult.builder().success(result).build();
     }
@@ -149,8 +154,10 @@ public class ClassMemberServiceImpl extends ServiceImpl<ClassMemberDao, ClassMem
                 .update(classMemberEntity);
 
         if (result) {
+            classInfoCache.assistants().invalidate(leaveClassRequestDto.getClassId());
             ClassMemberDto classMemberDto = getClassMemberDto(leaveClassRequestDto.getClassId(), leaveClassRequestDto.getUserId());
             videoCloudService.sendMessageToGroup(groupId, MessageType.Exit.getVal(), classMemberDto);
+            roomEventService.publish(leaveClassRequestDto.getClassId(), RoomEventType.MemberLeave, classMemberDto);
         }
 
         return InvokeResult.builder().success(true).build();
@@ -183,6 +190,10 @@ public class ClassMemberServiceImpl extends ServiceImpl<ClassMemberDao, ClassMem
                         assistantClassMemberDto.getStatus());
             }
             this.removeById(assistantClassMemberDto.getId());
+            classInfoCache.assistants().invalidate(assistantPermitDeleteRequest.getClassId());
+            if (assistantClassMemberDto.getStatus() == ClassMemberStatus.Normal.getVal()) {
+                roomEventService.publish(assistantPermitDeleteRequest.getClassId(), RoomEventType.MemberLeave, assistantClassMemberDto);
+            }
         }
         return InvokeResult.builder().success(true).build();
     }
@@ -216,6 +227,11 @@ public class ClassMemberServiceImpl extends ServiceImpl<ClassMemberDao, ClassMem
 
         log.info("kickResult:{}, imServer:{}, classId: {}", kickResult, kickClassRequestDto.getImServer(), kickClassRequestDto.getClassId());
         if (kickResult) {
+            classInfoCache.assistants().invalidate(kickClassRequestDto.getClassId());
+            if (roomEventService.hasSubscribers(kickClassRequestDto.getClassId())) {
+                roomEventService.publish(kickClassRequestDto.getClassId(), RoomEventType.MemberKick,
+                        getClassMemberDto(kickClassRequestDto.getClassId(), kickClassRequestDto.getUserId()));
+            }
             if (CollectionUtils.isEmpty(kickClassRequestDto.getImServer()) || kickClassRequestDto.getImServer().contains(Constants.IM_OLD)) {
                 ClassMemberDto classMemberDto = getClassMemberDto(kickClassRequestDto.getClassId(), kickClassRequestDto.getUserId());
                 videoCloudService.sendMessageToGroup(groupId, MessageType.Kick.getVal(), classMemberDto);
@@ -281,9 +297,33 @@ public class ClassMemberServiceImpl extends ServiceImpl<ClassMemberDao, ClassMem
             log.error("classId:{}, identity:{} classMemberEntity is null", classId, Identity.Assistant);
             return null;
         }
+        return convert2ClassMemberDto(classMemberEntity);
+    }
+
+    @Override
+    public Map<String, ClassMemberDto> getAssistantClassMemberDtos(Collection<String> classIds) {
+
+        if (CollectionUtils.isEmpty(classIds)) {
+            return Collections.emptyMap();
+        }
+
+        List<ClassMemberEntity> classMemberEntities = this.lambdaQuery()
+                .in(ClassMemberEntity::getClassId, classIds)
+                .eq(ClassMemberEntity::getIdentity, Identity.Assistant.getVal())
+                .list();
+
+        Map<String, ClassMemberDto> result = new HashMap<>(classMemberEntities.size());
+        for (ClassMemberEntity classMemberEntity : classMemberEntities) {
+            result.putIfAbsent(classMemberEntity.getClassId(), convert2ClassMemberDto(classMemberEntity));
+        }
+        return result;
+    }
+
+    private ClassMemberDto convert2ClassMemberDto(ClassMemberEntity classMemberEntity) {
+
         return ClassMemberDto.builder()
                 .id(classMemberEntity.getId())
-                .classId(classId)
+                .classId(classMemberEntity.getClassId())
                 .userId(classMemberEntity.getUserId())
                 .userName(classMemberEntity.getUserName())
                 .userAvatar(classMemberEntity.getUserAvatar())
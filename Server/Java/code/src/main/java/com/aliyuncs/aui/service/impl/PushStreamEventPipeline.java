@@ -0,0 +1,255 @@
+package com.aliyuncs.aui.service.impl;
+
+import com.aliyuncs.aui.dto.req.LivePushStreamEventRequestDto;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 推流状态回调的异步处理管道：回调线程只负责入队并立即应答，
+ * 单个后台线程批量出队，按 (StreamId, action, time) 去重后交给handler处理，缺少time的事件不去重。
+ * 队列满时拒绝入队，由回调方（直播服务）重试。回调已应答，handler失败时直播服务不会重发，
+ * 因此失败的批次取消去重标记后由后台线程原地重试（不重新入队，保证同一路流的事件顺序），最多处理MAX_ATTEMPTS次。
+ * 指标：push_stream_event.lag（入队到处理的延迟）、push_stream_event.queue.size、
+ * push_stream_event.dropped（reason=duplicate|queue_full|handler_error）、push_stream_event.processed、push_stream_event.retried。
+ *
+ * @author chunlei.zcl
+ */
+@Slf4j
+public class PushStreamEventPipeline {
+
+    private static final int MAX_ATTEMPTS = 5;
+
+    /**
+     * handler失败后第n次重试前等待n倍的该时间
+     */
+    private static final long RETRY_BACKOFF_MS = 1000;
+
+    private final BlockingQueue<PushStreamEvent> queue;
+
+    private final int batchSize;
+
+    private final Consumer<List<PushStreamEvent>> handler;
+
+    /**
+     * 已处理过的事件，直播服务重试的回调在有效期内会被丢弃
+     */
+    private final Cache<String, Boolean> processedKeys;
+
+    private final Thread worker;
+
+    private volatile boolean running = true;
+
+    private final Timer lagTimer;
+
+    private final Counter duplicateCounter;
+
+    private final Counter queueFullCounter;
+
+    private final Counter processedCounter;
+
+    private final Counter retriedCounter;
+
+    private final Counter handlerErrorCounter;
+
+    public PushStreamEventPipeline(int queueCapacity, int batchSize, long dedupeSeconds, MeterRegistry meterRegistry,
+                                   Consumer<List<PushStreamEvent>> handler) {
+
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.handler = handler;
+        this.processedKeys = CacheBuilder.newBuilder()
+                .maximumSize(queueCapacity * 10L)
+                .expireAfterWrite(dedupeSeconds, TimeUnit.SECONDS)
+                .build();
+
+        this.lagTimer = Timer.builder("push_stream_event.lag").register(meterRegistry);
+        this.duplicateCounter = Counter.builder("push_stream_event.dropped").tag("reason", "duplicate").register(meterRegistry);
+        this.queueFullCounter = Counter.builder("push_stream_event.dropped").tag("reason", "queue_full").register(meterRegistry);
+        this.processedCounter = Counter.builder("push_stream_event.processed").register(meterRegistry);
+        this.retriedCounter = Counter.builder("push_stream_event.retried").register(meterRegistry);
+        this.handlerErrorCounter = Counter.builder("push_stream_event.dropped").tag("reason", "handler_error").register(meterRegistry);
+        Gauge.builder("push_stream_event.queue.size", queue, BlockingQueue::size).register(meterRegistry);
+
+        this.worker = new Thread(this::run, "push-stream-event");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * 入队，队列满时返回false
+     */
+    public boolean offer(LivePushStreamEventRequestDto livePushStreamEventRequestDto) {
+
+        if (!queue.offer(new PushStreamEvent(livePushStreamEventRequestDto, System.nanoTime()))) {
+            queueFullCounter.increment();
+            log.warn("PushStreamEventPipeline queue is full. id:{}, action:{}", livePushStreamEventRequestDto.getId(),
+                    livePushStreamEventRequestDto.getAction());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 停止后台线程，并处理队列中剩余的事件
+     */
+    public void shutdown() {
+
+        running = false;
+        worker.interrupt();
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<PushStreamEvent> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            processWithRetry(remaining);
+        }
+    }
+
+    private void run() {
+
+        List<PushStreamEvent> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                PushStreamEvent first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                processWithRetry(batch);
+            } catch (InterruptedException e) {
+                if (running) {
+                    log.warn("PushStreamEventPipeline worker interrupted");
+                }
+            } catch (Exception e) {
+                log.error("PushStreamEventPipeline process error", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void process(List<PushStreamEvent> batch) {
+
+        List<PushStreamEvent> events = new ArrayList<>(batch.size());
+        for (PushStreamEvent event : batch) {
+            String dedupeKey = event.dedupeKey();
+            if (dedupeKey != null && processedKeys.asMap().putIfAbsent(dedupeKey, Boolean.TRUE) != null) {
+                duplicateCounter.increment();
+                continue;
+            }
+            events.add(event);
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+        try {
+            handler.accept(events);
+        } catch (Exception e) {
+            // 取消去重标记，重试时不会被当作重复事件丢弃
+            for (PushStreamEvent event : events) {
+                String dedupeKey = event.dedupeKey();
+                if (dedupeKey != null) {
+                    processedKeys.invalidate(dedupeKey);
+                }
+            }
+            throw new HandlerException(new ArrayList<>(events), e);
+        }
+        processedCounter.increment(events.size());
+    }
+
+    private void processWithRetry(List<PushStreamEvent> batch) {
+
+        long now = System.nanoTime();
+        for (PushStreamEvent event : batch) {
+            lagTimer.record(now - event.getEnqueuedAt(), TimeUnit.NANOSECONDS);
+        }
+
+        List<PushStreamEvent> events = batch;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                process(events);
+                return;
+            } catch (HandlerException e) {
+                events = e.events;
+                if (attempt >= MAX_ATTEMPTS || !running) {
+                    handlerErrorCounter.increment(events.size());
+                    log.error(String.format("PushStreamEventPipeline drop %d events after %d attempts", events.size(), attempt), e.getCause());
+                    return;
+                }
+                log.warn("PushStreamEventPipeline handler error, retry later. attempt:{}, error:{}", attempt, e.getCause().toString());
+                retriedCounter.increment(events.size());
+                try {
+                    Thread.sleep(RETRY_BACKOFF_MS * attempt);
+                } catch (InterruptedException ie) {
+                    // shutdown时不再等待，直接重试一次
+                }
+            }
+        }
+    }
+
+    /**
+     * 队列中的推流事件
+     */
+    public static final class PushStreamEvent {
+
+        private final LivePushStreamEventRequestDto request;
+
+        private final long enqueuedAt;
+
+        PushStreamEvent(LivePushStreamEventRequestDto request, long enqueuedAt) {
+            this.request = request;
+            this.enqueuedAt = enqueuedAt;
+        }
+
+        public LivePushStreamEventRequestDto getRequest() {
+            return request;
+        }
+
+        public long getEnqueuedAt() {
+            return enqueuedAt;
+        }
+
+        /**
+         * 回调中的time为事件发生的Unix时间戳（秒），缺失时按0处理
+         */
+        public int getTime() {
+            return request.getTime() == null ? 0 : request.getTime();
+        }
+
+        /**
+         * 缺少time时返回null，不去重，避免同一路流不同的推流、断流事件在去重有效期内被合并
+         */
+        String dedupeKey() {
+            return request.getTime() == null ? null : request.getId() + "|" + request.getAction() + "|" + request.getTime();
+        }
+    }
+
+    /**
+     * handler处理失败，携带需要重试的事件
+     */
+    private static final class HandlerException extends RuntimeException {
+
+        private final List<PushStreamEvent> events;
+
+        HandlerException(List<PushStreamEvent> events, Throwable cause) {
+            super(cause);
+            this.events = events;
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.aliyuncs.aui.service.impl;
 
 import com.alibaba.fastjson.JSONObject;
 import com.alibaba.fastjson2.util.DateUtils;
+import com.aliyuncs.aui.cache.ImTokenCache;
+import com.aliyuncs.aui.common.resilience.VendorGuard;
 import com.aliyuncs.aui.service.RongCloudServer;
 import io.rong.RongCloud;
 import io.rong.models.chatroom.ChatroomMember;
@@ -17,8 +19,10 @@ import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
 import java.util.Date;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 融云服务实现类
@@ -28,6 +32,7 @@ import java.util.UUID;
 public class RongCloudServerImpl implements RongCloudServer {
 
     private static final int RETRY = 2;
+    private static final String IM_TOKEN_PROVIDER = "rong_cloud";
     private static RongCloud rongCloud;
 
     @Value("${biz.live_rongcloud_im.app_key}")
@@ -36,6 +41,18 @@ public class RongCloudServerImpl implements RongCloudServer {
     @Value("${biz.live_rongcloud_im.app_secret}")
     private String appSecret;
 
+    /**
+     * 融云Token的缓存有效期，需小于融云控制台配置的Token有效期（默认永久有效）
+     */
+    @Value("${biz.im_token.rong_cloud.ttl_seconds:86400}")
+    private long tokenTtlSeconds;
+
+    @Resource
+    private ImTokenCache imTokenCache;
+
+    @Resource
+    private VendorGuard vendorGuard;
+
     @PostConstruct
     public void init() {
 
@@ -49,6 +66,16 @@ public class RongCloudServerImpl implements RongCloudServer {
     @Override
     public String getToken(String userId, String userName, String portrait) {
 
+        // 融云Token与设备无关，同一用户的所有设备共用
+        return imTokenCache.get(IM_TOKEN_PROVIDER, userId, "", () -> {
+            long start = System.currentTimeMillis();
+            String token = vendorGuard.call(VendorGuard.RONG_CLOUD, "user.register", () -> register(userId, userName, portrait));
+            return ImTokenCache.Token.of(token, start + TimeUnit.SECONDS.toMillis(tokenTtlSeconds));
+        });
+    }
+
+    private String register(String userId, String userName, String portrait) {
+
         UserModel userModel = new UserModel()
                 .setId(userId)
                 .setName(userName)
@@ -94,6 +121,28 @@ public class RongCloudServerImpl implements RongCloudServer {
         return null;
     }
 
+    @Override
+    public boolean destroyChatroom(String chatroomId) {
+
+        ChatroomModel chatroomModel = new ChatroomModel();
+        chatroomModel.setId(chatroomId);
+
+        int i = 0;
+        while (i++ < RETRY) {
+            long start = System.currentTimeMillis();
+            try {
+                ResponseResult responseResult = rongCloud.chatroom.destroy(chatroomModel);
+                log.info("destroyChatroom, chatroomId:{}, consume:{}, result:{}", chatroomId, (System.currentTimeMillis() - start), JSONObject.toJSONString(responseResult));
+                if (responseResult.getCode() == 200) {
+                    return true;
+                }
+            } catch (Exception e) {
+                log.error("RongCloudServer.destroyChatroom error. chatroomId:{}, e:{}", chatroomId, e.toString());
+            }
+        }
+        return false;
+    }
+
     @Override
     public boolean muteUser(String chatroomId, String userId, Integer minute) {
 
@@ -0,0 +1,374 @@
+package com.aliyuncs.aui.service.impl;
+
+import com.alibaba.fastjson.JSON;
+import com.aliyuncs.aui.common.utils.Result;
+import com.aliyuncs.aui.dto.req.RoomCreateRequestDto;
+import com.aliyuncs.aui.dto.res.BoardAuthResponse;
+import com.aliyuncs.aui.dto.res.BoardCreateResponse;
+import com.aliyuncs.aui.dto.res.RoomInfoDto;
+import com.aliyuncs.aui.service.*;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+import static com.aliyuncs.aui.common.Constants.*;
+
+/**
+ * 课堂创建编排。各三方资源按依赖关系并行创建：
+ * 老IM消息组与融云聊天室互不依赖，同时创建；新IM消息组沿用老IM的消息组Id，只开通新IM时Id由服务端生成；
+ * 白板的channelName为课堂Id，课堂Id确定后即可创建。创建耗时约为各三方接口耗时的最大值而不是总和。
+ * 开启资源池时优先租用预创建的资源，全部命中时创建课堂无需等待三方接口。
+ * 任一步失败、超时或写库失败时，已创建（包括超时后才创建成功）的资源都会被异步删除。
+ * 携带request_token的请求在本实例内去重，重试不会重复创建资源。
+ *
+ * @author chunlei.zcl
+ */
+@Service("roomCreateService")
+@Slf4j
+public class RoomCreateServiceImpl implements RoomCreateService {
+
+    private static final String STEP_OLD_IM = "aliyun_old_im";
+
+    private static final String STEP_NEW_IM = "aliyun_new_im";
+
+    private static final String STEP_RONG_CLOUD = "rong_cloud";
+
+    private static final String STEP_BOARD = "board";
+
+    @Value("${biz.class_info.create.timeout_ms:10000}")
+    private long createTimeoutMs;
+
+    /**
+     * 创建请求幂等键的保存时间，需覆盖客户端的重试时间
+     */
+    @Value("${biz.class_info.create.idempotency_ttl_seconds:600}")
+    private long idempotencyTtlSeconds;
+
+    @Value("${biz.class_info.create.idempotency_max_size:10000}")
+    private long idempotencyMaxSize;
+
+    @Resource
+    private ALiYunService aLiyunService;
+
+    @Resource
+    private RongCloudServer rongCloudServer;
+
+    @Resource
+    private BoardRoomService boardRoomService;
+
+    @Resource
+    private ClassInfoService classInfoService;
+
+    @Resource
+    private WarmPoolService warmPoolService;
+
+    @Resource(name = "roomCreateExecutor")
+    private ExecutorService roomCreateExecutor;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * teacherId:requestToken -> 首次请求的结果
+     */
+    private Cache<String, CompletableFuture<Result>> requests;
+
+    private Counter executedCounter;
+
+    private Counter replayedCounter;
+
+    @PostConstruct
+    public void init() {
+
+        requests = CacheBuilder.newBuilder()
+                .maximumSize(idempotencyMaxSize)
+                .expireAfterWrite(idempotencyTtlSeconds, TimeUnit.SECONDS)
+                .build();
+        executedCounter = Counter.builder("room_create.idempotent").tag("result", "executed").register(meterRegistry);
+        replayedCounter = Counter.builder("room_create.idempotent").tag("result", "replayed").register(meterRegistry);
+    }
+
+    @Override
+    public Result createRoomInfo(RoomCreateRequestDto roomCreateRequestDto) {
+
+        return deduplicate(roomCreateRequestDto, () -> doCreateRoomInfo(roomCreateRequestDto));
+    }
+
+    @Override
+    public Result deduplicate(RoomCreateRequestDto roomCreateRequestDto, Supplier<Result> creator) {
+
+        if (StringUtils.isEmpty(roomCreateRequestDto.getRequestToken())) {
+            return creator.get();
+        }
+
+        String key = roomCreateRequestDto.getTeacherId() + ":" + roomCreateRequestDto.getRequestToken();
+        CompletableFuture<Result> future = new CompletableFuture<>();
+        CompletableFuture<Result> existing = requests.asMap().putIfAbsent(key, future);
+        if (existing != null) {
+            replayedCounter.increment();
+            log.info("createRoomInfo replayed. teacher:{}, requestToken:{}", roomCreateRequestDto.getTeacherId(), roomCreateRequestDto.getRequestToken());
+            return await(existing);
+        }
+
+        executedCounter.increment();
+        Result result = null;
+        try {
+            result = creator.get();
+            return result;
+        } finally {
+            // 失败的结果不保存，客户端重试时重新创建
+            if (result == null || !result.isSuccess()) {
+                requests.asMap().remove(key, future);
+            }
+            future.complete(result == null ? Result.error() : result);
+        }
+    }
+
+    private Result await(CompletableFuture<Result> future) {
+
+        try {
+            return future.get(createTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return Result.error("create room in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.error();
+        } catch (ExecutionException e) {
+            return Result.error();
+        }
+    }
+
+    private Result doCreateRoomInfo(RoomCreateRequestDto roomCreateRequestDto) {
+
+        List<String> imServer = roomCreateRequestDto.getImServer();
+        if (!imServer.contains(IM_OLD) && !imServer.contains(IM_NEW) && !imServer.contains(RONG_CLOUD)) {
+            return Result.invalidParam();
+        }
+        if (!imServer.contains(RONG_CLOUD)) {
+            log.warn("imServer: IM group service is not configured");
+        }
+
+        long start = System.nanoTime();
+        Creation creation = new Creation();
+        Result result = null;
+        try {
+            result = create(roomCreateRequestDto, creation);
+        } finally {
+            // 失败或异常（包括线程池已满、写库异常）时删除已创建的资源
+            if (result == null || !result.isSuccess()) {
+                creation.compensate();
+            }
+        }
+        Timer.builder("room_create.latency")
+                .tag("result", result.isSuccess() ? "success" : "failed")
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return result;
+    }
+
+    private Result create(RoomCreateRequestDto roomCreateRequestDto, Creation creation) {
+
+        List<String> imServer = roomCreateRequestDto.getImServer();
+        String teacherId = roomCreateRequestDto.getTeacherId();
+
+        boolean oldImServer = imServer.contains(IM_OLD);
+        boolean newImServer = imServer.contains(IM_NEW);
+
+        // 优先租用预创建的资源，未命中时实时创建
+        String pooledGroupId = oldImServer || newImServer ? warmPoolService.leaseImGroup(oldImServer, newImServer) : null;
+        // 租用的消息组由资源池创建，回滚及删除课堂时需以资源池的创建者作为操作者
+        String imCreatorId = pooledGroupId != null ? warmPoolService.getCreatorId() : null;
+        CompletableFuture<String> oldIm = CompletableFuture.completedFuture(null);
+        if (oldImServer) {
+            oldIm = creation.track(STEP_OLD_IM, pooledGroupId != null ? CompletableFuture.completedFuture(pooledGroupId)
+                    : provision("aliyun createMessageGroup", teacherId, () -> aLiyunService.createMessageGroup(teacherId)), aLiyunService::deleteMessageGroup);
+        }
+
+        CompletableFuture<String> rongCloud = CompletableFuture.completedFuture(null);
+        if (imServer.contains(RONG_CLOUD)) {
+            String pooledChatroomId = warmPoolService.leaseChatroom();
+            rongCloud = creation.track(STEP_RONG_CLOUD, pooledChatroomId != null ? CompletableFuture.completedFuture(pooledChatroomId)
+                    : provision("rongCloud createMessageGroup", teacherId, () -> rongCloudServer.createChatroom(teacherId)), rongCloudServer::destroyChatroom);
+        }
+
+        // 课堂Id优先使用IM消息组Id，其次使用融云聊天室Id
+        CompletableFuture<String> aLiYunId = oldIm;
+        CompletableFuture<String> classId = oldImServer ? oldIm : rongCloud;
+        if (newImServer) {
+            CompletableFuture<String> groupId = oldImServer ? oldIm
+                    : CompletableFuture.completedFuture(pooledGroupId != null ? pooledGroupId : UUID.randomUUID().toString().replaceAll("-", ""));
+            aLiYunId = creation.track(STEP_NEW_IM, pooledGroupId != null ? CompletableFuture.completedFuture(pooledGroupId)
+                    : groupId.thenCompose(id -> provision("aliyun createNewImMessageGroup", teacherId, () -> aLiyunService.createNewImMessageGroup(id, teacherId))),
+                    id -> aLiyunService.deleteNewImMessageGroup(id, StringUtils.defaultIfEmpty(imCreatorId, teacherId)));
+            classId = groupId;
+        }
+
+        //  创建白板
+        BoardCreateResponse pooledBoard = warmPoolService.leaseBoardRoom(roomCreateRequestDto.getTitle());
+        CompletableFuture<BoardCreateResponse> board = creation.track(STEP_BOARD, pooledBoard != null ? CompletableFuture.completedFuture(pooledBoard)
+                        : classId.thenCompose(id -> CompletableFuture.supplyAsync(() -> createBoardRoom(roomCreateRequestDto, id), roomCreateExecutor)),
+                // 没有cid说明白板未创建成功，无需回滚
+                createResponse -> StringUtils.isEmpty(createResponse.getCid()) || boardRoomService.deleteBoardRoom(createResponse.getCid()).getCode() == 200);
+
+        Result failure = awaitAll(oldIm, rongCloud, aLiYunId, board);
+        if (failure != null) {
+            return failure;
+        }
+
+        RoomInfoDto roomInfo = classInfoService.createRoomInfo(roomCreateRequestDto, board.join(), aLiYunId.join(), rongCloud.join(), imCreatorId);
+        log.info("roomInfoDto: {}", roomInfo);
+        if (roomInfo != null) {
+            return Result.ok(roomInfo);
+        }
+        return Result.error();
+    }
+
+    private CompletableFuture<String> provision(String name, String teacherId, Supplier<String> creator) {
+
+        return CompletableFuture.supplyAsync(() -> {
+            String id = creator.get();
+            if (StringUtils.isEmpty(id)) {
+                log.error("{} error. teacher:{}", name, teacherId);
+                throw new ProvisionException(Result.error(String.format("%s error. teacher: %s", name, teacherId)));
+            }
+            return id;
+        }, roomCreateExecutor);
+    }
+
+    private BoardCreateResponse createBoardRoom(RoomCreateRequestDto roomCreateRequestDto, String boardRoomId) {
+
+        BoardAuthResponse boardAuthResponse = classInfoService.getWhiteboardAuthInfo();
+        BoardCreateResponse createResponse = boardRoomService.createBoardRoom(roomCreateRequestDto, boardAuthResponse, boardRoomId);
+        log.info("创建白板:  " + JSON.toJSONString(createResponse));
+        // 返回200但没有cid时同样视为失败，否则后续无法删除该白板
+        if (createResponse.getCode() != 200 || StringUtils.isEmpty(createResponse.getCid())) {
+            throw new ProvisionException(Result.error(createResponse.getCode() != 200 ? createResponse.getCode() : 500, createResponse.getMessage()));
+        }
+        return createResponse;
+    }
+
+    /**
+     * 等待全部步骤完成，任一步失败时立即返回，不等待其余步骤。全部成功时返回null
+     */
+    private Result awaitAll(CompletableFuture<?>... futures) {
+
+        CompletableFuture<Void> firstFailure = new CompletableFuture<>();
+        for (CompletableFuture<?> future : futures) {
+            future.whenComplete((value, e) -> {
+                if (e != null) {
+                    firstFailure.completeExceptionally(e);
+                }
+            });
+        }
+        CompletableFuture.allOf(futures).thenRun(() -> firstFailure.complete(null));
+
+        try {
+            firstFailure.get(createTimeoutMs, TimeUnit.MILLISECONDS);
+            return null;
+        } catch (TimeoutException e) {
+            log.error("createRoomInfo timeout. timeoutMs:{}", createTimeoutMs);
+            return Result.error("create room timeout");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.error();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof ProvisionException) {
+                return ((ProvisionException) cause).result;
+            }
+            if (cause instanceof RejectedExecutionException) {
+                return Result.overload();
+            }
+            log.error("createRoomInfo error", cause);
+            return Result.error();
+        }
+    }
+
+    /**
+     * 一次创建过程中已发起的步骤，失败时用于补偿
+     */
+    private class Creation {
+
+        private final List<Runnable> compensations = new ArrayList<>();
+
+        <T> CompletableFuture<T> track(String step, CompletableFuture<T> future, Compensator<T> compensator) {
+
+            compensations.add(() -> future.thenAccept(resource -> {
+                if (resource != null) {
+                    submit(() -> compensate(step, resource, compensator));
+                }
+            }));
+            return future;
+        }
+
+        /**
+         * 已创建成功的资源立即删除，仍在创建中的资源在创建成功后删除
+         */
+        void compensate() {
+
+            compensations.forEach(Runnable::run);
+        }
+
+        private <T> void compensate(String step, T resource, Compensator<T> compensator) {
+
+            boolean deleted;
+            try {
+                deleted = compensator.delete(resource);
+            } catch (Exception e) {
+                log.error(String.format("createRoomInfo compensate error. step: %s", step), e);
+                deleted = false;
+            }
+            if (!deleted) {
+                log.error("createRoomInfo compensate failed, resource leaked. step:{}, resource:{}", step, JSON.toJSONString(resource));
+            }
+            Counter.builder("room_create.compensation")
+                    .tag("step", step)
+                    .tag("result", deleted ? "success" : "failed")
+                    .register(meterRegistry)
+                    .increment();
+        }
+
+        private void submit(Runnable task) {
+
+            try {
+                roomCreateExecutor.execute(task);
+            } catch (RejectedExecutionException e) {
+                // 线程池已满时在当前线程执行，避免资源泄漏
+                task.run();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Compensator<T> {
+
+        boolean delete(T resource);
+    }
+
+    /**
+     * 三方资源创建失败，result为返回给客户端的结果
+     */
+    private static class ProvisionException extends RuntimeException {
+
+        private final Result result;
+
+        ProvisionException(Result result) {
+            super(result.getErrorMsg());
+            this.result = result;
+        }
+    }
+}
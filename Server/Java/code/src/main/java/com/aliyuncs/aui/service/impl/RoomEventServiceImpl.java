@@ -0,0 +1,208 @@
+package com.aliyuncs.aui.service.impl;
+
+import com.aliyuncs.aui.common.concurrent.KeyedSerialExecutor;
+import com.aliyuncs.aui.common.concurrent.MonitoredThreadPoolExecutor;
+import com.aliyuncs.aui.dto.enums.RoomEventType;
+import com.aliyuncs.aui.service.RoomEventService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 课堂事件推送实现。订阅关系只保存在本实例内存中，同一课堂的事件按发布顺序串行发送，不同课堂在线程池中并行发送，
+ * 某个课堂的客户端发送阻塞时不影响其他课堂；课堂待发送事件过多或线程池队列满时丢弃事件，客户端可通过getMeetingInfo等接口重新同步。
+ *
+ * @author chunlei.zcl
+ */
+@Service("roomEventService")
+@Slf4j
+public class RoomEventServiceImpl implements RoomEventService {
+
+    @Value("${biz.room_event.max_subscribers:10000}")
+    private int maxSubscribers;
+
+    @Value("${biz.room_event.max_subscribers_per_room:2000}")
+    private int maxSubscribersPerRoom;
+
+    /**
+     * SSE连接的最长保持时间，超时后客户端自动重连
+     */
+    @Value("${biz.room_event.emitter_timeout_ms:1800000}")
+    private long emitterTimeoutMs;
+
+    /**
+     * 单个课堂待发送的事件数上限
+     */
+    @Value("${biz.room_event.max_pending_per_room:1000}")
+    private int maxPendingPerRoom;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource(name = "roomEventExecutor")
+    private MonitoredThreadPoolExecutor roomEventExecutor;
+
+    /**
+     * 按课堂串行发送
+     */
+    private KeyedSerialExecutor<String> roomDispatcher;
+
+    private final ConcurrentMap<String, Set<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    private Counter rejectedCounter;
+
+    private Counter sentCounter;
+
+    private Counter droppedCounter;
+
+    @PostConstruct
+    public void init() {
+
+        roomDispatcher = new KeyedSerialExecutor<>(roomEventExecutor, maxPendingPerRoom, 64);
+
+        Gauge.builder("room_event.subscribers", subscriberCount, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("room_event.rooms", subscribers, ConcurrentMap::size).register(meterRegistry);
+        rejectedCounter = Counter.builder("room_event.subscribe.rejected").register(meterRegistry);
+        sentCounter = Counter.builder("room_event.sent").register(meterRegistry);
+        droppedCounter = Counter.builder("room_event.dropped").register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void destroy() {
+
+        subscribers.values().forEach(room -> room.forEach(SseEmitter::complete));
+        subscribers.clear();
+    }
+
+    @Override
+    public SseEmitter subscribe(String classId) {
+
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            rejectedCounter.increment();
+            log.warn("RoomEvent subscribe rejected, too many subscribers. classId:{}", classId);
+            return null;
+        }
+
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        boolean[] added = {false};
+        subscribers.compute(classId, (key, room) -> {
+            if (room == null) {
+                room = new CopyOnWriteArraySet<>();
+            }
+            if (room.size() < maxSubscribersPerRoom) {
+                added[0] = room.add(emitter);
+            }
+            return room.isEmpty() ? null : room;
+        });
+        if (!added[0]) {
+            subscriberCount.decrementAndGet();
+            rejectedCounter.increment();
+            log.warn("RoomEvent subscribe rejected, too many subscribers in room. classId:{}", classId);
+            return null;
+        }
+
+        emitter.onCompletion(() -> unsubscribe(classId, emitter));
+        emitter.onTimeout(() -> unsubscribe(classId, emitter));
+        emitter.onError(e -> unsubscribe(classId, emitter));
+        try {
+            // 立即写出响应头，客户端据此确认订阅成功
+            emitter.send(SseEmitter.event().comment("connected"));
+        } catch (IOException e) {
+            unsubscribe(classId, emitter);
+            return null;
+        }
+        return emitter;
+    }
+
+    @Override
+    public void publish(String classId, RoomEventType type, Object data) {
+
+        if (!hasSubscribers(classId)) {
+            return;
+        }
+        try {
+            roomDispatcher.execute(classId, () -> dispatch(classId, type, data));
+        } catch (RejectedExecutionException e) {
+            droppedCounter.increment();
+            log.warn("RoomEvent dropped, too many pending events. classId:{}, type:{}", classId, type.getVal());
+        }
+    }
+
+    @Override
+    public boolean hasSubscribers(String classId) {
+
+        return subscribers.containsKey(classId);
+    }
+
+    /**
+     * 定时发送心跳注释，防止空闲连接被代理断开，同时及时清理已断开的连接
+     */
+    @Scheduled(fixedDelayString = "${biz.room_event.heartbeat_interval_ms:15000}")
+    public void heartbeat() {
+
+        subscribers.forEach((classId, room) -> {
+            try {
+                roomDispatcher.execute(classId, () -> room.forEach(emitter -> send(classId, emitter, SseEmitter.event().comment("ping"))));
+            } catch (RejectedExecutionException e) {
+                log.warn("RoomEvent heartbeat skipped, too many pending events. classId:{}", classId);
+            }
+        });
+    }
+
+    private void dispatch(String classId, RoomEventType type, Object data) {
+
+        Set<SseEmitter> room = subscribers.get(classId);
+        if (room == null) {
+            return;
+        }
+        for (SseEmitter emitter : room) {
+            if (send(classId, emitter, SseEmitter.event().name(type.getVal()).data(data, MediaType.APPLICATION_JSON))) {
+                sentCounter.increment();
+            }
+        }
+    }
+
+    private boolean send(String classId, SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+
+        try {
+            emitter.send(event);
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // 连接已断开，容器随后会回调onError/onCompletion，这里先移除避免继续写入
+            unsubscribe(classId, emitter);
+            return false;
+        }
+    }
+
+    private void unsubscribe(String classId, SseEmitter emitter) {
+
+        boolean[] removed = {false};
+        subscribers.computeIfPresent(classId, (key, room) -> {
+            removed[0] = room.remove(emitter);
+            return room.isEmpty() ? null : room;
+        });
+        if (removed[0]) {
+            subscriberCount.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package com.aliyuncs.aui.service.impl;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.aliyuncs.aui.dao.*;
+import com.aliyuncs.aui.dto.enums.ClassRoomStatus;
+import com.aliyuncs.aui.entity.*;
+import com.aliyuncs.aui.service.ALiYunService;
+import com.aliyuncs.aui.service.BoardRoomService;
+import com.aliyuncs.aui.service.RongCloudServer;
+import com.aliyuncs.aui.service.RoomTeardownService;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.google.common.collect.Iterables;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.time.DateUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Resource;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * 课堂删除清理流水线，进度以class_infos.status = 删除中为准，重启后由定时扫描继续：
+ * 1. 删除三方资源：白板、融云聊天室失败时在下次扫描重试，超过次数后记录泄漏并继续；
+ *    阿里云IM消息组未记录属于新IM还是老IM，两种都尝试删除一次，不重试
+ * 2. 分批删除签到记录、签到、成员、踢出名单、课件、助教权限，每条DELETE最多删除chunk_size行
+ * 3. 删除课堂
+ * 每一步都可重复执行，中途失败时下次从头再来。
+ * 多实例部署时定时扫描在每个实例上运行，处理前以updated_at为租约抢占课堂（条件UPDATE），
+ * 抢占后claim_seconds内其他实例不会重复清理；删除请求迁移状态时也会刷新updated_at，由发起删除的实例先处理。
+ * 三方资源的重试次数记录在各实例内存中，课堂被不同实例抢占时分别计数，泄漏前最多重试 max_vendor_attempts × 实例数 次。
+ *
+ * @author chunlei.zcl
+ */
+@Service
+@Slf4j
+public class RoomTeardownServiceImpl extends ServiceImpl<RoomInfoDao, ClassInfoEntity> implements RoomTeardownService {
+
+    private static final String STEP_BOARD = "board";
+
+    private static final String STEP_RONG_CLOUD = "rong_cloud";
+
+    private static final String STEP_ALIYUN_IM = "aliyun_im";
+
+    @Value("${biz.class_info.teardown.sweep_batch_size:20}")
+    private int sweepBatchSize;
+
+    @Value("${biz.class_info.teardown.chunk_size:500}")
+    private int chunkSize;
+
+    @Value("${biz.class_info.teardown.max_vendor_attempts:5}")
+    private int maxVendorAttempts;
+
+    /**
+     * 定时扫描抢占课堂的租约时长，需大于单个课堂的清理耗时
+     */
+    @Value("${biz.class_info.teardown.claim_seconds:120}")
+    private int claimSeconds;
+
+    @Resource
+    private BoardRoomService boardRoomService;
+
+    @Resource
+    private RongCloudServer rongCloudServer;
+
+    @Resource
+    private ALiYunService aLiYunService;
+
+    @Resource
+    private ClassMemberDao classMemberDao;
+
+    @Resource
+    private ClassKickMemberDao classKickMemberDao;
+
+    @Resource
+    private ClassCheckInDao classCheckInDao;
+
+    @Resource
+    private ClassCheckInRecordDao classCheckInRecordDao;
+
+    @Resource
+    private CoursewareInfoDao coursewareInfoDao;
+
+    @Resource
+    private AssistantPermitDao assistantPermitDao;
+
+    @Resource(name = "roomTeardownExecutor")
+    private ExecutorService roomTeardownExecutor;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 正在清理的课堂，避免提交与定时扫描重复处理
+     */
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 课堂Id -> 三方资源的清理进度，清理完成后移除
+     */
+    private final ConcurrentMap<String, VendorProgress> vendorProgresses = new ConcurrentHashMap<>();
+
+    @Override
+    public void submit(String classId) {
+
+        if (!inFlight.add(classId)) {
+            return;
+        }
+        try {
+            roomTeardownExecutor.execute(() -> {
+                try {
+                    teardown(classId);
+                } finally {
+                    inFlight.remove(classId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(classId);
+            log.warn("RoomTeardown submit rejected, wait for sweep. classId:{}", classId);
+        }
+    }
+
+    /**
+     * 兜底扫描删除中的课堂：提交失败、清理失败或实例重启的课堂在这里继续清理
+     */
+    @Scheduled(fixedDelayString = "${biz.class_info.teardown.sweep_interval_ms:60000}")
+    public void sweep() {
+
+        Date now = new Date();
+        Date leaseExpiredBefore = DateUtils.addSeconds(now, -claimSeconds);
+        List<ClassInfoEntity> deleting = this.lambdaQuery()
+                .select(ClassInfoEntity::getId, ClassInfoEntity::getUpdatedAt)
+                .eq(ClassInfoEntity::getStatus, (long) ClassRoomStatus.ClassRoomStatusDeleting.getVal())
+                .and(w -> w.isNull(ClassInfoEntity::getUpdatedAt).or().le(ClassInfoEntity::getUpdatedAt, leaseExpiredBefore))
+                .orderByAsc(ClassInfoEntity::getUpdatedAt)
+                .last("LIMIT " + sweepBatchSize)
+                .list();
+        for (ClassInfoEntity classInfoEntity : deleting) {
+            if (!inFlight.contains(classInfoEntity.getId()) && claim(classInfoEntity, now)) {
+                submit(classInfoEntity.getId());
+            }
+        }
+    }
+
+    /**
+     * 抢占课堂：updated_at仍为读取时的值才刷新为当前时间，其他实例已抢占时返回false
+     */
+    private boolean claim(ClassInfoEntity classInfoEntity, Date now) {
+
+        LambdaUpdateWrapper<ClassInfoEntity> update = Wrappers.<ClassInfoEntity>lambdaUpdate()
+                .set(ClassInfoEntity::getUpdatedAt, now)
+                .eq(ClassInfoEntity::getId, classInfoEntity.getId())
+                .eq(ClassInfoEntity::getStatus, (long) ClassRoomStatus.ClassRoomStatusDeleting.getVal());
+        if (classInfoEntity.getUpdatedAt() == null) {
+            update.isNull(ClassInfoEntity::getUpdatedAt);
+        } else {
+            update.eq(ClassInfoEntity::getUpdatedAt, classInfoEntity.getUpdatedAt());
+        }
+        return this.update(update);
+    }
+
+    private void teardown(String classId) {
+
+        long start = System.currentTimeMillis();
+        try {
+            ClassInfoEntity classInfoEntity = this.lambdaQuery()
+                    .select(ClassInfoEntity::getId, ClassInfoEntity::getStatus, ClassInfoEntity::getTeacherId, ClassInfoEntity::getBoardsInfo,
+                            ClassInfoEntity::getAliyunId, ClassInfoEntity::getRongCloudId, ClassInfoEntity::getImCreatorId)
+                    .eq(ClassInfoEntity::getId, classId)
+                    .one();
+            if (classInfoEntity == null || classInfoEntity.getStatus() == null
+                    || classInfoEntity.getStatus() != ClassRoomStatus.ClassRoomStatusDeleting.getVal()) {
+                vendorProgresses.remove(classId);
+                return;
+            }
+
+            if (!teardownVendorResources(classInfoEntity)) {
+                return;
+            }
+
+            int rows = purgeRelatedRows(classId);
+            this.remove(Wrappers.<ClassInfoEntity>lambdaQuery()
+                    .eq(ClassInfoEntity::getId, classId)
+                    .eq(ClassInfoEntity::getStatus, (long) ClassRoomStatus.ClassRoomStatusDeleting.getVal()));
+            vendorProgresses.remove(classId);
+            increment("success");
+            log.info("RoomTeardown done. classId:{}, rows:{}, consume:{}", classId, rows, (System.currentTimeMillis() - start));
+        } catch (Exception e) {
+            increment("failed");
+            log.error(String.format("RoomTeardown error. classId: %s", classId), e);
+        }
+    }
+
+    /**
+     * 删除三方资源，返回是否可以继续删除数据。需要重试时返回false
+     */
+    private boolean teardownVendorResources(ClassInfoEntity classInfoEntity) {
+
+        VendorProgress progress = vendorProgresses.computeIfAbsent(classInfoEntity.getId(), k -> new VendorProgress());
+        progress.attempts++;
+
+        if (!progress.done.contains(STEP_BOARD)) {
+            String cid = getBoardCid(classInfoEntity.getBoardsInfo());
+            if (cid == null || boardRoomService.deleteBoardRoom(cid).getCode() == 200) {
+                progress.done.add(STEP_BOARD);
+            }
+        }
+        if (!progress.done.contains(STEP_RONG_CLOUD)) {
+            if (StringUtils.isEmpty(classInfoEntity.getRongCloudId()) || rongCloudServer.destroyChatroom(classInfoEntity.getRongCloudId())) {
+                progress.done.add(STEP_RONG_CLOUD);
+            }
+        }
+        if (progress.done.add(STEP_ALIYUN_IM) && StringUtils.isNotEmpty(classInfoEntity.getAliyunId())) {
+            aLiYunService.deleteMessageGroup(classInfoEntity.getAliyunId());
+            aLiYunService.deleteNewImMessageGroup(classInfoEntity.getAliyunId(),
+                    StringUtils.defaultIfEmpty(classInfoEntity.getImCreatorId(), classInfoEntity.getTeacherId()));
+        }
+
+        if (progress.done.contains(STEP_BOARD) && progress.done.contains(STEP_RONG_CLOUD)) {
+            return true;
+        }
+        if (progress.attempts < maxVendorAttempts) {
+            log.warn("RoomTeardown vendor resources not deleted, retry later. classId:{}, attempts:{}, done:{}",
+                    classInfoEntity.getId(), progress.attempts, progress.done);
+            return false;
+        }
+        increment("leaked");
+        log.error("RoomTeardown vendor resources leaked. classId:{}, boardsInfo:{}, rongCloudId:{}, done:{}", classInfoEntity.getId(),
+                classInfoEntity.getBoardsInfo(), classInfoEntity.getRongCloudId(), progress.done);
+        return true;
+    }
+
+    private String getBoardCid(String boardsInfo) {
+
+        if (StringUtils.isEmpty(boardsInfo)) {
+            return null;
+        }
+        JSONObject jsonBoard = JSON.parseObject(boardsInfo);
+        return jsonBoard == null ? null : jsonBoard.getString("cid");
+    }
+
+    /**
+     * 分批删除课堂的关联数据，签到记录通过签到Id关联，需先于签到删除
+     */
+    private int purgeRelatedRows(String classId) {
+
+        int rows = 0;
+        List<String> checkInIds = classCheckInDao.selectList(Wrappers.<ClassCheckInEntity>lambdaQuery()
+                        .select(ClassCheckInEntity::getId)
+                        .eq(ClassCheckInEntity::getClassId, classId))
+                .stream()
+                .map(ClassCheckInEntity::getId)
+                .collect(Collectors.toList());
+        for (List<String> ids : Iterables.partition(checkInIds, chunkSize)) {
+            rows += purge("class_check_in_record", classCheckInRecordDao,
+                    () -> Wrappers.<ClassCheckInRecordEntity>lambdaQuery().in(ClassCheckInRecordEntity::getCheckInId, ids));
+        }
+        rows += purge("class_check_in", classCheckInDao,
+                () -> Wrappers.<ClassCheckInEntity>lambdaQuery().eq(ClassCheckInEntity::getClassId, classId));
+        rows += purge("class_member", classMemberDao,
+                () -> Wrappers.<ClassMemberEntity>lambdaQuery().eq(ClassMemberEntity::getClassId, classId));
+        rows += purge("class_kick_member", classKickMemberDao,
+                () -> Wrappers.<ClassKickMemberEntity>lambdaQuery().eq(ClassKickMemberEntity::getClassId, classId));
+        rows += purge("doc_infos", coursewareInfoDao,
+                () -> Wrappers.<DocEntity>lambdaQuery().eq(DocEntity::getClassId, classId));
+        rows += purge("assistant_permit", assistantPermitDao,
+                () -> Wrappers.<AssistantPermitEntity>lambdaQuery().eq(AssistantPermitEntity::getClassId, classId));
+        return rows;
+    }
+
+    /**
+     * DELETE ... LIMIT chunk_size 循环执行直到删除完，避免单条语句长时间持有大量行锁
+     */
+    private <T> int purge(String table, BaseMapper<T> mapper, Supplier<LambdaQueryWrapper<T>> condition) {
+
+        int total = 0;
+        int deleted;
+        do {
+            deleted = mapper.delete(condition.get().last("LIMIT " + chunkSize));
+            total += deleted;
+        } while (deleted >= chunkSize);
+        if (total > 0) {
+            Counter.builder("room_teardown.rows").tag("table", table).register(meterRegistry).increment(total);
+        }
+        return total;
+    }
+
+    private void increment(String result) {
+
+        Counter.builder("room_teardown").tag("result", result).register(meterRegistry).increment();
+    }
+
+    private static class VendorProgress {
+
+        private final Set<String> done = ConcurrentHashMap.newKeySet();
+
+        private volatile int attempts;
+    }
+}
@@ -0,0 +1,380 @@
+package com.aliyuncs.aui.service.impl;
+
+import com.aliyuncs.aui.cache.ClassInfoCache;
+import com.aliyuncs.aui.dao.RoomInfoDao;
+import com.aliyuncs.aui.dto.enums.ClassRoomStatus;
+import com.aliyuncs.aui.entity.ClassInfoEntity;
+import com.aliyuncs.aui.service.ALiYunService;
+import com.aliyuncs.aui.service.VodMediaService;
+import com.baomidou.mybatisplus.extension.conditions.query.LambdaQueryChainWrapper;
+import com.baomidou.mybatisplus.extension.conditions.update.LambdaUpdateChainWrapper;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.time.DateUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 课堂录制视频服务实现类。
+ * 后台扫描在每个实例上都会运行，搜索前按class_infos.vod_search_at抢占课堂（条件UPDATE），
+ * 抢占后sweep_claim_seconds内其他实例不会重复搜索。退避状态仍保存在各实例内存中
+ */
+@Service
+@Slf4j
+public class VodMediaServiceImpl extends ServiceImpl<RoomInfoDao, ClassInfoEntity> implements VodMediaService {
+
+    /**
+     * 后台扫描每次最多翻页数，限制单次扫描的数据库开销
+     */
+    private static final int SWEEP_MAX_PAGES = 20;
+
+    @Value("${biz.live_mic.app_id}")
+    private String liveMicAppId;
+
+    /**
+     * 搜索不到录制视频时的首次退避时间，之后每次翻倍，直到max_backoff_seconds
+     */
+    @Value("${biz.vod.resolve.initial_backoff_seconds:30}")
+    private long initialBackoffSeconds;
+
+    @Value("${biz.vod.resolve.max_backoff_seconds:1800}")
+    private long maxBackoffSeconds;
+
+    /**
+     * 断流后等待录制文件生成的时间
+     */
+    @Value("${biz.vod.resolve.stream_done_delay_seconds:60}")
+    private long streamDoneDelaySeconds;
+
+    /**
+     * 断流后重新解析的最大次数
+     */
+    @Value("${biz.vod.resolve.stream_done_max_attempts:5}")
+    private int streamDoneMaxAttempts;
+
+    /**
+     * 后台扫描的时间窗口（小时），只扫描该时间内创建且未保存vod_id的课堂
+     */
+    @Value("${biz.vod.resolve.sweep_window_hours:24}")
+    private int sweepWindowHours;
+
+    @Value("${biz.vod.resolve.sweep_batch_size:50}")
+    private int sweepBatchSize;
+
+    /**
+     * 后台扫描抢占课堂的时长，期间其他实例不会搜索该课堂
+     */
+    @Value("${biz.vod.resolve.sweep_claim_seconds:120}")
+    private long sweepClaimSeconds;
+
+    @Resource
+    private ALiYunService videoCloudService;
+
+    @Resource
+    private ClassInfoCache classInfoCache;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 搜索不到录制视频的课堂，classId -> 退避状态
+     */
+    private Cache<String, Backoff> negativeCache;
+
+    /**
+     * 断流后待重新解析的课堂，classId -> 退避状态
+     */
+    private final ConcurrentMap<String, Backoff> pendingRefresh = new ConcurrentHashMap<>();
+
+    private Counter storedCounter;
+
+    private Counter hitCounter;
+
+    private Counter missCounter;
+
+    private Counter skippedCounter;
+
+    @PostConstruct
+    public void init() {
+
+        negativeCache = CacheBuilder.newBuilder()
+                .maximumSize(10000)
+                .expireAfterWrite(maxBackoffSeconds * 2, TimeUnit.SECONDS)
+                .build();
+        storedCounter = Counter.builder("vod_media.resolve").tag("result", "stored").register(meterRegistry);
+        hitCounter = Counter.builder("vod_media.resolve").tag("result", "hit").register(meterRegistry);
+        missCounter = Counter.builder("vod_media.resolve").tag("result", "miss").register(meterRegistry);
+        skippedCounter = Counter.builder("vod_media.resolve").tag("result", "backoff").register(meterRegistry);
+    }
+
+    @Override
+    public String resolveMediaId(ClassInfoEntity classInfoEntity) {
+
+        if (StringUtils.isNotEmpty(classInfoEntity.getVodId())) {
+            storedCounter.increment();
+            return classInfoEntity.getVodId();
+        }
+        if (inBackoff(classInfoEntity.getId())) {
+            skippedCounter.increment();
+            return null;
+        }
+
+        String mediaId = videoCloudService.searchMediaByTitle(getTitle(classInfoEntity));
+        onSearched(classInfoEntity.getId(), mediaId, false);
+        return mediaId;
+    }
+
+    @Override
+    public Map<String, String> resolveMediaIds(Collection<ClassInfoEntity> classInfoEntities) {
+
+        if (CollectionUtils.isEmpty(classInfoEntities)) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, String> result = new HashMap<>(classInfoEntities.size());
+        Map<String, String> titles = new HashMap<>();
+        for (ClassInfoEntity classInfoEntity : classInfoEntities) {
+            if (StringUtils.isNotEmpty(classInfoEntity.getVodId())) {
+                storedCounter.increment();
+                result.put(classInfoEntity.getId(), classInfoEntity.getVodId());
+            } else if (inBackoff(classInfoEntity.getId())) {
+                skippedCounter.increment();
+            } else {
+                titles.put(classInfoEntity.getId(), getTitle(classInfoEntity));
+            }
+        }
+        Map<String, String> found = searchAndSave(titles, false);
+        if (found != null) {
+            result.putAll(found);
+        } else {
+            // 搜索失败（含限流、熔断）时只返回已保存的vod_id，未保存的课堂本次不返回点播信息
+            log.warn("VodMediaService resolveMediaIds search failed. searched:{}", titles.size());
+        }
+        return result;
+    }
+
+    @Override
+    public void onStreamDone(String classId) {
+
+        pendingRefresh.put(classId, new Backoff(0, System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(streamDoneDelaySeconds)));
+        negativeCache.invalidate(classId);
+    }
+
+    /**
+     * 后台解析：断流后待刷新的课堂，以及最近创建但尚未保存vod_id的课堂
+     */
+    @Scheduled(fixedDelayString = "${biz.vod.resolve.sweep_interval_ms:60000}", initialDelayString = "${biz.vod.resolve.sweep_interval_ms:60000}")
+    public void sweep() {
+
+        try {
+            refreshPending();
+            sweepUnresolved();
+        } catch (Exception e) {
+            log.error("VodMediaService sweep error", e);
+        }
+    }
+
+    private void refreshPending() {
+
+        long now = System.currentTimeMillis();
+        List<String> dueIds = pendingRefresh.entrySet().stream()
+                .filter(entry -> entry.getValue().getNextAttemptAt() <= now)
+                .map(Map.Entry::getKey)
+                .limit(sweepBatchSize)
+                .collect(Collectors.toList());
+        if (dueIds.isEmpty()) {
+            return;
+        }
+
+        List<ClassInfoEntity> classInfoEntities = this.lambdaQuery()
+                .select(ClassInfoEntity::getId, ClassInfoEntity::getMeetingId, ClassInfoEntity::getTeacherId)
+                .in(ClassInfoEntity::getId, dueIds)
+                .list();
+        Map<String, String> titles = classInfoEntities.stream()
+                .collect(Collectors.toMap(ClassInfoEntity::getId, this::getTitle));
+        Map<String, String> found = searchAndSave(titles, true);
+        if (found == null) {
+            // 搜索失败，不计入重试次数，下次刷新时重试
+            return;
+        }
+
+        for (String classId : dueIds) {
+            Backoff backoff = pendingRefresh.get(classId);
+            if (backoff == null) {
+                continue;
+            }
+            if (found.containsKey(classId) || !titles.containsKey(classId) || backoff.getAttempts() + 1 >= streamDoneMaxAttempts) {
+                pendingRefresh.remove(classId, backoff);
+            } else {
+                pendingRefresh.replace(classId, backoff, backoff.next(initialBackoffSeconds, maxBackoffSeconds));
+            }
+        }
+    }
+
+    private void sweepUnresolved() {
+
+        // 退避中的课堂在内存中过滤，按(created_at, id)游标向更早的课堂翻页，直到凑满一批，避免最新的一批都在退避时永远扫描不到更早的课堂
+        Date now = new Date();
+        Date windowStart = DateUtils.addHours(now, -sweepWindowHours);
+        Map<String, String> titles = new HashMap<>();
+        ClassInfoEntity last = null;
+        for (int page = 0; page < SWEEP_MAX_PAGES && titles.size() < sweepBatchSize; page++) {
+            ClassInfoEntity cursor = last;
+            LambdaQueryChainWrapper<ClassInfoEntity> query = this.lambdaQuery()
+                    .select(ClassInfoEntity::getId, ClassInfoEntity::getMeetingId, ClassInfoEntity::getTeacherId, ClassInfoEntity::getCreatedAt)
+                    .isNull(ClassInfoEntity::getVodId)
+                    .ne(ClassInfoEntity::getStatus, (long) ClassRoomStatus.ClassRoomStatusDeleting.getVal())
+                    .ge(ClassInfoEntity::getCreatedAt, windowStart)
+                    .and(w -> w.isNull(ClassInfoEntity::getVodSearchAt).or().le(ClassInfoEntity::getVodSearchAt, now));
+            if (cursor != null) {
+                query.and(w -> w.lt(ClassInfoEntity::getCreatedAt, cursor.getCreatedAt())
+                        .or(o -> o.eq(ClassInfoEntity::getCreatedAt, cursor.getCreatedAt()).lt(ClassInfoEntity::getId, cursor.getId())));
+            }
+            List<ClassInfoEntity> classInfoEntities = query
+                    .orderByDesc(ClassInfoEntity::getCreatedAt).orderByDesc(ClassInfoEntity::getId)
+                    .last("LIMIT " + sweepBatchSize)
+                    .list();
+
+            for (ClassInfoEntity classInfoEntity : classInfoEntities) {
+                if (titles.size() < sweepBatchSize && !inBackoff(classInfoEntity.getId()) && !pendingRefresh.containsKey(classInfoEntity.getId())
+                        && claim(classInfoEntity.getId(), now)) {
+                    titles.put(classInfoEntity.getId(), getTitle(classInfoEntity));
+                }
+            }
+            if (classInfoEntities.size() < sweepBatchSize) {
+                break;
+            }
+            last = classInfoEntities.get(classInfoEntities.size() - 1);
+        }
+
+        Map<String, String> found = searchAndSave(titles, false);
+        if (found == null) {
+            log.warn("VodMediaService sweepUnresolved search failed. searched:{}", titles.size());
+            return;
+        }
+        if (!titles.isEmpty()) {
+            log.info("VodMediaService sweepUnresolved. searched:{}, found:{}", titles.size(), found.size());
+        }
+    }
+
+    /**
+     * 抢占课堂，抢占成功后sweep_claim_seconds内其他实例的后台扫描不会再搜索该课堂
+     */
+    private boolean claim(String classId, Date now) {
+
+        return this.lambdaUpdate()
+                .set(ClassInfoEntity::getVodSearchAt, DateUtils.addSeconds(now, (int) sweepClaimSeconds))
+                .eq(ClassInfoEntity::getId, classId)
+                .isNull(ClassInfoEntity::getVodId)
+                .and(w -> w.isNull(ClassInfoEntity::getVodSearchAt).or().le(ClassInfoEntity::getVodSearchAt, now))
+                .update();
+    }
+
+    /**
+     * 一次SearchMedia搜索多个课堂，搜到的保存到vod_id，搜不到的进入退避。返回 classId -> mediaId，
+     * 搜索失败（含限流、熔断）时返回null，不进入退避
+     */
+    private Map<String, String> searchAndSave(Map<String, String> titles, boolean overwrite) {
+
+        if (titles.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, String> mediaIds = videoCloudService.searchMediaByTitles(titles.values());
+        if (mediaIds == null) {
+            return null;
+        }
+        Map<String, String> result = new HashMap<>(titles.size());
+        titles.forEach((classId, title) -> {
+            String mediaId = mediaIds.get(title);
+            onSearched(classId, mediaId, overwrite);
+            if (StringUtils.isNotEmpty(mediaId)) {
+                result.put(classId, mediaId);
+            }
+        });
+        return result;
+    }
+
+    private void onSearched(String classId, String mediaId, boolean overwrite) {
+
+        if (StringUtils.isEmpty(mediaId)) {
+            missCounter.increment();
+            Backoff backoff = negativeCache.getIfPresent(classId);
+            negativeCache.put(classId, backoff == null ? new Backoff(0, System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(initialBackoffSeconds))
+                    : backoff.next(initialBackoffSeconds, maxBackoffSeconds));
+            return;
+        }
+
+        hitCounter.increment();
+        negativeCache.invalidate(classId);
+        LambdaUpdateChainWrapper<ClassInfoEntity> update = this.lambdaUpdate()
+                .set(ClassInfoEntity::getVodId, mediaId)
+                .eq(ClassInfoEntity::getId, classId);
+        if (overwrite) {
+            update.and(w -> w.isNull(ClassInfoEntity::getVodId).or().ne(ClassInfoEntity::getVodId, mediaId));
+        } else {
+            // 只在未保存时写入，避免覆盖断流刷新写入的较新视频
+            update.isNull(ClassInfoEntity::getVodId);
+        }
+        if (update.update()) {
+            classInfoCache.entities().invalidate(classId);
+            classInfoCache.vodInfos().invalidate(classId);
+            log.info("VodMediaService saved vodId. classId:{}, mediaId:{}", classId, mediaId);
+        }
+    }
+
+    private boolean inBackoff(String classId) {
+
+        Backoff backoff = negativeCache.getIfPresent(classId);
+        return backoff != null && backoff.getNextAttemptAt() > System.currentTimeMillis();
+    }
+
+    private String getTitle(ClassInfoEntity classInfoEntity) {
+
+        return String.format("%s_%s_%s_camera", liveMicAppId, classInfoEntity.getMeetingId(), classInfoEntity.getTeacherId());
+    }
+
+    /**
+     * 退避状态，不可变
+     */
+    private static final class Backoff {
+
+        private final int attempts;
+
+        private final long nextAttemptAt;
+
+        Backoff(int attempts, long nextAttemptAt) {
+            this.attempts = attempts;
+            this.nextAttemptAt = nextAttemptAt;
+        }
+
+        int getAttempts() {
+            return attempts;
+        }
+
+        long getNextAttemptAt() {
+            return nextAttemptAt;
+        }
+
+        Backoff next(long initialBackoffSeconds, long maxBackoffSeconds) {
+
+            long backoffSeconds = Math.min(initialBackoffSeconds << Math.min(attempts + 1, 20), maxBackoffSeconds);
+            return new Backoff(attempts + 1, System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(backoffSeconds));
+        }
+    }
+}
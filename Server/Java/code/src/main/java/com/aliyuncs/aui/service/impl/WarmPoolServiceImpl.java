@@ -0,0 +1,200 @@
+package com.aliyuncs.aui.service.impl;
+
+import com.aliyuncs.aui.common.concurrent.WarmPool;
+import com.aliyuncs.aui.dto.req.RoomCreateRequestDto;
+import com.aliyuncs.aui.dto.res.BoardCreateResponse;
+import com.aliyuncs.aui.service.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static com.aliyuncs.aui.common.Constants.*;
+
+/**
+ * 三方资源池实现。资源以biz.class_info.warm_pool.creator_id为创建者预先创建，
+ * 白板房间的channelName为随机Id（与课堂Id不同，客户端使用boards_info中的boardId加入），
+ * 存活时间需小于白板房间的channel_destroy_time。
+ *
+ * @author chunlei.zcl
+ */
+@Service("warmPoolService")
+@Slf4j
+public class WarmPoolServiceImpl implements WarmPoolService {
+
+    /**
+     * 同时开通新老IM时使用的一对消息组
+     */
+    private static final String IM_OLD_NEW = "aliyun_old_new";
+
+    private static final String BOARD = "board";
+
+    @Value("${biz.class_info.warm_pool.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 需要预创建的资源类型：aliyun_old、aliyun_new、aliyun_old_new、rong_cloud、board
+     */
+    @Value("${biz.class_info.warm_pool.kinds:aliyun_new,board}")
+    private String kinds;
+
+    @Value("${biz.class_info.warm_pool.size:20}")
+    private int size;
+
+    @Value("${biz.class_info.warm_pool.ttl_seconds:3600}")
+    private long ttlSeconds;
+
+    @Value("${biz.class_info.warm_pool.refill_batch:10}")
+    private int refillBatch;
+
+    @Value("${biz.class_info.warm_pool.creator_id:aui_warm_pool}")
+    private String creatorId;
+
+    @Resource
+    private ALiYunService aLiyunService;
+
+    @Resource
+    private RongCloudServer rongCloudServer;
+
+    @Resource
+    private BoardRoomService boardRoomService;
+
+    @Resource
+    private ClassInfoService classInfoService;
+
+    @Resource(name = "warmPoolExecutor")
+    private ExecutorService warmPoolExecutor;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, WarmPool<String>> imPools = new HashMap<>();
+
+    private WarmPool<BoardCreateResponse> boardPool;
+
+    @PostConstruct
+    public void init() {
+
+        if (!enabled) {
+            return;
+        }
+        for (String kind : StringUtils.split(kinds, ',')) {
+            switch (kind.trim()) {
+                case IM_OLD:
+                    imPools.put(IM_OLD, newPool(IM_OLD, () -> aLiyunService.createMessageGroup(creatorId), aLiyunService::deleteMessageGroup));
+                    break;
+                case IM_NEW:
+                    imPools.put(IM_NEW, newPool(IM_NEW, this::createNewImGroup, id -> aLiyunService.deleteNewImMessageGroup(id, creatorId)));
+                    break;
+                case IM_OLD_NEW:
+                    imPools.put(IM_OLD_NEW, newPool(IM_OLD_NEW, this::createOldNewImGroup, id -> {
+                        aLiyunService.deleteNewImMessageGroup(id, creatorId);
+                        aLiyunService.deleteMessageGroup(id);
+                    }));
+                    break;
+                case RONG_CLOUD:
+                    imPools.put(RONG_CLOUD, newPool(RONG_CLOUD, () -> rongCloudServer.createChatroom(creatorId), rongCloudServer::destroyChatroom));
+                    break;
+                case BOARD:
+                    boardPool = newPool(BOARD, this::createBoardRoom, createResponse -> boardRoomService.deleteBoardRoom(createResponse.getCid()));
+                    break;
+                default:
+                    log.warn("WarmPool unknown kind:{}", kind);
+            }
+        }
+        log.info("WarmPool enabled. kinds:{}, size:{}, ttlSeconds:{}", kinds, size, ttlSeconds);
+    }
+
+    @PreDestroy
+    public void destroy() {
+
+        imPools.values().forEach(WarmPool::clear);
+        if (boardPool != null) {
+            boardPool.clear();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${biz.class_info.warm_pool.refill_interval_ms:1000}")
+    public void refill() {
+
+        imPools.values().forEach(WarmPool::refill);
+        if (boardPool != null) {
+            boardPool.refill();
+        }
+    }
+
+    @Override
+    public String leaseImGroup(boolean oldIm, boolean newIm) {
+
+        String kind = oldIm && newIm ? IM_OLD_NEW : (oldIm ? IM_OLD : IM_NEW);
+        WarmPool<String> pool = imPools.get(kind);
+        return pool == null ? null : pool.lease();
+    }
+
+    @Override
+    public String leaseChatroom() {
+
+        WarmPool<String> pool = imPools.get(RONG_CLOUD);
+        return pool == null ? null : pool.lease();
+    }
+
+    @Override
+    public BoardCreateResponse leaseBoardRoom(String title) {
+
+        if (boardPool == null) {
+            return null;
+        }
+        BoardCreateResponse createResponse = boardPool.lease();
+        if (createResponse != null) {
+            createResponse.setBoardTitle(title);
+        }
+        return createResponse;
+    }
+
+    @Override
+    public String getCreatorId() {
+
+        return creatorId;
+    }
+
+    private <T> WarmPool<T> newPool(String kind, Supplier<T> creator, Consumer<T> destroyer) {
+
+        return new WarmPool<>(kind, size, ttlSeconds, refillBatch, creator, destroyer, warmPoolExecutor, meterRegistry);
+    }
+
+    private String createNewImGroup() {
+
+        return aLiyunService.createNewImMessageGroup(UUID.randomUUID().toString().replaceAll("-", ""), creatorId);
+    }
+
+    private String createOldNewImGroup() {
+
+        String groupId = aLiyunService.createMessageGroup(creatorId);
+        if (StringUtils.isEmpty(groupId)) {
+            return null;
+        }
+        if (StringUtils.isEmpty(aLiyunService.createNewImMessageGroup(groupId, creatorId))) {
+            aLiyunService.deleteMessageGroup(groupId);
+            return null;
+        }
+        return groupId;
+    }
+
+    private BoardCreateResponse createBoardRoom() {
+
+        String channelName = UUID.randomUUID().toString().replaceAll("-", "");
+        BoardCreateResponse createResponse = boardRoomService.createBoardRoom(RoomCreateRequestDto.builder().title("").build(),
+                classInfoService.getWhiteboardAuthInfo(), channelName);
+        return createResponse.getCode() == 200 && StringUtils.isNotEmpty(createResponse.getCid()) ? createResponse : null;
+    }
+}
@@ -0,0 +1,136 @@
+package com.aliyuncs.aui.service.resilience;
+
+import com.aliyuncs.aui.common.resilience.VendorGuard;
+import com.aliyuncs.aui.dto.ClassMemberDto;
+import com.aliyuncs.aui.dto.LinkInfo;
+import com.aliyuncs.aui.dto.PullLiveInfo;
+import com.aliyuncs.aui.dto.PullLiveSelector;
+import com.aliyuncs.aui.dto.PushLiveInfo;
+import com.aliyuncs.aui.dto.req.ImTokenRequestDto;
+import com.aliyuncs.aui.dto.res.ImTokenResponseDto;
+import com.aliyuncs.aui.dto.res.NewImTokenResponseDto;
+import com.aliyuncs.aui.dto.res.RoomInfoDto;
+import com.aliyuncs.aui.service.ALiYunService;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Resource;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 视频云服务的限流熔断层，注入ALiYunService时默认使用该实现。
+ * 限流或熔断时快速失败：查询类接口返回null（观看人数、点播信息等直接不返回），写接口返回null/false。
+ * 推拉流地址、RTC Token、回调验签只在本地计算，不经过限流熔断；IM Token在ALiYunServiceImpl中缓存未命中时才做保护
+ *
+ * @author chunlei.zcl
+ */
+@Service
+@Primary
+public class ResilientALiYunService implements ALiYunService {
+
+    @Resource(name = "ALiYunServiceImpl")
+    private ALiYunService delegate;
+
+    @Resource
+    private VendorGuard vendorGuard;
+
+    @Override
+    public ImTokenResponseDto getImToken(ImTokenRequestDto imTokenRequestDto) {
+        return delegate.getImToken(imTokenRequestDto);
+    }
+
+    @Override
+    public NewImTokenResponseDto getNewImToken(ImTokenRequestDto imTokenRequestDto) {
+        return delegate.getNewImToken(imTokenRequestDto);
+    }
+
+    @Override
+    public String createMessageGroup(String teacherId) {
+        return vendorGuard.call(VendorGuard.ALIYUN, "CreateMessageGroup", () -> delegate.createMessageGroup(teacherId));
+    }
+
+    @Override
+    public PushLiveInfo getPushLiveInfo(String streamName) {
+        return delegate.getPushLiveInfo(streamName);
+    }
+
+    @Override
+    public PullLiveInfo getPullLiveInfo(String streamName, String screenStreamName) {
+        return delegate.getPullLiveInfo(streamName, screenStreamName);
+    }
+
+    @Override
+    public LinkInfo getRtcInfo(String channelId, String userId, String teacherId) {
+        return delegate.getRtcInfo(channelId, userId, teacherId);
+    }
+
+    @Override
+    public LinkInfo getRtcInfo(String channelId, String userId, String teacherId, PullLiveSelector selector) {
+        return delegate.getRtcInfo(channelId, userId, teacherId, selector);
+    }
+
+    @Override
+    public String searchMediaByTitle(String title) {
+        // 录制文件未生成时也返回null，不按失败统计
+        return vendorGuard.call(VendorGuard.ALIYUN, "SearchMedia", () -> delegate.searchMediaByTitle(title), mediaId -> true, () -> null);
+    }
+
+    @Override
+    public Map<String, String> searchMediaByTitles(Collection<String> titles) {
+        // 失败、限流或熔断时返回null，与未搜到区分，调用方不会因此将课堂放入退避
+        return vendorGuard.call(VendorGuard.ALIYUN, "SearchMedia", () -> delegate.searchMediaByTitles(titles));
+    }
+
+    @Override
+    public RoomInfoDto.VodInfo getPlayInfo(String mediaId) {
+        return vendorGuard.call(VendorGuard.ALIYUN, "GetPlayInfo", () -> delegate.getPlayInfo(mediaId));
+    }
+
+    @Override
+    public RoomInfoDto.Metrics getGroupDetails(String groupId) {
+        return vendorGuard.call(VendorGuard.ALIYUN, "GetGroupStatistics", () -> delegate.getGroupDetails(groupId));
+    }
+
+    @Override
+    public RoomInfoDto.UserStatus getUserInfo(String groupId, String anchor) {
+        // 用户不在消息组中时也返回null，不按失败统计
+        return vendorGuard.call(VendorGuard.ALIYUN, "ListMessageGroupUserById", () -> delegate.getUserInfo(groupId, anchor),
+                userStatus -> true, () -> null);
+    }
+
+    @Override
+    public boolean validLiveCallbackSign(String liveSignature, String liveTimestamp) {
+        return delegate.validLiveCallbackSign(liveSignature, liveTimestamp);
+    }
+
+    @Override
+    public String getRtcAuth(String channelId, String userId, long timestamp) {
+        return delegate.getRtcAuth(channelId, userId, timestamp);
+    }
+
+    @Override
+    public boolean sendMessageToGroup(String groupId, Integer type, ClassMemberDto classMemberDto) {
+        return vendorGuard.run(VendorGuard.ALIYUN, "SendMessageToGroup", () -> delegate.sendMessageToGroup(groupId, type, classMemberDto));
+    }
+
+    @Override
+    public boolean sendMessageToNewGroup(String groupId, Integer type, ClassMemberDto classMemberDto) {
+        return vendorGuard.run(VendorGuard.ALIYUN, "SendLiveMessageGroup", () -> delegate.sendMessageToNewGroup(groupId, type, classMemberDto));
+    }
+
+    @Override
+    public String createNewImMessageGroup(String groupId, String creatorId) {
+        return vendorGuard.call(VendorGuard.ALIYUN, "CreateLiveMessageGroup", () -> delegate.createNewImMessageGroup(groupId, creatorId));
+    }
+
+    @Override
+    public boolean deleteMessageGroup(String groupId) {
+        return vendorGuard.run(VendorGuard.ALIYUN, "DeleteMessageGroup", () -> delegate.deleteMessageGroup(groupId));
+    }
+
+    @Override
+    public boolean deleteNewImMessageGroup(String groupId, String operatorId) {
+        return vendorGuard.run(VendorGuard.ALIYUN, "DeleteLiveMessageGroup", () -> delegate.deleteNewImMessageGroup(groupId, operatorId));
+    }
+}
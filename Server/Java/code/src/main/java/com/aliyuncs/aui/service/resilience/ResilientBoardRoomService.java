@@ -0,0 +1,49 @@
+package com.aliyuncs.aui.service.resilience;
+
+import com.aliyuncs.aui.common.resilience.VendorGuard;
+import com.aliyuncs.aui.dto.req.RoomCreateRequestDto;
+import com.aliyuncs.aui.dto.res.BoardAuthResponse;
+import com.aliyuncs.aui.dto.res.BoardCreateResponse;
+import com.aliyuncs.aui.service.BoardRoomService;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Resource;
+
+/**
+ * 白板服务的限流熔断层，注入BoardRoomService时默认使用该实现。
+ * 白板返回4xx属于请求本身的问题，不按失败统计；限流或熔断时返回code为503的结果
+ *
+ * @author chunlei.zcl
+ */
+@Service
+@Primary
+public class ResilientBoardRoomService implements BoardRoomService {
+
+    @Resource(name = "boardRoomServiceImpl")
+    private BoardRoomService delegate;
+
+    @Resource
+    private VendorGuard vendorGuard;
+
+    @Override
+    public BoardCreateResponse createBoardRoom(RoomCreateRequestDto roomCreateRequestDto, BoardAuthResponse boardAuthResponse, String boardId) {
+        return vendorGuard.call(VendorGuard.BOARD, "room.create",
+                () -> delegate.createBoardRoom(roomCreateRequestDto, boardAuthResponse, boardId),
+                ResilientBoardRoomService::isAvailable, ResilientBoardRoomService::unavailable);
+    }
+
+    @Override
+    public BoardCreateResponse deleteBoardRoom(String cid) {
+        return vendorGuard.call(VendorGuard.BOARD, "room.delete", () -> delegate.deleteBoardRoom(cid),
+                ResilientBoardRoomService::isAvailable, ResilientBoardRoomService::unavailable);
+    }
+
+    private static boolean isAvailable(BoardCreateResponse response) {
+        return response != null && response.getCode() < 500;
+    }
+
+    private static BoardCreateResponse unavailable() {
+        return BoardCreateResponse.builder().code(503).message("board service unavailable").build();
+    }
+}
@@ -0,0 +1,73 @@
+package com.aliyuncs.aui.service.resilience;
+
+import com.aliyuncs.aui.common.resilience.VendorGuard;
+import com.aliyuncs.aui.service.RongCloudServer;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Resource;
+
+/**
+ * 融云IM服务的限流熔断层，注入RongCloudServer时默认使用该实现。限流或熔断时快速失败，不再进入重试。
+ * Token在RongCloudServerImpl中缓存未命中时才做保护，熔断期间缓存中的Token仍可返回
+ *
+ * @author chunlei.zcl
+ */
+@Service
+@Primary
+public class ResilientRongCloudServer implements RongCloudServer {
+
+    @Resource(name = "rongCloudServerImpl")
+    private RongCloudServer delegate;
+
+    @Resource
+    private VendorGuard vendorGuard;
+
+    @Override
+    public String getToken(String userId, String userName, String portrait) {
+        return delegate.getToken(userId, userName, portrait);
+    }
+
+    @Override
+    public boolean muteUser(String chatroomId, String userId, Integer minute) {
+        return vendorGuard.run(VendorGuard.RONG_CLOUD, "chatroom.mute.add", () -> delegate.muteUser(chatroomId, userId, minute));
+    }
+
+    @Override
+    public boolean cancelMuteUser(String chatroomId, String userId) {
+        return vendorGuard.run(VendorGuard.RONG_CLOUD, "chatroom.mute.remove", () -> delegate.cancelMuteUser(chatroomId, userId));
+    }
+
+    @Override
+    public String createChatroom(String name) {
+        return vendorGuard.call(VendorGuard.RONG_CLOUD, "chatroom.create", () -> delegate.createChatroom(name));
+    }
+
+    @Override
+    public boolean destroyChatroom(String chatroomId) {
+        return vendorGuard.run(VendorGuard.RONG_CLOUD, "chatroom.destroy", () -> delegate.destroyChatroom(chatroomId));
+    }
+
+    @Override
+    public boolean isMuteUser(String chatroomId, String userId) {
+        // 未禁言时也返回false，只按耗时统计失败
+        return vendorGuard.call(VendorGuard.RONG_CLOUD, "chatroom.mute.list", () -> delegate.isMuteUser(chatroomId, userId),
+                muted -> true, () -> false);
+    }
+
+    @Override
+    public boolean muteChatroom(String chatroomId) {
+        return vendorGuard.run(VendorGuard.RONG_CLOUD, "chatroom.ban.add", () -> delegate.muteChatroom(chatroomId));
+    }
+
+    @Override
+    public boolean cancelMuteChatroom(String chatroomId) {
+        return vendorGuard.run(VendorGuard.RONG_CLOUD, "chatroom.ban.remove", () -> delegate.cancelMuteChatroom(chatroomId));
+    }
+
+    @Override
+    public boolean isMuteChatroom(String chatroomId) {
+        return vendorGuard.call(VendorGuard.RONG_CLOUD, "chatroom.ban.list", () -> delegate.isMuteChatroom(chatroomId),
+                muted -> true, () -> false);
+    }
+}
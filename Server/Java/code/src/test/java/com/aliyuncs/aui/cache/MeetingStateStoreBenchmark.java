@@ -0,0 +1,135 @@
+package com.aliyuncs.aui.cache;
+
+import com.alibaba.fastjson.JSONObject;
+import com.aliyuncs.aui.dto.MeetingMemberInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 连麦状态修改的JMH基准测试：多个连麦成员同时反复开关麦克风。
+ * readModifyWrite为原有实现（读取整个meeting_info，修改后整体写回），meetingStateStore为按增量修改内存、由刷新线程合并写回。
+ * DB使用带固定延迟的内存Map模拟。运行：mvn test-compile 后执行main方法，或通过IDE运行。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class MeetingStateStoreBenchmark {
+
+    private static final String CLASS_ID = "benchmark_class";
+
+    /**
+     * 模拟一次DB往返的耗时
+     */
+    private static final long DB_LATENCY_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    private FakeDb baselineDb;
+
+    private MeetingStateStore store;
+
+    @Setup
+    public void setup() {
+
+        baselineDb = new FakeDb();
+        FakeDb storeDb = new FakeDb();
+        store = new MeetingStateStore() {
+            @Override
+            protected MeetingMemberInfo.Members load(String classId) {
+                return CLASS_ID.equals(classId) ? JSONObject.parseObject(storeDb.read(classId), MeetingMemberInfo.Members.class) : null;
+            }
+
+            @Override
+            protected boolean persist(String classId, String meetingInfo, long expectedVersion) {
+                storeDb.write(classId, meetingInfo);
+                return true;
+            }
+        };
+        ReflectionTestUtils.setField(store, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(store, "idleSeconds", 7200L);
+        ReflectionTestUtils.setField(store, "flushIntervalMs", 500L);
+        ReflectionTestUtils.setField(store, "syncIntervalMs", 1000L);
+        store.init();
+    }
+
+    @Benchmark
+    public void readModifyWrite(Member member) {
+
+        MeetingMemberInfo.Members members = JSONObject.parseObject(baselineDb.read(CLASS_ID), MeetingMemberInfo.Members.class);
+        members.getMembers().removeIf(existing -> existing.getUserId().equals(member.userId));
+        members.getMembers().add(member.toggle());
+        baselineDb.write(CLASS_ID, JSONObject.toJSONString(members));
+    }
+
+    @Benchmark
+    public MeetingMemberInfo.Members meetingStateStore(Member member) {
+
+        return store.addMember(CLASS_ID, member.toggle());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+
+        Options options = new OptionsBuilder()
+                .include(MeetingStateStoreBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+    /**
+     * 每个线程负责一个连麦成员
+     */
+    @State(Scope.Thread)
+    public static class Member {
+
+        private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+        private final String userId = "member_" + SEQUENCE.incrementAndGet();
+
+        private boolean micOpened;
+
+        MeetingMemberInfo toggle() {
+
+            micOpened = !micOpened;
+            MeetingMemberInfo member = new MeetingMemberInfo();
+            member.setUserId(userId);
+            member.setCameraOpened(true);
+            member.setMicOpened(micOpened);
+            return member;
+        }
+    }
+
+    /**
+     * 带固定延迟的内存DB
+     */
+    private static class FakeDb {
+
+        private final Map<String, String> rows = new ConcurrentHashMap<>();
+
+        FakeDb() {
+            rows.put(CLASS_ID, "{\"members\":[]}");
+        }
+
+        String read(String classId) {
+            LockSupport.parkNanos(DB_LATENCY_NANOS);
+            return rows.get(classId);
+        }
+
+        synchronized void write(String classId, String meetingInfo) {
+            LockSupport.parkNanos(DB_LATENCY_NANOS);
+            rows.put(classId, meetingInfo);
+        }
+    }
+}
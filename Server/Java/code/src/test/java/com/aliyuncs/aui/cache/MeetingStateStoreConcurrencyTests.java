@@ -0,0 +1,192 @@
+package com.aliyuncs.aui.cache;
+
+import com.alibaba.fastjson.JSONObject;
+import com.aliyuncs.aui.dto.MeetingMemberInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 连麦状态并发修改的正确性测试：多个连麦成员同时上麦并反复开关麦克风，
+ * MeetingStateStore按增量修改不丢失更新，且多次修改合并为一次写回。
+ * DB使用带固定延迟的内存Map模拟，吞吐对比见MeetingStateStoreBenchmark。
+ */
+class MeetingStateStoreConcurrencyTests {
+
+    private static final String CLASS_ID = "benchmark_class";
+
+    private static final int THREADS = 8;
+
+    /**
+     * 每个线程负责的连麦成员数，8个线程共32人同时在麦上
+     */
+    private static final int MEMBERS_PER_THREAD = 4;
+
+    /**
+     * 每个线程的操作数：先让自己负责的成员上麦，之后反复开关这些成员的麦克风
+     */
+    private static final int OPERATIONS_PER_THREAD = 100;
+
+    /**
+     * 模拟一次DB往返的耗时
+     */
+    private static final long DB_LATENCY_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    @Test
+    void concurrentUpdatesNeverLoseWrites() throws Exception {
+
+        FakeDb storeDb = new FakeDb();
+        MeetingStateStore store = newStore(storeDb);
+        runConcurrently((userId, micOpened) -> {
+            if (micOpened == null) {
+                store.addMember(CLASS_ID, member(userId, true));
+            } else {
+                store.updateMember(CLASS_ID, member(userId, micOpened));
+            }
+        });
+        store.flush();
+        int storeCorrect = countCorrect(store.get(CLASS_ID));
+        int persistedCorrect = countCorrect(JSONObject.parseObject(storeDb.read(CLASS_ID), MeetingMemberInfo.Members.class));
+
+        int expected = THREADS * MEMBERS_PER_THREAD;
+        assertEquals(expected, storeCorrect);
+        assertEquals(expected, persistedCorrect);
+        // 刷新线程未启动，全部修改在最后一次flush中合并写回
+        assertEquals(1, storeDb.writes);
+    }
+
+    @Test
+    void deltaOperationsOnlyTouchTheirMember() {
+
+        MeetingStateStore store = newStore(new FakeDb());
+        store.addMember(CLASS_ID, member("a", true));
+        store.addMember(CLASS_ID, member("b", true));
+
+        MeetingMemberInfo cameraOff = new MeetingMemberInfo();
+        cameraOff.setUserId("a");
+        cameraOff.setCameraOpened(false);
+        store.updateMember(CLASS_ID, cameraOff);
+        store.setAllMute(CLASS_ID, true);
+        MeetingMemberInfo.Members members = store.removeMember(CLASS_ID, "b");
+
+        assertEquals(1, members.getMembers().size());
+        assertEquals("a", members.getMembers().get(0).getUserId());
+        assertFalse(members.getMembers().get(0).getCameraOpened());
+        assertTrue(members.getMembers().get(0).getMicOpened());
+        assertTrue(members.getAllMute());
+        assertNull(store.get("not_exist_class"));
+    }
+
+    /**
+     * 每个成员的麦克风状态应为其所属线程最后一次设置的值
+     */
+    private static int countCorrect(MeetingMemberInfo.Members members) {
+
+        boolean expectedMicOpened = finalMicOpened();
+        int correct = 0;
+        for (MeetingMemberInfo member : members.getMembers()) {
+            if (member.getMicOpened() == expectedMicOpened) {
+                correct++;
+            }
+        }
+        return correct;
+    }
+
+    private static boolean finalMicOpened() {
+
+        return ((OPERATIONS_PER_THREAD - 1) / MEMBERS_PER_THREAD) % 2 == 0;
+    }
+
+    /**
+     * operation的第二个参数为null表示上麦，否则为麦克风状态
+     */
+    private static void runConcurrently(ThrowingBiConsumer<String, Boolean> operation) throws Exception {
+
+        ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            futures.add(executorService.submit(() -> {
+                startLatch.await();
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    String userId = thread + "_" + (i % MEMBERS_PER_THREAD);
+                    operation.accept(userId, i < MEMBERS_PER_THREAD ? null : (i / MEMBERS_PER_THREAD) % 2 == 0);
+                }
+                return null;
+            }));
+        }
+        startLatch.countDown();
+        for (Future<?> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        executorService.shutdown();
+    }
+
+    private static MeetingStateStore newStore(FakeDb db) {
+
+        MeetingStateStore store = new MeetingStateStore() {
+            @Override
+            protected MeetingMemberInfo.Members load(String classId) {
+                return CLASS_ID.equals(classId) ? JSONObject.parseObject(db.read(classId), MeetingMemberInfo.Members.class) : null;
+            }
+
+            @Override
+            protected boolean persist(String classId, String meetingInfo, long expectedVersion) {
+                db.write(classId, meetingInfo);
+                return true;
+            }
+        };
+        ReflectionTestUtils.setField(store, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(store, "idleSeconds", 7200L);
+        ReflectionTestUtils.setField(store, "syncIntervalMs", 1000L);
+        store.init();
+        return store;
+    }
+
+    private static MeetingMemberInfo member(String userId, Boolean micOpened) {
+
+        MeetingMemberInfo member = new MeetingMemberInfo();
+        member.setUserId(userId);
+        member.setCameraOpened(true);
+        member.setMicOpened(micOpened == null || micOpened);
+        return member;
+    }
+
+    private interface ThrowingBiConsumer<T, U> {
+        void accept(T t, U u) throws Exception;
+    }
+
+    /**
+     * 带固定延迟的内存DB
+     */
+    private static class FakeDb {
+
+        private final Map<String, String> rows = new ConcurrentHashMap<>();
+
+        private volatile int writes;
+
+        FakeDb() {
+            rows.put(CLASS_ID, "{\"members\":[]}");
+        }
+
+        String read(String classId) {
+            LockSupport.parkNanos(DB_LATENCY_NANOS);
+            return rows.get(classId);
+        }
+
+        synchronized void write(String classId, String meetingInfo) {
+            LockSupport.parkNanos(DB_LATENCY_NANOS);
+            rows.put(classId, meetingInfo);
+            writes++;
+        }
+    }
+}
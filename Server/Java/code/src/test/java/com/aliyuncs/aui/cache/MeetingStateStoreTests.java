@@ -0,0 +1,140 @@
+package com.aliyuncs.aui.cache;
+
+import com.alibaba.fastjson.JSONObject;
+import com.aliyuncs.aui.dto.MeetingMemberInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 多实例共用一个DB时，MeetingStateStore的写回冲突处理及重新同步
+ */
+class MeetingStateStoreTests {
+
+    private static final String CLASS_ID = "class-1";
+
+    private final SharedDb db = new SharedDb();
+
+    @Test
+    void conflictingFlushReplaysPendingChanges() {
+
+        MeetingStateStore storeA = newStore(db, 60000);
+        MeetingStateStore storeB = newStore(db, 60000);
+        storeA.get(CLASS_ID);
+        storeB.get(CLASS_ID);
+
+        storeA.addMember(CLASS_ID, member("a"));
+        storeB.addMember(CLASS_ID, member("b"));
+        storeA.flush();
+        // B写回时DB中的版本已变化，不覆盖A的修改，而是在A的状态上重放
+        storeB.flush();
+        assertEquals("a", userIds(db.read()));
+        assertEquals("a,b", userIds(storeB.get(CLASS_ID)));
+
+        storeB.flush();
+        assertEquals("a,b", userIds(db.read()));
+        assertTrue(db.read().getVersion() > 1);
+    }
+
+    @Test
+    void readsSeeOtherInstanceChangesAfterSyncInterval() {
+
+        MeetingStateStore storeA = newStore(db, 60000);
+        MeetingStateStore storeB = newStore(db, 0);
+        assertEquals("", userIds(storeB.get(CLASS_ID)));
+
+        storeA.addMember(CLASS_ID, member("a"));
+        storeA.flush();
+        assertEquals("a", userIds(storeB.get(CLASS_ID)));
+
+        storeA.removeMember(CLASS_ID, "a");
+        storeA.flush();
+        assertEquals("", userIds(storeB.get(CLASS_ID)));
+    }
+
+    @Test
+    void waitingWatcherWokenByOtherInstanceChange() {
+
+        MeetingStateStore storeA = newStore(db, 60000);
+        MeetingStateStore storeB = newStore(db, 0);
+        long version = storeB.get(CLASS_ID).getVersion();
+        AtomicReference<MeetingMemberInfo.Members> notified = new AtomicReference<>();
+        assertEquals(MeetingStateStore.Watch.WAITING, storeB.watch(CLASS_ID, version, notified::set));
+
+        // B本地没有修改，A写回后由B的刷新线程重新同步并唤醒等待中的长轮询
+        storeA.addMember(CLASS_ID, member("a"));
+        storeA.flush();
+        assertNull(notified.get());
+        storeB.flush();
+        assertNotNull(notified.get());
+        assertEquals("a", userIds(notified.get()));
+        assertTrue(notified.get().getVersion() > version);
+    }
+
+    private static MeetingStateStore newStore(SharedDb db, long syncIntervalMs) {
+
+        MeetingStateStore store = new MeetingStateStore() {
+            @Override
+            protected MeetingMemberInfo.Members load(String classId) {
+                return CLASS_ID.equals(classId) ? db.read() : null;
+            }
+
+            @Override
+            protected boolean persist(String classId, String meetingInfo, long expectedVersion) {
+                return db.compareAndWrite(meetingInfo, expectedVersion);
+            }
+        };
+        ReflectionTestUtils.setField(store, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(store, "idleSeconds", 7200L);
+        ReflectionTestUtils.setField(store, "syncIntervalMs", syncIntervalMs);
+        ReflectionTestUtils.setField(store, "maxWatchersPerRoom", 100);
+        store.init();
+        return store;
+    }
+
+    private static MeetingMemberInfo member(String userId) {
+
+        MeetingMemberInfo member = new MeetingMemberInfo();
+        member.setUserId(userId);
+        member.setMicOpened(true);
+        return member;
+    }
+
+    private static String userIds(MeetingMemberInfo.Members members) {
+
+        return members.getMembers().stream().map(MeetingMemberInfo::getUserId).sorted().collect(Collectors.joining(","));
+    }
+
+    /**
+     * 按meeting_info中的version条件更新的内存DB
+     */
+    private static class SharedDb {
+
+        private final Map<String, String> rows = new ConcurrentHashMap<>();
+
+        SharedDb() {
+            rows.put(CLASS_ID, "{\"members\":[]}");
+        }
+
+        MeetingMemberInfo.Members read() {
+            return JSONObject.parseObject(rows.get(CLASS_ID), MeetingMemberInfo.Members.class);
+        }
+
+        synchronized boolean compareAndWrite(String meetingInfo, long expectedVersion) {
+
+            Long version = read().getVersion();
+            if ((version == null ? 0 : version) != expectedVersion) {
+                return false;
+            }
+            rows.put(CLASS_ID, meetingInfo);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.aliyuncs.aui.common.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CircuitBreaker状态切换：CLOSED -> OPEN -> HALF_OPEN -> CLOSED/OPEN
+ */
+class CircuitBreakerTests {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private final List<CircuitBreaker.State> transitions = new ArrayList<>();
+
+    private final CircuitBreaker breaker = new CircuitBreaker(10, 4, 50, 1000, 2, now::get, transitions::add);
+
+    @Test
+    void opensWhenFailureRateReached() {
+
+        breaker.onResult(false);
+        breaker.onResult(false);
+        breaker.onResult(false);
+        // 调用次数未达到minimumCalls
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onResult(true);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void slidingWindowDropsOldResults() {
+
+        breaker.onResult(false);
+        for (int i = 0; i < 9; i++) {
+            breaker.onResult(true);
+        }
+        for (int i = 0; i < 4; i++) {
+            breaker.onResult(false);
+        }
+        // 第一次失败已移出窗口，窗口内10次调用中失败4次
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        breaker.onResult(false);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void halfOpenProbesCloseOnSuccess() {
+
+        open();
+        now.addAndGet(999);
+        assertFalse(breaker.tryAcquire());
+
+        now.addAndGet(1);
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        // 只放行halfOpenCalls次探测调用
+        assertFalse(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        breaker.onResult(true);
+        breaker.onResult(true);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        assertEquals(3, transitions.size());
+    }
+
+    @Test
+    void halfOpenProbeFailureReopens() {
+
+        open();
+        now.addAndGet(1000);
+        assertTrue(breaker.tryAcquire());
+        breaker.onResult(false);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        now.addAndGet(500);
+        assertFalse(breaker.tryAcquire());
+        now.addAndGet(500);
+        assertTrue(breaker.tryAcquire());
+    }
+
+    private void open() {
+
+        for (int i = 0; i < 4; i++) {
+            breaker.onResult(false);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+}
@@ -0,0 +1,69 @@
+package com.aliyuncs.aui.common.concurrent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * KeyedSerialExecutor：同一key有序，不同key互不阻塞
+ */
+class KeyedSerialExecutorTests {
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void sameKeyRunsInOrder() throws InterruptedException {
+
+        KeyedSerialExecutor<String> executor = new KeyedSerialExecutor<>(pool, 10000, 8);
+        List<Integer> executed = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(1000);
+        for (int i = 0; i < 1000; i++) {
+            int seq = i;
+            executor.execute("room", () -> {
+                executed.add(seq);
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(IntStream.range(0, 1000).boxed().collect(Collectors.toList()), executed);
+    }
+
+    @Test
+    void blockedKeyDoesNotDelayOthers() throws InterruptedException {
+
+        KeyedSerialExecutor<String> executor = new KeyedSerialExecutor<>(pool, 2, 8);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute("stalled", () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        CountDownLatch other = new CountDownLatch(1);
+        executor.execute("other", other::countDown);
+        assertTrue(other.await(5, TimeUnit.SECONDS));
+
+        // 被阻塞的key待执行任务达到上限后拒绝
+        executor.execute("stalled", () -> { });
+        assertThrows(RejectedExecutionException.class, () -> executor.execute("stalled", () -> { }));
+        release.countDown();
+    }
+}
@@ -0,0 +1,171 @@
+package com.aliyuncs.aui.common.utils;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 签名的JMH基准测试，*Old为原有实现（String.format拼接、每次getInstance、逐字节toHexString），*New为Signer。
+ * 运行：mvn test-compile 后执行main方法，或通过IDE运行；gc profiler输出的gc.alloc.rate.norm为每次操作分配的字节数。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SignerBenchmark {
+
+    private static final String APP_NAME = "live";
+
+    private static final String PULL_AUTH_KEY = "mDZsXXXXXXXXXXXX";
+
+    private static final String MIC_APP_ID = "7c61XXXX";
+
+    private static final String MIC_APP_KEY = "b2a8XXXXXXXXXXXXXXXXXXXXXXXXXXXX";
+
+    private static final String IM_APP_ID = "im_app_id";
+
+    private static final String IM_APP_KEY = "im_app_key_xxxxxxxxxxxxxxxxxxxxx";
+
+    private static final String BOARD_SECRET = "board_secret_xxxxxxxxxxxxxxxxxxx";
+
+    private static final String PUSH_URL = "push.example.vip";
+
+    private static final String CALLBACK_KEY = "callback_key_xxxx";
+
+    private final String streamName = MIC_APP_ID + "_3d1f0a2c9b8e4f6a_teacher01_camera";
+
+    private final String channelId = "3d1f0a2c9b8e4f6a";
+
+    private final String userId = "student_000123";
+
+    private final String nonce = "9f86d081884c7d659a2feaa0c55ad015";
+
+    private final long exp = 1767225600L;
+
+    private Signer pullAuthSigner;
+
+    private Signer rtcAuthSigner;
+
+    private Signer newImTokenSigner;
+
+    private Signer boardChecksumSigner;
+
+    private Signer liveCallbackSigner;
+
+    @Setup
+    public void setup() {
+
+        pullAuthSigner = new Signer(Signer.MD5, null, "-0-0-" + PULL_AUTH_KEY);
+        rtcAuthSigner = new Signer(Signer.SHA256, MIC_APP_ID + MIC_APP_KEY, null);
+        newImTokenSigner = new Signer(Signer.SHA256, IM_APP_ID + IM_APP_KEY, null);
+        boardChecksumSigner = new Signer(Signer.SHA1, BOARD_SECRET, null);
+        liveCallbackSigner = new Signer(Signer.MD5, PUSH_URL + "|", "|" + CALLBACK_KEY);
+    }
+
+    @Benchmark
+    public String aAuthOld() {
+
+        String path = String.format("/%s/%s", APP_NAME, String.format("%s_oriaac%s", streamName, ".flv"));
+        String signStr = String.format("%s-%d-%s-%s-%s", path, exp, "0", "0", PULL_AUTH_KEY);
+        String hashValue = DigestUtils.md5DigestAsHex(signStr.getBytes());
+        return String.format("%d-%s-%s-%s", exp, "0", "0", hashValue);
+    }
+
+    @Benchmark
+    public String aAuthNew() {
+
+        String hashValue = pullAuthSigner.begin()
+                .append('/').append(APP_NAME).append('/').append(streamName).append("_oriaac.flv")
+                .append('-').append(exp)
+                .sign();
+        return exp + "-0-0-" + hashValue;
+    }
+
+    @Benchmark
+    public String rtcAuthOld() throws Exception {
+
+        String rtcAuthStr = String.format("%s%s%s%s%d", MIC_APP_ID, MIC_APP_KEY, channelId, userId, exp);
+        MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+        messageDigest.update(rtcAuthStr.getBytes(StandardCharsets.UTF_8));
+        StringBuilder stringBuffer = new StringBuilder();
+        for (byte aByte : messageDigest.digest()) {
+            String temp = Integer.toHexString(aByte & 0xFF);
+            if (temp.length() == 1) {
+                stringBuffer.append("0");
+            }
+            stringBuffer.append(temp);
+        }
+        return stringBuffer.toString();
+    }
+
+    @Benchmark
+    public String rtcAuthNew() {
+
+        return rtcAuthSigner.begin().append(channelId).append(userId).append(exp).sign();
+    }
+
+    @Benchmark
+    public String newImTokenOld() {
+
+        String signContent = String.format("%s%s%s%s%s%s", IM_APP_ID, IM_APP_KEY, userId, nonce, exp, "");
+        return org.apache.commons.codec.digest.DigestUtils.sha256Hex(signContent);
+    }
+
+    @Benchmark
+    public String newImTokenNew() {
+
+        return newImTokenSigner.begin().append(userId).append(nonce).append(exp).append("").sign();
+    }
+
+    @Benchmark
+    public String boardChecksumOld() throws Exception {
+
+        MessageDigest messageDigest = MessageDigest.getInstance("sha1");
+        messageDigest.update((BOARD_SECRET + nonce + (int) exp).getBytes());
+        char[] hexDigits = "0123456789abcdef".toCharArray();
+        StringBuilder buf = new StringBuilder(40);
+        for (byte aByte : messageDigest.digest()) {
+            buf.append(hexDigits[(aByte >> 4) & 0x0f]);
+            buf.append(hexDigits[aByte & 0x0f]);
+        }
+        return buf.toString();
+    }
+
+    @Benchmark
+    public String boardChecksumNew() {
+
+        return boardChecksumSigner.begin().append(nonce).append((int) exp).sign();
+    }
+
+    @Benchmark
+    public String liveCallbackOld() {
+
+        String signContent = String.format("%s|%s|%s", PUSH_URL, String.valueOf(exp), CALLBACK_KEY);
+        return DigestUtils.md5DigestAsHex(signContent.getBytes());
+    }
+
+    @Benchmark
+    public String liveCallbackNew() {
+
+        return liveCallbackSigner.begin().append(String.valueOf(exp)).sign();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+
+        Options options = new OptionsBuilder()
+                .include(SignerBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,70 @@
+package com.aliyuncs.aui.common.utils;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Signer与直接拼接字符串后计算摘要的结果一致
+ */
+class SignerTests {
+
+    @Test
+    void sameAsDigestOfConcatenatedString() {
+
+        Signer md5 = new Signer(Signer.MD5, null, "-0-0-key");
+        assertEquals(DigestUtils.md5Hex("/live/stream_oriaac.flv-1767225600-0-0-key"),
+                md5.begin().append('/').append("live").append('/').append("stream").append("_oriaac.flv").append('-').append(1767225600L).sign());
+
+        Signer sha1 = new Signer(Signer.SHA1, "secret", null);
+        assertEquals(DigestUtils.sha1Hex("secretnonce0"), sha1.begin().append("nonce").append(0).sign());
+
+        Signer sha256 = new Signer(Signer.SHA256, "appIdappKey", "|suffix");
+        assertEquals(DigestUtils.sha256Hex("appIdappKeyuser-42null|suffix"),
+                sha256.begin().append("user").append(-42).append((String) null).sign());
+        assertEquals(DigestUtils.sha256Hex("appIdappKey" + Long.MIN_VALUE + "|suffix"), sha256.begin().append(Long.MIN_VALUE).sign());
+    }
+
+    @Test
+    void longAndNonAsciiInput() {
+
+        StringBuilder longValue = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            longValue.append((char) ('a' + i % 26));
+        }
+        Signer signer = new Signer(Signer.SHA256, "前缀", null);
+        assertEquals(DigestUtils.sha256Hex("前缀" + longValue + "用户😀" + 1234567890123L + "é"),
+                signer.begin().append(longValue).append("用户😀").append(1234567890123L).append('é').sign());
+    }
+
+    @Test
+    void concurrentSigning() throws Exception {
+
+        Signer signer = new Signer(Signer.MD5, "prefix", "suffix");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 2000; i++) {
+                        String value = thread + "_" + i;
+                        assertEquals(DigestUtils.md5Hex("prefix" + value + "suffix"), signer.begin().append(value).sign());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
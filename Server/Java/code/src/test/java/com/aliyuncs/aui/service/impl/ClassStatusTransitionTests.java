@@ -0,0 +1,135 @@
+package com.aliyuncs.aui.service.impl;
+
+import com.aliyuncs.aui.dto.enums.ClassRoomStatus;
+import com.aliyuncs.aui.entity.ClassInfoEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.annotation.Resource;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 课堂状态迁移的并发测试：同一课堂上并发执行推流回调与老师操作，
+ * 每次成功的迁移都必须使version加1，不能出现丢失更新
+ */
+@SpringBootTest
+class ClassStatusTransitionTests {
+
+    private static final String TEACHER_ID = "transition_test_teacher";
+
+    private static final int THREADS = 16;
+
+    private static final int OPERATIONS_PER_THREAD = 200;
+
+    /**
+     * 老师操作可迁移到的目标状态，不含删除中
+     */
+    private static final ClassRoomStatus[] TEACHER_TARGETS = ClassInfoServiceImpl.DELETE_TRANSIT_FROM.toArray(new ClassRoomStatus[0]);
+
+    @Resource(name = "roomInfosService")
+    private ClassInfoServiceImpl classInfoService;
+
+    private String classId;
+
+    @BeforeEach
+    void setUp() {
+
+        classId = UUID.randomUUID().toString().replaceAll("-", "");
+        Date now = new Date();
+        classInfoService.save(ClassInfoEntity.builder()
+                .id(classId)
+                .title("transition_test")
+                .teacherId(TEACHER_ID)
+                .status((long) ClassRoomStatus.ClassRoomStatusPrepare.getVal())
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+
+        classInfoService.removeById(classId);
+    }
+
+    @Test
+    void concurrentTransitionsNeverLoseUpdates() throws Exception {
+
+        long initialVersion = classInfoService.getById(classId).getVersion();
+        AtomicInteger applied = new AtomicInteger();
+        CountDownLatch startLatch = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executorService.submit(() -> {
+                startLatch.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    boolean result;
+                    switch (random.nextInt(5)) {
+                        case 0:
+                            result = classInfoService.transitStatus(classId, ClassRoomStatus.ClassRoomStatusOn,
+                                    ClassInfoServiceImpl.PUBLISH_TRANSIT_FROM, null);
+                            break;
+                        case 1:
+                            result = classInfoService.transitStatus(classId, ClassRoomStatus.ClassRoomStatusPrepare,
+                                    ClassInfoServiceImpl.PUBLISH_DONE_TRANSIT_FROM, null);
+                            break;
+                        default:
+                            ClassRoomStatus target = TEACHER_TARGETS[random.nextInt(TEACHER_TARGETS.length)];
+                            result = classInfoService.transitStatus(classId, target,
+                                    ClassInfoServiceImpl.TEACHER_TRANSIT_FROM.get(target), TEACHER_ID);
+                            break;
+                    }
+                    if (result) {
+                        applied.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        startLatch.countDown();
+        for (Future<?> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        executorService.shutdown();
+
+        ClassInfoEntity classInfoEntity = classInfoService.getById(classId);
+        assertEquals(initialVersion + applied.get(), (long) classInfoEntity.getVersion());
+        assertNotNull(ClassRoomStatus.of(classInfoEntity.getStatus().intValue()));
+    }
+
+    @Test
+    void transitionsRespectSourceStatus() {
+
+        // 准备中的课堂不会因为断流回调发生变化
+        assertFalse(classInfoService.transitStatus(classId, ClassRoomStatus.ClassRoomStatusPrepare,
+                ClassInfoServiceImpl.PUBLISH_DONE_TRANSIT_FROM, null));
+        assertTrue(classInfoService.transitStatus(classId, ClassRoomStatus.ClassRoomStatusOn,
+                ClassInfoServiceImpl.PUBLISH_TRANSIT_FROM, null));
+        // 重复的推流回调不会再次迁移
+        assertFalse(classInfoService.transitStatus(classId, ClassRoomStatus.ClassRoomStatusOn,
+                ClassInfoServiceImpl.PUBLISH_TRANSIT_FROM, null));
+
+        // 非本课堂老师无法修改状态
+        assertFalse(classInfoService.changeStatusByTeacher(classId, "other_teacher", ClassRoomStatus.ClassRoomStatusOff));
+        assertTrue(classInfoService.changeStatusByTeacher(classId, TEACHER_ID, ClassRoomStatus.ClassRoomStatusOff));
+        // 已处于目标状态时幂等成功
+        assertTrue(classInfoService.changeStatusByTeacher(classId, TEACHER_ID, ClassRoomStatus.ClassRoomStatusOff));
+        assertFalse(classInfoService.changeStatusByTeacher("not_exist_class", TEACHER_ID, ClassRoomStatus.ClassRoomStatusOff));
+
+        assertEquals(ClassRoomStatus.ClassRoomStatusOff.getVal(), classInfoService.getById(classId).getStatus().intValue());
+
+        // 老师操作不能直接迁移到删除中，没有可迁移的源状态时返回false
+        assertFalse(classInfoService.transitStatus(classId, ClassRoomStatus.ClassRoomStatusDeleting,
+                ClassInfoServiceImpl.TEACHER_TRANSIT_FROM.get(ClassRoomStatus.ClassRoomStatusDeleting), TEACHER_ID));
+        assertFalse(classInfoService.changeStatusByTeacher(classId, TEACHER_ID, ClassRoomStatus.ClassRoomStatusDeleting));
+    }
+}
@@ -0,0 +1,157 @@
+package com.aliyuncs.aui.service.impl;
+
+import com.aliyuncs.aui.cache.ClassInfoCache;
+import com.aliyuncs.aui.common.resilience.VendorGuard;
+import com.aliyuncs.aui.common.utils.PageUtils;
+import com.aliyuncs.aui.config.ResilienceProperties;
+import com.aliyuncs.aui.dao.RoomInfoDao;
+import com.aliyuncs.aui.dto.enums.ClassRoomStatus;
+import com.aliyuncs.aui.dto.req.RoomListRequestDto;
+import com.aliyuncs.aui.dto.res.RoomInfoDto;
+import com.aliyuncs.aui.entity.ClassInfoEntity;
+import com.aliyuncs.aui.service.ALiYunService;
+import com.aliyuncs.aui.service.resilience.ResilientALiYunService;
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.google.common.util.concurrent.RateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * SearchMedia失败、限流或熔断时，课堂列表仍然返回，只是未保存vod_id的课堂不带点播信息，且不会进入退避
+ */
+class VodMediaDegradationTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ALiYunService delegate;
+
+    private VodMediaServiceImpl vodMediaService;
+
+    private ClassInfoServiceImpl classInfoService;
+
+    private final ExecutorService listExecutor = Executors.newFixedThreadPool(2);
+
+    @BeforeAll
+    static void initTableInfo() {
+
+        // Lambda条件构造需要实体的字段映射，不启动Spring时手动初始化
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), ClassInfoEntity.class);
+    }
+
+    @BeforeEach
+    void setUp() {
+
+        delegate = mock(ALiYunService.class);
+        when(delegate.searchMediaByTitles(any())).thenReturn(null);
+
+        ResilienceProperties resilienceProperties = new ResilienceProperties();
+        // 2次调用中失败率达到50%即熔断
+        resilienceProperties.setDefaults(new ResilienceProperties.Policy(0D, 50, 10, 2, 60000L, 1, 5000L));
+        VendorGuard vendorGuard = new VendorGuard();
+        ReflectionTestUtils.setField(vendorGuard, "resilienceProperties", resilienceProperties);
+        ReflectionTestUtils.setField(vendorGuard, "meterRegistry", meterRegistry);
+        ResilientALiYunService videoCloudService = new ResilientALiYunService();
+        ReflectionTestUtils.setField(videoCloudService, "delegate", delegate);
+        ReflectionTestUtils.setField(videoCloudService, "vendorGuard", vendorGuard);
+
+        ClassInfoCache classInfoCache = new ClassInfoCache();
+        ReflectionTestUtils.setField(classInfoCache, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(classInfoCache, "maxSize", 100L);
+        ReflectionTestUtils.setField(classInfoCache, "vodInfoTtlSeconds", 60L);
+        classInfoCache.init();
+
+        vodMediaService = new VodMediaServiceImpl();
+        ReflectionTestUtils.setField(vodMediaService, "videoCloudService", videoCloudService);
+        ReflectionTestUtils.setField(vodMediaService, "classInfoCache", classInfoCache);
+        ReflectionTestUtils.setField(vodMediaService, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(vodMediaService, "liveMicAppId", "app");
+        ReflectionTestUtils.setField(vodMediaService, "initialBackoffSeconds", 30L);
+        ReflectionTestUtils.setField(vodMediaService, "maxBackoffSeconds", 1800L);
+        vodMediaService.init();
+
+        RoomInfoDao roomInfoDao = mock(RoomInfoDao.class);
+        when(roomInfoDao.selectPage(any(), any())).thenAnswer(invocation -> {
+            Page<ClassInfoEntity> page = invocation.getArgument(0);
+            page.setRecords(Arrays.asList(classInfo("stored", "vod_stored"), classInfo("unresolved", null)));
+            page.setTotal(2);
+            return page;
+        });
+        classInfoService = new ClassInfoServiceImpl();
+        ReflectionTestUtils.setField(classInfoService, "baseMapper", roomInfoDao);
+        ReflectionTestUtils.setField(classInfoService, "videoCloudService", videoCloudService);
+        ReflectionTestUtils.setField(classInfoService, "vodMediaService", vodMediaService);
+        ReflectionTestUtils.setField(classInfoService, "classInfoCache", classInfoCache);
+        ReflectionTestUtils.setField(classInfoService, "listBulkhead", new Semaphore(4));
+        ReflectionTestUtils.setField(classInfoService, "listExecutor", listExecutor);
+        ReflectionTestUtils.setField(classInfoService, "listRemoteRateLimiter", RateLimiter.create(1000));
+        ReflectionTestUtils.setField(classInfoService, "listRemoteAcquireTimeoutMs", 200L);
+        ReflectionTestUtils.setField(classInfoService, "vodTimeoutMs", 1500L);
+    }
+
+    @AfterEach
+    void tearDown() {
+
+        listExecutor.shutdownNow();
+    }
+
+    @Test
+    void searchFailureKeepsStoredIdsWithoutBackoff() {
+
+        Map<String, String> mediaIds = vodMediaService.resolveMediaIds(
+                Arrays.asList(classInfo("stored", "vod_stored"), classInfo("unresolved", null)));
+        assertEquals(Collections.singletonMap("stored", "vod_stored"), mediaIds);
+
+        // 失败不进入退避，下次仍会搜索
+        vodMediaService.resolveMediaIds(Collections.singletonList(classInfo("unresolved", null)));
+        verify(delegate, times(2)).searchMediaByTitles(any());
+    }
+
+    @Test
+    void listSucceedsWhenSearchFailsOrIsRejected() {
+
+        RoomListRequestDto request = new RoomListRequestDto();
+        request.setPageNum(1);
+        request.setPageSize(10);
+        request.setExpand(Collections.singletonList("vod_info"));
+
+        // 前两次SearchMedia失败，之后熔断，不再调用三方接口
+        for (int i = 0; i < 3; i++) {
+            PageUtils page = classInfoService.list(request);
+            assertNotNull(page);
+            @SuppressWarnings("unchecked")
+            List<RoomInfoDto> rooms = (List<RoomInfoDto>) page.getList();
+            assertEquals(2, rooms.size());
+            assertEquals("unresolved", rooms.get(1).getId());
+            assertNull(rooms.get(1).getVodInfo());
+        }
+        verify(delegate, times(2)).searchMediaByTitles(any());
+    }
+
+    private static ClassInfoEntity classInfo(String id, String vodId) {
+
+        return ClassInfoEntity.builder()
+                .id(id)
+                .meetingId("meeting_" + id)
+                .teacherId("teacher")
+                .vodId(vodId)
+                .status((long) ClassRoomStatus.ClassRoomStatusOff.getVal())
+                .createdAt(new Date())
+                .build();
+    }
+}